@@ -1,6 +1,17 @@
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 class Car {
     private String carId;
@@ -28,6 +39,10 @@ class Car {
         return model;
     }
 
+    public double getBasePricePerDay() {
+        return basePricePerDay;
+    }
+
     public double calculatePrice(int rentalDays) {
         return basePricePerDay * rentalDays;
     }
@@ -48,10 +63,12 @@ class Car {
 class Customer {
     private String customerId;
     private String name;
+    private String contact;
 
-    public Customer(String customerId, String name) {
+    public Customer(String customerId, String name, String contact) {
         this.customerId = customerId;
         this.name = name;
+        this.contact = contact;
     }
 
     public String getCustomerId() {
@@ -61,6 +78,165 @@ class Customer {
     public String getName() {
         return name;
     }
+
+    public String getContact() {
+        return contact;
+    }
+}
+
+// Each customer kept once, found by ID or by name and contact ignoring case, accents and punctuation.
+// Customers who give no contact details cannot be told apart, so each of them is registered anew.
+class CustomerRegistry {
+    private Map<String, Customer> byId = new HashMap<>();
+    private Map<String, Customer> byKey = new HashMap<>();
+    private int lastId;
+
+    public Customer register(String name, String contact) {
+        String key = normalizeName(name) + "\n" + normalizeContact(contact);
+        Customer customer = contact.trim().isEmpty() ? null : byKey.get(key);
+        if (customer == null) {
+            customer = new Customer("CUS" + (++lastId), name.trim(), contact.trim());
+            if (!contact.trim().isEmpty()) {
+                byKey.put(key, customer);
+            }
+            byId.put(customer.getCustomerId(), customer);
+        }
+        return customer;
+    }
+
+    public Customer findById(String customerId) {
+        return byId.get(customerId.toUpperCase(Locale.ROOT));
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private static String normalizeName(String name) {
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFKD).replaceAll("\\p{M}+", "");
+        return plain.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeContact(String contact) {
+        String trimmed = contact.trim().toLowerCase(Locale.ROOT);
+        return trimmed.indexOf('@') >= 0 ? trimmed : trimmed.replaceAll("[\\s().\\-/]+", "");
+    }
+}
+
+// Finds available cars by the start of their ID or of words in their brand and model ("aud q"),
+// trying close spellings ("mahimdra") when nothing matches.
+class CarSearchIndex {
+    private TreeMap<String, Car> ids = new TreeMap<>();
+    private TreeMap<String, Set<Car>> words = new TreeMap<>();
+
+    public void add(Car car) {
+        ids.put(car.getCarId().toUpperCase(Locale.ROOT), car);
+        for (String word : split(car.getBrand() + " " + car.getModel())) {
+            words.computeIfAbsent(word, w -> new LinkedHashSet<>()).add(car);
+        }
+    }
+
+    public List<Car> search(String query, int limit) {
+        String[] tokens = query.trim().split("\\s+");
+        List<Car> found = new ArrayList<>();
+        if (tokens[0].isEmpty()) {
+            return found;
+        }
+        String idPrefix = tokens[0].toUpperCase(Locale.ROOT);
+        for (Map.Entry<String, Car> entry : ids.tailMap(idPrefix).entrySet()) {
+            if (!entry.getKey().startsWith(idPrefix) || found.size() == limit) {
+                break;
+            }
+            if (entry.getValue().isAvailable()) {
+                found.add(entry.getValue());
+            }
+        }
+        List<Set<Car>> matches = new ArrayList<>();
+        for (String token : tokens) {
+            matches.add(carsWithWordStarting(normalize(token)));
+        }
+        if (found.isEmpty() && matches.contains(Collections.<Car>emptySet())) {
+            for (int i = 0; i < tokens.length; i++) {
+                if (matches.get(i).isEmpty()) {
+                    matches.set(i, carsWithWordLike(normalize(tokens[i])));
+                }
+            }
+        }
+        for (Car car : matches.get(0)) {
+            if (found.size() == limit) {
+                break;
+            }
+            boolean all = car.isAvailable() && !found.contains(car);
+            for (int i = 1; i < matches.size() && all; i++) {
+                all = matches.get(i).contains(car);
+            }
+            if (all) {
+                found.add(car);
+            }
+        }
+        return found;
+    }
+
+    private Set<Car> carsWithWordStarting(String prefix) {
+        Set<Car> cars = new LinkedHashSet<>();
+        if (!prefix.isEmpty()) {
+            for (Set<Car> having : words.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                cars.addAll(having);
+            }
+        }
+        return cars;
+    }
+
+    // Cars with a word one typo (two for longer words) from the term, or from the start of the word.
+    private Set<Car> carsWithWordLike(String term) {
+        Set<Car> cars = new LinkedHashSet<>();
+        int maxEdits = term.length() <= 4 ? 1 : 2;
+        for (Map.Entry<String, Set<Car>> entry : words.entrySet()) {
+            String word = entry.getKey();
+            String start = word.substring(0, Math.min(word.length(), term.length()));
+            if (term.length() >= 3 && Math.min(editDistance(term, word), editDistance(term, start)) <= maxEdits) {
+                cars.addAll(entry.getValue());
+            }
+        }
+        return cars;
+    }
+
+    private static List<String> split(String text) {
+        List<String> result = new ArrayList<>();
+        for (String word : normalizeWords(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String token) {
+        return normalizeWords(token).replaceAll("[^\\p{L}\\p{N}]+", "");
+    }
+
+    private static String normalizeWords(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKD).replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Insertions, deletions, substitutions and swaps of neighbours turning a into b.
+    private static int editDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
 }
 
 class Rental {
@@ -88,28 +264,126 @@ class Rental {
 }
 
 class CarRentalSystem {
+    private static final Comparator<Car> CHEAPEST_FIRST =
+            Comparator.comparingDouble(Car::getBasePricePerDay).thenComparing(car -> idKey(car.getCarId()));
+
     private List<Car> cars;
-    private List<Customer> customers;
-    private List<Rental> rentals;
+    private CustomerRegistry customers;
+
+    // Indexes kept alongside the car list so lookups never scan the fleet.
+    private Map<String, Car> carsById;
+    private Set<Car> availableCars;
+    private CarSearchIndex search;
+    // Available cars of each brand, cheapest first, so the best car for a request is found
+    // without looking at the rest of the fleet.
+    private Map<String, TreeSet<Car>> availableByBrand;
+
+    // Active rentals keyed by car and by customer; the list view is rebuilt only when asked for.
+    private Map<Car, Rental> rentalsByCar;
+    private Map<Customer, List<Rental>> rentalsByCustomer;
+    private List<Rental> rentalsSnapshot;
 
     public CarRentalSystem() {
         cars = new ArrayList<>();
-        customers = new ArrayList<>();
-        rentals = new ArrayList<>();
+        customers = new CustomerRegistry();
+        carsById = new HashMap<>();
+        availableCars = new LinkedHashSet<>();
+        search = new CarSearchIndex();
+        availableByBrand = new HashMap<>();
+        rentalsByCar = new LinkedHashMap<>();
+        rentalsByCustomer = new HashMap<>();
+    }
+
+    private static String idKey(String carId) {
+        return carId.toUpperCase(Locale.ROOT);
+    }
+
+    private static String brandKey(String brand) {
+        return brand.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private void offer(Car car) {
+        availableCars.add(car);
+        availableByBrand.computeIfAbsent(brandKey(car.getBrand()), b -> new TreeSet<>(CHEAPEST_FIRST)).add(car);
+    }
+
+    private void withdraw(Car car) {
+        availableCars.remove(car);
+        availableByBrand.get(brandKey(car.getBrand())).remove(car);
     }
 
     public void addCar(Car car) {
+        if (carsById.putIfAbsent(idKey(car.getCarId()), car) != null) {
+            return;
+        }
         cars.add(car);
+        search.add(car);
+        if (car.isAvailable()) {
+            offer(car);
+        }
+    }
+
+    public Car findAvailableCarById(String carId) {
+        Car car = carsById.get(idKey(carId));
+        return car != null && availableCars.contains(car) ? car : null;
     }
 
-    public void addCustomer(Customer customer) {
-        customers.add(customer);
+    public List<Car> searchAvailableCars(String query, int limit) {
+        return search.search(query, limit);
+    }
+
+    /**
+     * Returns the cheapest available car of the given brand (any brand if blank) costing at most
+     * maxPricePerDay a day, or null if there is none.
+     */
+    public Car assignCar(String brand, double maxPricePerDay) {
+        Car best = null;
+        if (brand == null || brand.trim().isEmpty()) {
+            for (TreeSet<Car> available : availableByBrand.values()) {
+                if (!available.isEmpty() && (best == null || CHEAPEST_FIRST.compare(available.first(), best) < 0)) {
+                    best = available.first();
+                }
+            }
+        } else {
+            TreeSet<Car> available = availableByBrand.get(brandKey(brand));
+            best = available == null || available.isEmpty() ? null : available.first();
+        }
+        return best != null && best.getBasePricePerDay() <= maxPricePerDay ? best : null;
+    }
+
+    public Car findRentedCarById(String carId) {
+        Car car = carsById.get(idKey(carId));
+        return car != null && rentalsByCar.containsKey(car) ? car : null;
+    }
+
+    public Rental getRentalForCar(Car car) {
+        return rentalsByCar.get(car);
+    }
+
+    public List<Rental> getRentalsForCustomer(Customer customer) {
+        List<Rental> held = rentalsByCustomer.get(customer);
+        return held == null ? Collections.emptyList() : Collections.unmodifiableList(held);
+    }
+
+    public List<Rental> getRentals() {
+        if (rentalsSnapshot == null) {
+            rentalsSnapshot = Collections.unmodifiableList(new ArrayList<>(rentalsByCar.values()));
+        }
+        return rentalsSnapshot;
+    }
+
+    public Customer registerCustomer(String name, String contact) {
+        return customers.register(name, contact);
     }
 
     public void rentCar(Car car, Customer customer, int days) {
         if (car.isAvailable()) {
             car.rent();
-            rentals.add(new Rental(car, customer, days));
+            withdraw(car);
+            Rental rental = new Rental(car, customer, days);
+            rentalsByCar.put(car, rental);
+            rentalsByCustomer.computeIfAbsent(customer, c -> new ArrayList<>(1)).add(rental);
+            rentalsSnapshot = null;
 
         } else {
             System.out.println("Car is not available for rent . \n Please go through other options.");
@@ -117,16 +391,16 @@ class CarRentalSystem {
     }
 
     public void returnCar(Car car) {
-        car.returnCar();
-        Rental rentalToRemove = null;
-        for (Rental rental : rentals) {
-            if (rental.getCar() == car) {
-                rentalToRemove = rental;
-                break;
-            }
-        }
+        Rental rentalToRemove = rentalsByCar.remove(car);
         if (rentalToRemove != null) {
-            rentals.remove(rentalToRemove);
+            car.returnCar();
+            offer(car);
+            List<Rental> held = rentalsByCustomer.get(rentalToRemove.getCustomer());
+            held.remove(rentalToRemove);
+            if (held.isEmpty()) {
+                rentalsByCustomer.remove(rentalToRemove.getCustomer());
+            }
+            rentalsSnapshot = null;
 
         } else {
             System.out.println("Car was not rented.");
@@ -140,7 +414,8 @@ class CarRentalSystem {
             System.out.println("===== Car Rental System =====");
             System.out.println("1. Rent a Car");
             System.out.println("2. Return a Car");
-            System.out.println("3. Exit");
+            System.out.println("3. Search Cars");
+            System.out.println("4. Exit");
             System.out.print("Enter your choice: ");
 
             int choice = scanner.nextInt();
@@ -150,33 +425,44 @@ class CarRentalSystem {
                 System.out.println("\n== Rent a Car ==\n");
                 System.out.print("Enter your name: ");
                 String customerName = scanner.nextLine();
-
-                System.out.println("\nAvailable Cars:");
-                for (Car car : cars) {
-                    if (car.isAvailable()) {
-                        System.out.println(car.getCarId() + " - " + car.getBrand() + " " + car.getModel());
+                System.out.print("Enter your phone or e-mail (optional): ");
+                String contact = scanner.nextLine();
+
+                System.out.print("Preferred brand (optional): ");
+                String brand = scanner.nextLine();
+                System.out.print("Maximum price per day (optional): ");
+                String maxPriceText = scanner.nextLine().trim();
+                double maxPrice = Double.POSITIVE_INFINITY;
+                if (!maxPriceText.isEmpty()) {
+                    try {
+                        maxPrice = Double.parseDouble(maxPriceText);
+                    } catch (NumberFormatException e) {
+                        System.out.println("Not a number; any price will do.");
                     }
                 }
 
-                System.out.print("\nEnter the car ID you want to rent: ");
+                Car suggested = assignCar(brand, maxPrice);
+                if (suggested != null) {
+                    System.out.printf("%nBest match: %s - %s %s ($%.2f/day)%n", suggested.getCarId(),
+                            suggested.getBrand(), suggested.getModel(), suggested.getBasePricePerDay());
+                    System.out.print("Enter the car ID you want to rent (press Enter for " + suggested.getCarId() + "): ");
+                } else {
+                    System.out.println("\nNo available car matches that. Use Search Cars to look for others.");
+                    System.out.print("Enter the car ID you want to rent: ");
+                }
                 String carId = scanner.nextLine();
+                if (carId.trim().isEmpty() && suggested != null) {
+                    carId = suggested.getCarId();
+                }
 
                 System.out.print("Enter the number of days for rental: ");
                 int rentalDays = scanner.nextInt();
                 scanner.nextLine(); // Consume newline
 
-                Customer newCustomer = new Customer("CUS" + (customers.size() + 1), customerName);
-                addCustomer(newCustomer);
-
-                Car selectedCar = null;
-                for (Car car : cars) {
-                    if (car.getCarId().equals(carId) && car.isAvailable()) {
-                        selectedCar = car;
-                        break;
-                    }
-                }
+                Car selectedCar = findAvailableCarById(carId);
 
                 if (selectedCar != null) {
+                    Customer newCustomer = registerCustomer(customerName, contact);
                     double totalPrice = selectedCar.calculatePrice(rentalDays);
                     System.out.println("\n== Rental Information ==\n");
                     System.out.println("Customer ID: " + newCustomer.getCustomerId());
@@ -202,22 +488,11 @@ class CarRentalSystem {
                 System.out.print("Enter the car ID you want to return: ");
                 String carId = scanner.nextLine();
 
-                Car carToReturn = null;
-                for (Car car : cars) {
-                    if (car.getCarId().equals(carId) && !car.isAvailable()) {
-                        carToReturn = car;
-                        break;
-                    }
-                }
+                Car carToReturn = findRentedCarById(carId);
 
                 if (carToReturn != null) {
-                    Customer customer = null;
-                    for (Rental rental : rentals) {
-                        if (rental.getCar() == carToReturn) {
-                            customer = rental.getCustomer();
-                            break;
-                        }
-                    }
+                    Rental rental = getRentalForCar(carToReturn);
+                    Customer customer = rental != null ? rental.getCustomer() : null;
 
                     if (customer != null) {
                         returnCar(carToReturn);
@@ -229,6 +504,19 @@ class CarRentalSystem {
                     System.out.println("Invalid car ID or car is not rented.");
                 }
             } else if (choice == 3) {
+                System.out.println("\n== Search Cars ==\n");
+                System.out.print("Enter part of a car ID, brand or model: ");
+                String query = scanner.nextLine();
+
+                List<Car> matches = searchAvailableCars(query, 10);
+                if (matches.isEmpty()) {
+                    System.out.println("No available cars match \"" + query.trim() + "\".");
+                }
+                for (Car car : matches) {
+                    System.out.println(car.getCarId() + " - " + car.getBrand() + " " + car.getModel());
+                }
+                System.out.println();
+            } else if (choice == 4) {
                 break;
             } else {
                 System.out.println("Invalid choice. Please enter a valid option.");
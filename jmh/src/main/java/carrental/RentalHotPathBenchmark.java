@@ -0,0 +1,124 @@
+package carrental;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the rental hot paths: rent and return, filtered availability, assignment,
+ * lookup by ID, search and quoting.
+ *
+ * <p>Each benchmark runs against fleets of several sizes, on a heap or a columnar store. The
+ * {@code Contended} variants have every thread rent the same few cars, so they fight over the
+ * same locks. Run with {@code -prof gc} to see bytes allocated per operation.
+ *
+ * <pre>
+ * mvn install -DskipTests
+ * mvn -f jmh/pom.xml package
+ * java -jar jmh/target/benchmarks.jar -t 8 -prof gc
+ * java -jar jmh/target/benchmarks.jar rentAndReturn -p size=1000000 -p store=columnar
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RentalHotPathBenchmark {
+    private static final String[] SEARCHES = {"aud q", "thar", "ID_00005", "mahimdra", "brez"};
+
+    @State(Scope.Benchmark)
+    public static class Fleet {
+        @Param({"1000", "100000", "1000000"})
+        int size;
+
+        @Param({"heap", "columnar"})
+        String store;
+
+        RentalBenchmark.Fixture fixture;
+        CompiledPricingEngine rules;
+        LocalDate quoteStart;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            FleetStore fleetStore = "columnar".equals(store)
+                    ? ColumnarFleetStore.open(Files.createTempDirectory("rental-jmh"))
+                    : new HeapFleetStore();
+            fixture = new RentalBenchmark.Fixture(size, fleetStore);
+            Car.setPricingEngine(PricingEngine.FLAT);
+            rules = new PricingRules()
+                    .season(MonthDay.of(6, 1), MonthDay.of(8, 31), 2000)
+                    .weekend(1500)
+                    .longRental(7, -1000)
+                    .brand("BMW", 500)
+                    .compile();
+            // Next year's summer, inside the dates the rules are compiled for.
+            quoteStart = LocalDate.now().plusYears(1).withMonth(6).withDayOfMonth(1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        int thread;
+        int threads;
+        long iteration;
+        Customer customer;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            thread = params.getThreadIndex();
+            threads = params.getThreadCount();
+            customer = new Customer("BENCH-" + thread, "Bench");
+        }
+    }
+
+    @Benchmark
+    public boolean rentAndReturn(Fleet fleet, Worker worker) {
+        return rentAndReturn(fleet, worker, false);
+    }
+
+    @Benchmark
+    public boolean rentAndReturnContended(Fleet fleet, Worker worker) {
+        return rentAndReturn(fleet, worker, true);
+    }
+
+    private static boolean rentAndReturn(Fleet fleet, Worker worker, boolean contended) {
+        Car car = fleet.fixture.carFor(worker.iteration++, worker.thread, worker.threads, contended);
+        CarRentalSystem system = fleet.fixture.system;
+        return system.rentCar(car, worker.customer, 3) & system.returnCar(car);
+    }
+
+    @Benchmark
+    public int countAvailable(Fleet fleet, Worker worker) {
+        return fleet.fixture.system.countAvailableCars("BMW", 1000.0 + (worker.iteration++ & 7) * 100.0);
+    }
+
+    @Benchmark
+    public Car assignCar(Fleet fleet, Worker worker) {
+        LocalDate start = fleet.fixture.system.today();
+        return fleet.fixture.system.assignCar(start, start.plusDays(3), "Mahindra",
+                1000.0 + (worker.iteration++ & 7) * 100.0);
+    }
+
+    @Benchmark
+    public Car findAvailableCarById(Fleet fleet, Worker worker) {
+        String[] ids = fleet.fixture.ids;
+        return fleet.fixture.system.findAvailableCarById(ids[(int) ((worker.iteration++ * 7919) % ids.length)]);
+    }
+
+    @Benchmark
+    public int searchAvailable(Fleet fleet, Worker worker) {
+        return fleet.fixture.system.searchAvailableCars(SEARCHES[(int) (worker.iteration++ % SEARCHES.length)], 8).size();
+    }
+
+    @Benchmark
+    public long quote(Fleet fleet, Worker worker) {
+        long i = worker.iteration++;
+        Car[] cars = fleet.fixture.cars;
+        return fleet.rules.quote(cars[(int) (i % cars.length)], fleet.quoteStart.plusDays((i >>> 4) & 7), 1 + (int) (i & 15));
+    }
+}
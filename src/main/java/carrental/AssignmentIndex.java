@@ -0,0 +1,194 @@
+package carrental;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The available cars of each brand in a binary min-heap by price per day, so the cheapest
+ * available car of a brand is always on top. Each heap knows where every car sits in it, so a
+ * car leaving when rented and coming back when returned costs O(log n) and allocates nothing.
+ * The cheapest cars are read off a heap best-first, touching only the entries returned and
+ * their children.
+ *
+ * <p>Each heap is guarded by itself. {@link CarRentalSystem} changes them holding the car's
+ * stripe lock, so nothing here may take a stripe lock.
+ */
+class AssignmentIndex {
+    // A heap entry is the car's price in cents above its ordinal, so one long comparison orders
+    // cars by price and then by the order they were added.
+    private static final int ORDINAL_BITS = 31;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    private static final long MAX_PRICE = (1L << 32) - 1;
+
+    private static final class Heap {
+        long[] keys = new long[16];
+        int size;
+    }
+
+    // Heaps by brand key, and the same heaps by brand exactly as spelt, which rents and returns
+    // look up so as not to build a key each time.
+    private final Map<String, Heap> byKey = new ConcurrentHashMap<>();
+    private final Map<String, Heap> bySpelling = new ConcurrentHashMap<>();
+    // Where each car sits in its heap, or -1; in pages like RentalTable's rows.
+    private volatile int[][] positions = new int[0][];
+
+    // Called holding the fleet lock.
+    void ensureRow(int ordinal) {
+        int page = ordinal >>> RentalTable.PAGE_SHIFT;
+        int[][] current = positions;
+        if (page < current.length) {
+            return;
+        }
+        int[][] grown = Arrays.copyOf(current, page + 1);
+        for (int i = current.length; i <= page; i++) {
+            grown[i] = new int[RentalTable.PAGE_SIZE];
+            Arrays.fill(grown[i], -1);
+        }
+        positions = grown;
+    }
+
+    /**
+     * Puts the car into its brand's heap, or takes it out. Called holding the car's stripe.
+     */
+    void setAvailable(int ordinal, Car car, boolean available) {
+        Heap heap = heapFor(car.getBrand());
+        synchronized (heap) {
+            int[] page = positions[ordinal >>> RentalTable.PAGE_SHIFT];
+            int at = page[ordinal & (RentalTable.PAGE_SIZE - 1)];
+            if (available && at < 0) {
+                if (heap.size == heap.keys.length) {
+                    heap.keys = Arrays.copyOf(heap.keys, heap.size * 2);
+                }
+                long price = Math.min(Math.max(car.getBasePriceMinor(), 0), MAX_PRICE);
+                siftUp(heap, heap.size++, price << ORDINAL_BITS | ordinal);
+            } else if (!available && at >= 0) {
+                page[ordinal & (RentalTable.PAGE_SIZE - 1)] = -1;
+                long last = heap.keys[--heap.size];
+                if (at < heap.size) {
+                    siftDown(heap, at, last);
+                    if (heap.keys[at] == last) {
+                        siftUp(heap, at, last);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} available cars of the brand (any brand if null) as ordinals, cheapest
+     * first and in the order they were added among equal prices.
+     */
+    int[] cheapest(String brand, int limit) {
+        long[] found;
+        if (brand != null) {
+            Heap heap = byKey.get(brand.toUpperCase(Locale.ROOT));
+            found = heap == null ? new long[0] : cheapest(heap, limit);
+        } else {
+            found = new long[0];
+            for (Heap heap : byKey.values()) {
+                long[] cars = cheapest(heap, limit);
+                found = Arrays.copyOf(found, found.length + cars.length);
+                System.arraycopy(cars, 0, found, found.length - cars.length, cars.length);
+            }
+            Arrays.sort(found);
+            found = Arrays.copyOf(found, Math.min(limit, found.length));
+        }
+        int[] ordinals = new int[found.length];
+        for (int i = 0; i < found.length; i++) {
+            ordinals[i] = (int) (found[i] & ORDINAL_MASK);
+        }
+        return ordinals;
+    }
+
+    private Heap heapFor(String brand) {
+        Heap heap = bySpelling.get(brand);
+        if (heap == null) {
+            heap = byKey.computeIfAbsent(brand.toUpperCase(Locale.ROOT), key -> new Heap());
+            bySpelling.putIfAbsent(brand, heap);
+        }
+        return heap;
+    }
+
+    // Best-first walk: the next cheapest entry is always the smallest in the frontier, itself a
+    // small heap of the positions whose parents have been taken.
+    private static long[] cheapest(Heap heap, int limit) {
+        synchronized (heap) {
+            long[] keys = heap.keys;
+            int wanted = Math.min(limit, heap.size);
+            long[] found = new long[wanted];
+            int[] frontier = new int[wanted + 1];
+            int frontierSize = wanted > 0 ? 1 : 0;
+            for (int count = 0; count < wanted; count++) {
+                int at = frontier[0];
+                found[count] = keys[at];
+                frontierSize = popFrontier(keys, frontier, frontierSize);
+                for (int child = 2 * at + 1; child <= 2 * at + 2 && child < heap.size; child++) {
+                    frontierSize = pushFrontier(keys, frontier, frontierSize, child);
+                }
+            }
+            return found;
+        }
+    }
+
+    private static int pushFrontier(long[] keys, int[] frontier, int size, int position) {
+        int i = size;
+        while (i > 0 && keys[frontier[(i - 1) >>> 1]] > keys[position]) {
+            frontier[i] = frontier[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        frontier[i] = position;
+        return size + 1;
+    }
+
+    private static int popFrontier(long[] keys, int[] frontier, int size) {
+        int last = frontier[--size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[frontier[child + 1]] < keys[frontier[child]]) {
+                child++;
+            }
+            if (keys[frontier[child]] >= keys[last]) {
+                break;
+            }
+            frontier[i] = frontier[child];
+            i = child;
+        }
+        frontier[i] = last;
+        return size;
+    }
+
+    private void siftUp(Heap heap, int i, long key) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap.keys[parent] <= key) {
+                break;
+            }
+            place(heap, i, heap.keys[parent]);
+            i = parent;
+        }
+        place(heap, i, key);
+    }
+
+    private void siftDown(Heap heap, int i, long key) {
+        int half = heap.size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heap.size && heap.keys[child + 1] < heap.keys[child]) {
+                child++;
+            }
+            if (key <= heap.keys[child]) {
+                break;
+            }
+            place(heap, i, heap.keys[child]);
+            i = child;
+        }
+        place(heap, i, key);
+    }
+
+    private void place(Heap heap, int i, long key) {
+        heap.keys[i] = key;
+        int ordinal = (int) (key & ORDINAL_MASK);
+        positions[ordinal >>> RentalTable.PAGE_SHIFT][ordinal & (RentalTable.PAGE_SIZE - 1)] = i;
+    }
+}
@@ -0,0 +1,38 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * What a customer asks for when they do not mind which car they get: a brand (any brand if
+ * null), a ceiling on the price per day and the days they need it, from {@code startDate} up
+ * to, but not including, {@code endDate}.
+ */
+class AssignmentRequest {
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final String brand;
+    private final double maxPricePerDay;
+
+    public AssignmentRequest(LocalDate startDate, LocalDate endDate, String brand, double maxPricePerDay) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.brand = brand;
+        this.maxPricePerDay = maxPricePerDay;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public double getMaxPricePerDay() {
+        return maxPricePerDay;
+    }
+}
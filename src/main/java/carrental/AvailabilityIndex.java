@@ -0,0 +1,297 @@
+package carrental;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Bitset view of car availability, indexed by car ordinal, with brand and price-band bitsets
+ * alongside so that queries such as "available BMWs at most 1000 a day" reduce to AND and
+ * popcount over {@code long} words instead of a pass over car objects.
+ *
+ * <p>Price bands are cumulative: band {@code k} holds every car priced at most
+ * {@code (k + 1) * BAND_WIDTH} a day. A query ANDs the widest band that fits under its price
+ * ceiling and checks the exact price only for cars in the next band up. The word loops are
+ * plain array code that the JIT can vectorize, so no Vector API is needed.
+ *
+ * <p>Bits live in fixed-size pages that are never reallocated, so availability can be flipped
+ * with a CAS while the fleet grows. Exact prices are read from the {@link FleetStore}, so a
+ * fleet kept off the heap is not copied back onto it here.
+ */
+class AvailabilityIndex {
+    static final double BAND_WIDTH = 100.0;
+    static final int BANDS = 64;
+
+    static final int PAGE_SHIFT = 10;                           // 1024 words = 65536 cars per page
+    static final int PAGE_WORDS = 1 << PAGE_SHIFT;
+    private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final FleetStore fleet;
+    private final Bits available = new Bits();
+    private final Map<String, Bits> brands = new ConcurrentHashMap<>();
+    private final Bits[] bands = new Bits[BANDS];
+    private volatile int size;
+
+    AvailabilityIndex(FleetStore fleet) {
+        this.fleet = fleet;
+        for (int band = 0; band < BANDS; band++) {
+            bands[band] = new Bits();
+        }
+    }
+
+    private static String brandKey(String brand) {
+        return brand.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Registers the car at the next ordinal, before the store has it. Called by a single writer
+     * at a time.
+     */
+    void add(int ordinal, Car car) {
+        int words = (ordinal >>> 6) + 1;
+        available.ensure(words);
+        for (Bits band : bands) {
+            band.ensure(words);
+        }
+        Bits brand = brands.computeIfAbsent(brandKey(car.getBrand()), key -> new Bits());
+        brand.ensure(words);
+        brand.set(ordinal, true);
+
+        for (int band = firstBandFor(car.getBasePricePerDay()); band < BANDS; band++) {
+            bands[band].set(ordinal, true);
+        }
+        available.set(ordinal, car.isAvailable());
+        size = ordinal + 1;
+    }
+
+    void setAvailable(int ordinal, boolean isAvailable) {
+        if (ordinal >= 0) {
+            available.set(ordinal, isAvailable);
+        }
+    }
+
+    boolean isAvailable(int ordinal) {
+        return ordinal >= 0 && (available.word(ordinal >>> 6) & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Number of words needed to hold a bit for every car added so far.
+     */
+    int wordCount() {
+        int limit = size;
+        return limit == 0 ? 0 : ((limit - 1) >>> 6) + 1;
+    }
+
+    /**
+     * The availability bits of cars {@code 64 * wordIndex} to {@code 64 * wordIndex + 63}.
+     */
+    long availableWord(int wordIndex) {
+        return available.word(wordIndex);
+    }
+
+    /**
+     * The availability words of the given page; every page below {@link #wordCount()} exists.
+     */
+    long[] availablePage(int page) {
+        return available.page(page);
+    }
+
+    private static int firstBandFor(double price) {
+        double band = Math.ceil(price / BAND_WIDTH) - 1;
+        return band < 0 ? 0 : band >= BANDS ? BANDS : (int) band;
+    }
+
+    /**
+     * Counts available cars matching the brand (any brand if null) priced at most {@code maxPricePerDay}.
+     */
+    int count(String brand, double maxPricePerDay) {
+        int[] count = new int[1];
+        scan(brand, maxPricePerDay, true, (word, wordIndex) -> {
+            count[0] += Long.bitCount(word);
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Calls {@code consumer} with the ordinal of every matching available car until it returns false.
+     */
+    void forEach(String brand, double maxPricePerDay, IntPredicate consumer) {
+        scan(brand, maxPricePerDay, true, ordinals(consumer));
+    }
+
+    /**
+     * Like {@link #forEach}, but includes cars that are currently rented.
+     */
+    void forEachCar(String brand, double maxPricePerDay, IntPredicate consumer) {
+        scan(brand, maxPricePerDay, false, ordinals(consumer));
+    }
+
+    private static WordSink ordinals(IntPredicate consumer) {
+        return (word, wordIndex) -> {
+            for (long bits = word; bits != 0; bits &= bits - 1) {
+                if (!consumer.test((wordIndex << 6) + Long.numberOfTrailingZeros(bits))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private interface WordSink {
+        /**
+         * Receives a word of matching cars; returns false to stop the scan.
+         */
+        boolean accept(long word, int wordIndex);
+    }
+
+    private void scan(String brand, double maxPricePerDay, boolean availableOnly, WordSink sink) {
+        // Only cars the store already has, so that their prices can be read from it.
+        int limit = Math.min(size, fleet.size());
+        if (limit == 0 || maxPricePerDay < 0) {
+            return;
+        }
+        Bits brandBits = null;
+        if (brand != null) {
+            brandBits = brands.get(brandKey(brand));
+            if (brandBits == null) {
+                return;
+            }
+        }
+        // Cars in the "certain" band are all within the ceiling. Cars in the "border" band,
+        // or above the top band, need their exact price checked.
+        boolean allPrices = maxPricePerDay == Double.POSITIVE_INFINITY;
+        boolean checkAboveTop = false;
+        Bits certainBits = null;
+        Bits borderBits = null;
+        if (!allPrices) {
+            if (maxPricePerDay >= BANDS * BAND_WIDTH) {
+                certainBits = bands[BANDS - 1];
+                checkAboveTop = true;
+            } else {
+                int certain = (int) Math.floor(maxPricePerDay / BAND_WIDTH) - 1;
+                certainBits = certain >= 0 ? bands[certain] : null;
+                if (certain < 0 || (certain + 1) * BAND_WIDTH < maxPricePerDay) {
+                    borderBits = bands[certain + 1];
+                }
+            }
+        }
+
+        int words = ((limit - 1) >>> 6) + 1;
+        for (int page = 0; page * PAGE_WORDS < words; page++) {
+            long[] availablePage = available.page(page);
+            long[] brandPage = null;
+            if (brandBits != null) {
+                // A brand's pages only reach its last car; past them it has no cars at all.
+                brandPage = brandBits.sparsePage(page);
+                if (brandPage == null) {
+                    break;
+                }
+            }
+            long[] certainPage = certainBits == null ? null : certainBits.page(page);
+            long[] borderPage = borderBits == null ? null : borderBits.page(page);
+            int end = Math.min(PAGE_WORDS, words - page * PAGE_WORDS);
+            for (int w = 0; w < end; w++) {
+                int wordIndex = page * PAGE_WORDS + w;
+                long candidates = availableOnly ? availablePage[w] : wordIndex == words - 1 ? -1L >>> -limit : -1L;
+                if (brandPage != null) {
+                    candidates &= brandPage[w];
+                }
+                long sure = allPrices ? candidates : certainPage == null ? 0 : candidates & certainPage[w];
+                long maybe = checkAboveTop ? candidates & ~sure
+                        : borderPage == null ? 0 : candidates & borderPage[w] & ~sure;
+                for (long bits = maybe; bits != 0; bits &= bits - 1) {
+                    int ordinal = (wordIndex << 6) + Long.numberOfTrailingZeros(bits);
+                    if (ordinal >= limit || fleet.priceAt(ordinal) > maxPricePerDay) {
+                        sure &= ~(1L << ordinal);
+                    } else {
+                        sure |= 1L << ordinal;
+                    }
+                }
+                if (sure != 0 && !sink.accept(sure, wordIndex)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable bitset made of fixed pages of words.
+     */
+    static final class Bits {
+        private volatile long[][] pages = new long[0][];
+
+        void ensure(int words) {
+            int needed = (words + PAGE_WORDS - 1) >>> PAGE_SHIFT;
+            long[][] current = pages;
+            if (needed > current.length) {
+                long[][] grown = Arrays.copyOf(current, needed);
+                for (int page = current.length; page < needed; page++) {
+                    grown[page] = new long[PAGE_WORDS];
+                }
+                pages = grown;
+            }
+        }
+
+        long[] page(int page) {
+            return pages[page];
+        }
+
+        /**
+         * Returns the given page, or null if it has not been allocated.
+         */
+        long[] sparsePage(int page) {
+            long[][] current = pages;
+            return page < current.length ? current[page] : null;
+        }
+
+        /**
+         * Returns the given word, or 0 if it lies past the pages allocated so far.
+         */
+        long word(int wordIndex) {
+            long[][] current = pages;
+            int page = wordIndex >>> PAGE_SHIFT;
+            if (page >= current.length || current[page] == null) {
+                return 0;
+            }
+            return current[page][wordIndex & (PAGE_WORDS - 1)];
+        }
+
+        /**
+         * Sets a bit, allocating only the page it falls in, for sets that are mostly empty.
+         * Called by a single writer at a time.
+         */
+        void setSparse(int ordinal) {
+            int page = ordinal >>> (PAGE_SHIFT + 6);
+            long[][] current = pages;
+            if (page >= current.length || current[page] == null) {
+                long[][] grown = Arrays.copyOf(current, Math.max(current.length, page + 1));
+                grown[page] = new long[PAGE_WORDS];
+                pages = grown;
+            }
+            set(ordinal, true);
+        }
+
+        /**
+         * Sets or clears a bit with a CAS. Returns true if it changed.
+         */
+        boolean set(int ordinal, boolean value) {
+            int word = ordinal >>> 6;
+            long[] page = pages[word >>> PAGE_SHIFT];
+            int index = word & (PAGE_WORDS - 1);
+            long bit = 1L << ordinal;
+            while (true) {
+                long current = (long) WORD.getVolatile(page, index);
+                long updated = value ? current | bit : current & ~bit;
+                if (current == updated) {
+                    return false;
+                }
+                if (WORD.compareAndSet(page, index, current, updated)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package carrental;
+
+/**
+ * Outcome of one item in a batch rent or return. When any item fails the whole batch is
+ * rolled back, and the items that were fine report that they were not applied.
+ */
+class BatchResult {
+    private final Car car;
+    private final boolean success;
+    private final String message;
+
+    BatchResult(Car car, boolean success, String message) {
+        this.car = car;
+        this.success = success;
+        this.message = message;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
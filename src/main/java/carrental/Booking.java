@@ -0,0 +1,22 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * Anything that holds a car for a range of days: an active rental or a future reservation.
+ */
+interface Booking {
+    Car getCar();
+
+    Customer getCustomer();
+
+    /**
+     * First day the car is held.
+     */
+    LocalDate getStartDate();
+
+    /**
+     * Day after the last day the car is held.
+     */
+    LocalDate getEndDate();
+}
@@ -0,0 +1,43 @@
+package carrental;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * The reservations of one car, ordered by start date. Bookings never overlap, so their end dates
+ * are ordered too, and the only booking that can clash with a range is the last one starting
+ * before the range ends. That makes overlap checks a single O(log n) tree lookup.
+ *
+ * <p>Not thread-safe; {@link CarRentalSystem} only touches a calendar under the car's lock.
+ */
+class BookingCalendar {
+    private final TreeMap<LocalDate, Booking> byStart = new TreeMap<>();
+
+    boolean isFree(LocalDate start, LocalDate end) {
+        Map.Entry<LocalDate, Booking> before = byStart.lowerEntry(end);
+        return before == null || !before.getValue().getEndDate().isAfter(start);
+    }
+
+    /**
+     * Adds the booking unless it overlaps an existing one.
+     */
+    boolean add(Booking booking) {
+        if (!isFree(booking.getStartDate(), booking.getEndDate())) {
+            return false;
+        }
+        byStart.put(booking.getStartDate(), booking);
+        return true;
+    }
+
+    boolean remove(Booking booking) {
+        return byStart.remove(booking.getStartDate(), booking);
+    }
+
+    boolean isEmpty() {
+        return byStart.isEmpty();
+    }
+
+    List<Booking> bookings() {
+        return new ArrayList<>(byStart.values());
+    }
+}
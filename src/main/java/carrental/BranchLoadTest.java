@@ -0,0 +1,111 @@
+package carrental;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how rent-and-return throughput grows with the number of branches in a
+ * {@link BranchNetwork}. The same fleet is split evenly across each number of branches, and
+ * every thread rents and returns random cars of its own through the router for a fixed time.
+ * Also times fleet-wide counts and searches. With {@code --journal on} each branch keeps its
+ * own journal in a temporary folder, as a deployment would.
+ *
+ * <pre>
+ * java -cp target/classes carrental.BranchLoadTest [--branches 1,2,4,8] [--cars 100000] [--threads 8] [--time ms] [--journal on|off]
+ * </pre>
+ */
+class BranchLoadTest {
+    public static void main(String[] args) throws Exception {
+        int[] branchCounts = {1, 2, 4, 8};
+        int cars = 100_000;
+        int threads = 8;
+        long timeMillis = 3_000;
+        boolean journaled = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--branches":
+                    branchCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--cars":
+                    cars = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    timeMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--journal":
+                    journaled = "on".equals(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        String[] carIds = new String[cars];
+        for (int i = 0; i < cars; i++) {
+            carIds[i] = String.format("ID_%07d", i);
+        }
+        for (int branchCount : branchCounts) {
+            BranchNetwork network = new BranchNetwork();
+            List<RentalJournal> journals = new ArrayList<>();
+            for (int b = 0; b < branchCount; b++) {
+                CarRentalSystem system = network.addBranch("B" + b);
+                if (journaled) {
+                    journals.add(RentalJournal.open(Files.createTempDirectory("rental-branch"), system));
+                }
+            }
+            for (int i = 0; i < cars; i++) {
+                network.addCar("B" + i % branchCount, new Car(carIds[i], i % 2 == 0 ? "BMW" : "AUDI", "Model", 400.0 + i % 23 * 100));
+            }
+
+            run(network, carIds, threads, Math.min(1_000, timeMillis / 3));
+            long[] done = run(network, carIds, threads, timeMillis);
+            long queryNanos = 0;
+            for (int i = 0; i < 200; i++) {
+                long begin = System.nanoTime();
+                network.countAvailableCars("BMW", 1500.0);
+                network.searchAvailableCars("bmw mod", 20);
+                queryNanos += System.nanoTime() - begin;
+            }
+            for (RentalJournal journal : journals) {
+                journal.close();
+            }
+            System.out.printf("%d branch%s: %.0f rents+returns/s, count+search across branches %.1f us%n",
+                    branchCount, branchCount == 1 ? "" : "es", done[0] * 1e9 / done[1], queryNanos / 200 / 1e3);
+        }
+    }
+
+    // Returns the rent-and-return pairs completed and the nanoseconds taken.
+    private static long[] run(BranchNetwork network, String[] carIds, int threads, long timeMillis)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long[] counts = new long[threads];
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(timeMillis);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                int slice = Math.max(1, carIds.length / threads);
+                long n = 0;
+                while ((n & 63) != 0 || System.nanoTime() < deadline) {
+                    String carId = carIds[(thread * slice + ThreadLocalRandom.current().nextInt(slice)) % carIds.length];
+                    if (network.rentCar(carId, "Load Test", "", 3)) {
+                        network.returnCar(carId);
+                        n++;
+                    }
+                }
+                counts[thread] = n;
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[] {Arrays.stream(counts).sum(), System.nanoTime() - started};
+    }
+}
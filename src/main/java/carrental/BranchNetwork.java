@@ -0,0 +1,306 @@
+package carrental;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Several branches behind one router. Each branch is a {@link CarRentalSystem} of its own, with
+ * its own fleet, indexes, locks and journal, so rentals at different branches never contend.
+ * A directory maps every car ID to the branch holding the car, and rents and returns go
+ * straight to that branch. Fleet-wide availability queries ask all branches at once on a
+ * fork/join pool and merge the answers in branch order.
+ *
+ * <p>A car moves with {@link #transferCar}: it is withdrawn at its old branch, then added to, or
+ * reinstated at, the new one. While on the way it cannot be rented anywhere. The old branch
+ * journals the new one's name with the withdrawal, and journals the arrival once the new branch
+ * has durably taken the car. If a crash falls in between, adding both branches back to a network
+ * finishes the transfer. Customers are registered at the branch they rent from.
+ */
+class BranchNetwork {
+    // Below this many cars in all, asking the branches one after another beats forking tasks.
+    private static final int PARALLEL_THRESHOLD = 50_000;
+
+    private final Map<String, CarRentalSystem> branches = new ConcurrentHashMap<>();
+    private final List<String> branchNames = new CopyOnWriteArrayList<>();
+    // Car ID key to the name of the branch holding the car.
+    private final Map<String, String> directory = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool;
+
+    BranchNetwork() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    BranchNetwork(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Opens a branch with an empty system of its own.
+     */
+    public CarRentalSystem addBranch(String name) {
+        return addBranch(name, new CarRentalSystem());
+    }
+
+    /**
+     * Opens a branch backed by the given system, for example one restored from its own journal.
+     * The cars it holds, other than withdrawn ones, are entered in the directory. Transfers
+     * between this branch and one already open that a crash cut short are finished.
+     */
+    public synchronized CarRentalSystem addBranch(String name, CarRentalSystem system) {
+        if (branches.containsKey(name)) {
+            throw new IllegalArgumentException("Branch already exists: " + name);
+        }
+        List<String> keys = new ArrayList<>();
+        for (Car car : system.getAllCars()) {
+            if (!system.isWithdrawn(car)) {
+                String key = FleetStore.idKey(car.getCarId());
+                if (directory.containsKey(key)) {
+                    throw new IllegalArgumentException("Car " + car.getCarId() + " is already at branch " + directory.get(key));
+                }
+                keys.add(key);
+            }
+        }
+        for (String key : keys) {
+            directory.put(key, name);
+        }
+        // Before the branch is open, so that no transfer of these cars can be under way.
+        system.getTransfers().forEach((car, to) -> {
+            if (branches.containsKey(to)) {
+                finishTransfer(system, car, to, branches.get(to));
+            }
+        });
+        for (String from : branchNames) {
+            CarRentalSystem source = branches.get(from);
+            source.getTransfers().forEach((car, to) -> {
+                if (to.equals(name)) {
+                    finishTransfer(source, car, name, system);
+                }
+            });
+        }
+        branches.put(name, system);
+        branchNames.add(name);
+        return system;
+    }
+
+    public CarRentalSystem getBranch(String name) {
+        return branches.get(name);
+    }
+
+    /**
+     * Branch names in the order the branches were opened.
+     */
+    public List<String> getBranchNames() {
+        return Collections.unmodifiableList(branchNames);
+    }
+
+    /**
+     * Returns the name of the branch holding the car, or null if no branch has it.
+     */
+    public String branchOf(String carId) {
+        return directory.get(FleetStore.idKey(carId));
+    }
+
+    private CarRentalSystem owner(String carId) {
+        String branch = branchOf(carId);
+        return branch == null ? null : branches.get(branch);
+    }
+
+    /**
+     * Adds the car to the named branch. Returns false if there is no such branch or a car with
+     * the same ID is already in the network.
+     */
+    public boolean addCar(String branch, Car car) {
+        CarRentalSystem system;
+        // Under the lock addBranch holds while it checks and enters its cars.
+        synchronized (this) {
+            system = branches.get(branch);
+            if (system == null || directory.putIfAbsent(FleetStore.idKey(car.getCarId()), branch) != null) {
+                return false;
+            }
+        }
+        arrive(system, car);
+        return true;
+    }
+
+    // A car the branch has held before is put back into service rather than added again. Doing
+    // it twice, as when finishing a transfer that had arrived before a crash, does no harm.
+    private static void arrive(CarRentalSystem system, Car car) {
+        Car known = system.findCarById(car.getCarId());
+        if (known != null) {
+            system.reinstateCar(known);
+        } else {
+            system.addCar(new Car(car.getCarId(), car.getBrand(), car.getModel(), car.getBasePricePerDay()));
+        }
+    }
+
+    public int getCarCount() {
+        return directory.size();
+    }
+
+    public Car findCarById(String carId) {
+        CarRentalSystem system = owner(carId);
+        return system == null ? null : system.findCarById(carId);
+    }
+
+    public Car findAvailableCarById(String carId) {
+        CarRentalSystem system = owner(carId);
+        return system == null ? null : system.findAvailableCarById(carId);
+    }
+
+    /**
+     * Rents the car at the branch holding it, registering the customer there.
+     */
+    public boolean rentCar(String carId, String customerName, String contact, int days) {
+        CarRentalSystem system = owner(carId);
+        Car car = system == null ? null : system.findAvailableCarById(carId);
+        if (car == null) {
+            return false;
+        }
+        return system.rentCar(car, system.registerCustomer(customerName, contact), days);
+    }
+
+    public boolean returnCar(String carId) {
+        CarRentalSystem system = owner(carId);
+        Car car = system == null ? null : system.findRentedCarById(carId);
+        return car != null && system.returnCar(car);
+    }
+
+    /**
+     * Moves an available car to another branch. Fails, leaving the car where it was, if it is
+     * out, reserved, already on the move, or already at that branch.
+     */
+    public boolean transferCar(String carId, String toBranch) {
+        String key = FleetStore.idKey(carId);
+        String from = directory.get(key);
+        CarRentalSystem target = branches.get(toBranch);
+        if (from == null || target == null || from.equals(toBranch)) {
+            return false;
+        }
+        CarRentalSystem source = branches.get(from);
+        Car car = source.findCarById(carId);
+        // Of several transfers of the same car, only one gets past the withdrawal.
+        if (car == null || !source.withdrawCar(car, toBranch)) {
+            return false;
+        }
+        arrive(target, car);
+        directory.put(key, toBranch);
+        source.transferArrived(car);
+        return true;
+    }
+
+    // Called under the lock, for a car withdrawn at source on its way to target. Left pending if
+    // the directory already places the car at some third branch.
+    private void finishTransfer(CarRentalSystem source, Car car, String to, CarRentalSystem target) {
+        String key = FleetStore.idKey(car.getCarId());
+        String holder = directory.get(key);
+        if (holder != null && !holder.equals(to)) {
+            return;
+        }
+        arrive(target, car);
+        directory.put(key, to);
+        source.transferArrived(car);
+    }
+
+    public int getAvailableCarCount() {
+        int total = 0;
+        for (int count : fanOut(CarRentalSystem::getAvailableCarCount)) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Counts available cars of the given brand (any brand if null) costing at most
+     * {@code maxPricePerDay} a day, at all branches.
+     */
+    public int countAvailableCars(String brand, double maxPricePerDay) {
+        int total = 0;
+        for (int count : fanOut(system -> system.countAvailableCars(brand, maxPricePerDay))) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns up to {@code limit} available cars of the given brand (any brand if null) costing
+     * at most {@code maxPricePerDay} a day, branch by branch.
+     */
+    public List<Car> findAvailableCars(String brand, double maxPricePerDay, int limit) {
+        return merge(fanOut(system -> system.findAvailableCars(brand, maxPricePerDay, limit)), limit);
+    }
+
+    /**
+     * Returns up to {@code limit} available cars matching what someone typed, branch by branch.
+     * See {@link CarRentalSystem#searchAvailableCars}.
+     */
+    public List<Car> searchAvailableCars(String query, int limit) {
+        return merge(fanOut(system -> system.searchAvailableCars(query, limit)), limit);
+    }
+
+    /**
+     * Each branch's rollups, in branch order. Each is consistent in itself; the branches are
+     * read one after another.
+     */
+    public Map<String, RollupSnapshot> getRollupsByBranch() {
+        List<String> names = new ArrayList<>(branchNames);
+        List<RollupSnapshot> snapshots = fanOut(CarRentalSystem::getRollups);
+        Map<String, RollupSnapshot> byBranch = new LinkedHashMap<>();
+        // Branches are only ever added, so the names line up with the first answers.
+        for (int i = 0; i < names.size(); i++) {
+            byBranch.put(names.get(i), snapshots.get(i));
+        }
+        return byBranch;
+    }
+
+    /**
+     * The rollups of all branches added together.
+     */
+    public RollupSnapshot getRollups() {
+        return RollupSnapshot.combine(fanOut(CarRentalSystem::getRollups));
+    }
+
+    private static List<Car> merge(List<List<Car>> answers, int limit) {
+        List<Car> merged = new ArrayList<>();
+        for (List<Car> answer : answers) {
+            for (Car car : answer) {
+                if (merged.size() == limit) {
+                    return merged;
+                }
+                merged.add(car);
+            }
+        }
+        return merged;
+    }
+
+    // Asks every branch, in parallel when the network is big enough, and returns the answers in branch order.
+    private <T> List<T> fanOut(Function<CarRentalSystem, T> query) {
+        List<CarRentalSystem> systems = new ArrayList<>(branchNames.size());
+        int cars = 0;
+        for (String name : branchNames) {
+            CarRentalSystem system = branches.get(name);
+            systems.add(system);
+            cars += system.getCarCount();
+        }
+        List<T> answers = new ArrayList<>(systems.size());
+        if (systems.size() < 2 || cars < PARALLEL_THRESHOLD) {
+            for (CarRentalSystem system : systems) {
+                answers.add(query.apply(system));
+            }
+            return answers;
+        }
+        // The caller answers for the first branch itself while the pool handles the rest.
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(systems.size() - 1);
+        for (CarRentalSystem system : systems.subList(1, systems.size())) {
+            tasks.add(pool.submit(() -> query.apply(system)));
+        }
+        answers.add(query.apply(systems.get(0)));
+        for (ForkJoinTask<T> task : tasks) {
+            answers.add(task.join());
+        }
+        return answers;
+    }
+}
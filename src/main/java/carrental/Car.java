@@ -0,0 +1,100 @@
+package carrental;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Represents a car available for rent.
+ */
+class Car {
+    private static volatile PricingEngine pricing = PricingEngine.FLAT;
+
+    private String carId;
+    private String brand;
+    private String model;
+    private double basePricePerDay;
+    private volatile boolean isAvailable;
+    private int ordinal = -1;
+
+    public Car(String carId, String brand, String model, double basePricePerDay) {
+        this.carId = carId;
+        this.brand = brand;
+        this.model = model;
+        this.basePricePerDay = basePricePerDay;
+        this.isAvailable = true;
+    }
+
+    public String getCarId() {
+        return carId;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public double getBasePricePerDay() {
+        return basePricePerDay;
+    }
+
+    /**
+     * Base price per day in minor currency units (cents).
+     */
+    public long getBasePriceMinor() {
+        return Math.round(basePricePerDay * 100);
+    }
+
+    public double calculatePrice(int rentalDays) {
+        return pricing.quote(this, rentalDays) / 100.0;
+    }
+
+    /**
+     * Price, in minor currency units, of renting this car for the given number of days from
+     * {@code startDate}.
+     */
+    public long quote(LocalDate startDate, int rentalDays) {
+        return pricing.quote(this, startDate, rentalDays);
+    }
+
+    static PricingEngine getPricingEngine() {
+        return pricing;
+    }
+
+    /**
+     * Sets the engine every car is priced with.
+     */
+    static void setPricingEngine(PricingEngine engine) {
+        pricing = Objects.requireNonNull(engine);
+    }
+
+    public boolean isAvailable() {
+        return isAvailable;
+    }
+
+    /**
+     * Position of this car in its rental system's fleet, or -1 if it has not been added yet.
+     */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    public void rent() {
+        isAvailable = false;
+    }
+
+    public void returnCar() {
+        isAvailable = true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s %s) - %s", carId, brand, model, (isAvailable() ? "Available" : "Rented"));
+    }
+}
@@ -0,0 +1,858 @@
+package carrental;
+
+import javax.management.JMException;
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * GUI for Car Rental System using Swing.
+ */
+public class CarRentalGUI extends JFrame {
+    private CarRentalSystem rentalSystem;
+    private RentalJournal journal;
+    private RentalHistory history;
+    private RentalService rentalService;
+    private RentalHttpServer httpServer;
+    private EdtLatencyProbe edtProbe;
+
+    private LogArea outputArea;
+    private CarTableModel inventoryModel;
+    private JTable inventoryTable;
+    private JTextField brandFilterField;
+    private JTextField priceFilterField;
+    private JTextField customerNameField;
+    private JTextField contactField;
+    private JTextField carIdField;
+    private JTextField rentalDaysField;
+    private JPopupMenu carSuggestionPopup;
+    private JList<String> carSuggestionList;
+    private List<Car> suggestedCars = Collections.emptyList();
+    private boolean acceptingSuggestion;
+
+    private JButton rentButton;
+    private JButton returnButton;
+    private JButton showCarsButton;
+
+    private static final Font LABEL_FONT = new Font("Segoe UI", Font.BOLD, 14);
+    private static final Font INPUT_FONT = new Font("Segoe UI", Font.PLAIN, 14);
+    private static final Font OUTPUT_FONT = new Font("Consolas", Font.PLAIN, 14);
+
+    private static final Color LIGHT_BG = Color.WHITE;
+    private static final Color LIGHT_FG = new Color(40, 40, 40);
+    private static final Color LIGHT_BUTTON_BG = new Color(33, 150, 243);
+    private static final Color LIGHT_BUTTON_FG = Color.WHITE;
+    private static final Color LIGHT_BUTTON_RETURN_BG = new Color(76, 175, 80);
+    private static final Color LIGHT_BUTTON_SHOW_BG = new Color(158, 158, 158);
+
+    private static final Color DARK_BG = new Color(34, 34, 34);
+    private static final Color DARK_FG = new Color(230, 230, 230);
+    private static final Color DARK_BUTTON_BG = new Color(10, 132, 255);
+    private static final Color DARK_BUTTON_FG = Color.WHITE;
+    private static final Color DARK_BUTTON_RETURN_BG = new Color(48, 209, 88);
+    private static final Color DARK_BUTTON_SHOW_BG = new Color(100, 100, 100);
+
+    private static final int CAR_SUGGESTIONS = 8;
+
+    private boolean isDarkMode = false;
+
+    public CarRentalGUI() {
+        loadPricingRules();
+        rentalSystem = createRentalSystem();
+        initializeCars();
+        installMetrics();
+        rentalService = new RentalService(rentalSystem);
+        initializeUI();
+        startHttpServer();
+        startEdtProbe();
+        importFleet();
+    }
+
+    // With -Drental.importFile=cars.csv (or a binary .fleet file), loads that fleet in the background.
+    private void importFleet() {
+        String file = System.getProperty("rental.importFile");
+        if (file == null) {
+            return;
+        }
+        appendOutput("Importing cars from " + file + "...\n");
+        rentalService.importFleet(Paths.get(file)).whenComplete((result, failure) -> SwingUtilities.invokeLater(() -> {
+            if (failure != null) {
+                appendOutput("Import failed: " + failure.getCause().getMessage() + "\n");
+                return;
+            }
+            appendOutput("Import done: " + result + ".\n");
+            for (String error : result.getErrors()) {
+                appendOutput("  " + error + "\n");
+            }
+        }));
+    }
+
+    // Once the journal is replayed: the metrics show in jconsole, and at GET /metrics with the HTTP API.
+    private void installMetrics() {
+        try {
+            rentalSystem.getMetrics().install();
+        } catch (JMException e) {
+            System.err.println("Could not register rental metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    // With -Drental.httpPort=N, kiosks and partners can use this rental system over HTTP too.
+    private void startHttpServer() {
+        String port = System.getProperty("rental.httpPort");
+        if (port == null) {
+            return;
+        }
+        try {
+            httpServer = RentalHttpServer.start(rentalSystem, Integer.parseInt(port));
+            appendOutput("HTTP API listening on port " + httpServer.getPort() + ".\n");
+        } catch (IOException e) {
+            System.err.println("Could not start HTTP API on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    // With -Drental.edtStallMillis=N, reports every time the event loop is held up for N ms or more.
+    private void startEdtProbe() {
+        String stallMillis = System.getProperty("rental.edtStallMillis");
+        if (stallMillis != null) {
+            edtProbe = new EdtLatencyProbe(10, Long.parseLong(stallMillis), System.err::println).start();
+        }
+    }
+
+    private static void loadPricingRules() {
+        String rulesFile = System.getProperty("rental.pricingRules");
+        if (rulesFile == null) {
+            return;
+        }
+        try {
+            Car.setPricingEngine(PricingRules.load(Paths.get(rulesFile)).compile());
+        } catch (IOException e) {
+            System.err.println("Could not load pricing rules from " + rulesFile + ", using base prices: " + e.getMessage());
+        }
+    }
+
+    // -Drental.eventRing=N and -Drental.eventBackPressure=block|drop size the rental event ring and
+    // choose whether rentals wait for slow subscribers or the subscribers miss events.
+    private static CarRentalSystem createRentalSystem() {
+        RentalEventBus events = new RentalEventBus(
+                Integer.getInteger("rental.eventRing", RentalEventBus.DEFAULT_CAPACITY),
+                RentalEventBus.BackPressure.valueOf(
+                        System.getProperty("rental.eventBackPressure", "block").toUpperCase(Locale.ROOT)));
+        String columnarDir = System.getProperty("rental.columnarDir");
+        if (columnarDir != null) {
+            try {
+                return new CarRentalSystem(ColumnarFleetStore.open(Paths.get(columnarDir)), events);
+            } catch (IOException e) {
+                System.err.println("Could not open columnar fleet store in " + columnarDir + ": " + e.getMessage());
+            }
+        }
+        return new CarRentalSystem(new HeapFleetStore(), events);
+    }
+
+    private void initializeCars() {
+        Path dataDir = Paths.get(System.getProperty("rental.dataDir", "rental-data"));
+        try {
+            journal = RentalJournal.open(dataDir, rentalSystem);
+        } catch (IOException e) {
+            System.err.println("Could not open rental journal in " + dataDir + ", running in memory: " + e.getMessage());
+        }
+        try {
+            history = RentalHistory.open(dataDir.resolve("history"), rentalSystem);
+        } catch (IOException e) {
+            System.err.println("Could not open rental history in " + dataDir + ": " + e.getMessage());
+        }
+        if (!rentalSystem.getAllCars().isEmpty() || System.getProperty("rental.importFile") != null) {
+            return;
+        }
+        rentalSystem.addCar(new Car("ID_001", "BMW", "BMW X3", 2600.0));
+        rentalSystem.addCar(new Car("ID_002", "AUDI", "AUDI Q3", 2400.0));
+        rentalSystem.addCar(new Car("ID_003", "Mahindra", "Thar", 1200.0));
+        rentalSystem.addCar(new Car("ID_004", "Suzuki", "Brezza", 450.0));
+        rentalSystem.addCar(new Car("ID_005", "Hyundai", "I 10", 600.0));
+    }
+
+    private void initializeUI() {
+        setTitle("Car Rental System");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (edtProbe != null) {
+                    edtProbe.close();
+                    System.err.println(edtProbe.summary());
+                }
+                if (httpServer != null) {
+                    httpServer.close();
+                }
+                rentalService.close();
+                rentalSystem.getMetrics().close();
+                inventoryModel.close();
+                outputArea.closeSpill();
+                closeHistory();
+                closeJournal();
+            }
+        });
+        setSize(700, 780);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout(15, 15));
+        getContentPane().setBackground(LIGHT_BG);
+
+        outputArea = new LogArea(Integer.getInteger("rental.logLines", 5_000));
+        String logFile = System.getProperty("rental.logFile");
+        if (logFile != null) {
+            try {
+                outputArea.spillTo(Paths.get(logFile), 10L << 20, 5);
+            } catch (IOException e) {
+                System.err.println("Could not open log file " + logFile + ": " + e.getMessage());
+            }
+        }
+        outputArea.setEditable(false);
+        outputArea.setFont(OUTPUT_FONT);
+        outputArea.setMargin(new Insets(10,10,10,10));
+        outputArea.setLineWrap(true);
+        outputArea.setWrapStyleWord(true);
+        outputArea.setBackground(new Color(250,250,250));
+        outputArea.setForeground(LIGHT_FG);
+
+        JScrollPane outputScrollPane = new JScrollPane(outputArea);
+        outputScrollPane.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(Color.LIGHT_GRAY,1,true),
+                "System Output",
+                javax.swing.border.TitledBorder.LEFT,
+                javax.swing.border.TitledBorder.TOP,
+                LABEL_FONT,
+                new Color(75,75,75)
+        ));
+        outputScrollPane.setPreferredSize(new Dimension(680, 180));
+
+        JSplitPane centerPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, createInventoryPanel(), outputScrollPane);
+        centerPane.setResizeWeight(0.6);
+        centerPane.setBorder(null);
+        add(centerPane, BorderLayout.CENTER);
+
+        JPanel inputPanel = new JPanel(new GridBagLayout());
+        inputPanel.setBackground(LIGHT_BG);
+        inputPanel.setBorder(new CompoundBorder(
+                BorderFactory.createTitledBorder(
+                        BorderFactory.createLineBorder(new Color(200, 200, 200), 1, true),
+                        "Rental Controls",
+                        javax.swing.border.TitledBorder.LEFT,
+                        javax.swing.border.TitledBorder.TOP,
+                        LABEL_FONT,
+                        new Color(60, 60, 60)
+                ),
+                new EmptyBorder(15, 15, 15, 15)
+        ));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(12, 12, 12, 12);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.weightx = 0.3;
+        JLabel customerNameLabel = new JLabel("Customer Name:");
+        customerNameLabel.setFont(LABEL_FONT);
+        customerNameLabel.setForeground(LIGHT_FG);
+        inputPanel.add(customerNameLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 0.7;
+        customerNameField = new JTextField();
+        customerNameField.setFont(INPUT_FONT);
+        customerNameField.setToolTipText("Enter the full name of the customer");
+        inputPanel.add(customerNameField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.weightx = 0.3;
+        JLabel contactLabel = new JLabel("Phone/E-mail:");
+        contactLabel.setFont(LABEL_FONT);
+        contactLabel.setForeground(LIGHT_FG);
+        inputPanel.add(contactLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 0.7;
+        contactField = new JTextField();
+        contactField.setFont(INPUT_FONT);
+        contactField.setToolTipText("Optional; tells apart customers with the same name");
+        inputPanel.add(contactField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.weightx = 0.3;
+        JLabel carIdLabel = new JLabel("Car ID:");
+        carIdLabel.setFont(LABEL_FONT);
+        carIdLabel.setForeground(LIGHT_FG);
+        inputPanel.add(carIdLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 0.7;
+        carIdField = new JTextField();
+        carIdField.setFont(INPUT_FONT);
+        carIdField.setToolTipText("Enter the ID of the car to rent/return, or type a brand or model to pick one");
+        inputPanel.add(carIdField, gbc);
+        installCarTypeAhead();
+
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.weightx = 0.3;
+        JLabel rentalDaysLabel = new JLabel("Rental Days:");
+        rentalDaysLabel.setFont(LABEL_FONT);
+        rentalDaysLabel.setForeground(LIGHT_FG);
+        inputPanel.add(rentalDaysLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 0.7;
+        rentalDaysField = new JTextField();
+        rentalDaysField.setFont(INPUT_FONT);
+        rentalDaysField.setToolTipText("Enter number of days to rent");
+        inputPanel.add(rentalDaysField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.gridwidth = 2;
+        gbc.weightx = 1.0;
+        gbc.anchor = GridBagConstraints.CENTER;
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 5));
+        buttonPanel.setBackground(LIGHT_BG);
+
+        rentButton = new JButton("Rent Car");
+        rentButton.setFont(LABEL_FONT);
+        rentButton.setFocusPainted(false);
+        rentButton.setBorder(new RoundedBorder(10));
+        rentButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        rentButton.setToolTipText("Rent the car to the customer");
+        rentButton.addActionListener(e -> handleRentCar());
+
+        returnButton = new JButton("Return Car");
+        returnButton.setFont(LABEL_FONT);
+        returnButton.setFocusPainted(false);
+        returnButton.setBorder(new RoundedBorder(10));
+        returnButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        returnButton.setToolTipText("Return the rented car");
+        returnButton.addActionListener(e -> handleReturnCar());
+
+        showCarsButton = new JButton("Show All Cars");
+        showCarsButton.setFont(LABEL_FONT);
+        showCarsButton.setFocusPainted(false);
+        showCarsButton.setBorder(new RoundedBorder(10));
+        showCarsButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        showCarsButton.setToolTipText("Display all cars and availability");
+        showCarsButton.addActionListener(e -> displayAllCars());
+
+        buttonPanel.add(rentButton);
+        buttonPanel.add(returnButton);
+        buttonPanel.add(showCarsButton);
+
+        inputPanel.add(buttonPanel, gbc);
+
+        add(inputPanel, BorderLayout.SOUTH);
+
+        // Add toggle theme button to top right corner
+        JButton toggleThemeButton = new JButton("Toggle Dark Mode");
+        toggleThemeButton.setFont(INPUT_FONT);
+        toggleThemeButton.setBackground(new Color(238, 238, 238));
+        toggleThemeButton.setFocusPainted(false);
+        toggleThemeButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        toggleThemeButton.setBorder(new RoundedBorder(8));
+        toggleThemeButton.addActionListener(e -> toggleTheme());
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 10));
+        topPanel.setBackground(LIGHT_BG);
+        topPanel.add(toggleThemeButton);
+        add(topPanel, BorderLayout.NORTH);
+
+        appendOutput("Welcome to the Car Rental System!\n");
+        appendOutput("Enter the details above, then press Rent or Return.\n");
+        appendOutput("Pick a car from the inventory, or use 'Show All Cars' to clear the filters.\n");
+
+        // Apply initial theme (light)
+        applyTheme();
+    }
+
+    private JPanel createInventoryPanel() {
+        inventoryModel = new CarTableModel(rentalSystem);
+        inventoryTable = new JTable(inventoryModel);
+        inventoryTable.setFont(INPUT_FONT);
+        inventoryTable.setRowHeight(22);
+        inventoryTable.setAutoCreateRowSorter(true);
+        inventoryTable.setFillsViewportHeight(true);
+        inventoryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        inventoryTable.getSelectionModel().addListSelectionListener(e -> {
+            int row = inventoryTable.getSelectedRow();
+            if (!e.getValueIsAdjusting() && row >= 0) {
+                carIdField.setText(inventoryModel.getCarAt(inventoryTable.convertRowIndexToModel(row)).getCarId());
+            }
+        });
+
+        brandFilterField = new JTextField(10);
+        brandFilterField.setFont(INPUT_FONT);
+        brandFilterField.setToolTipText("Show only cars of this brand");
+        priceFilterField = new JTextField(8);
+        priceFilterField.setFont(INPUT_FONT);
+        priceFilterField.setToolTipText("Show only cars costing at most this much per day");
+        DocumentListener filterListener = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyInventoryFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyInventoryFilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyInventoryFilter();
+            }
+        };
+        brandFilterField.getDocument().addDocumentListener(filterListener);
+        priceFilterField.getDocument().addDocumentListener(filterListener);
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        filterPanel.setOpaque(false);
+        JLabel brandLabel = new JLabel("Brand:");
+        brandLabel.setFont(INPUT_FONT);
+        filterPanel.add(brandLabel);
+        filterPanel.add(brandFilterField);
+        JLabel priceLabel = new JLabel("Max Price/Day:");
+        priceLabel.setFont(INPUT_FONT);
+        filterPanel.add(priceLabel);
+        filterPanel.add(priceFilterField);
+
+        JPanel inventoryPanel = new JPanel(new BorderLayout());
+        inventoryPanel.setOpaque(false);
+        inventoryPanel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1, true),
+                "Cars Inventory",
+                javax.swing.border.TitledBorder.LEFT,
+                javax.swing.border.TitledBorder.TOP,
+                LABEL_FONT,
+                new Color(75, 75, 75)
+        ));
+        inventoryPanel.add(filterPanel, BorderLayout.NORTH);
+        inventoryPanel.add(new JScrollPane(inventoryTable), BorderLayout.CENTER);
+        return inventoryPanel;
+    }
+
+    // Suggests available cars as the car ID field is typed in, by ID, brand or model ("aud q").
+    private void installCarTypeAhead() {
+        carSuggestionList = new JList<>();
+        carSuggestionList.setFont(INPUT_FONT);
+        carSuggestionList.setFocusable(false);
+        carSuggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        carSuggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = carSuggestionList.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    acceptCarSuggestion(index);
+                }
+            }
+        });
+        carSuggestionPopup = new JPopupMenu();
+        carSuggestionPopup.setFocusable(false);
+        carSuggestionPopup.add(carSuggestionList);
+
+        carIdField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                updateCarSuggestions();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                updateCarSuggestions();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                updateCarSuggestions();
+            }
+        });
+        carIdField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!carSuggestionPopup.isVisible()) {
+                    return;
+                }
+                int selected = carSuggestionList.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        carSuggestionList.setSelectedIndex(Math.min(selected + 1, suggestedCars.size() - 1));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        carSuggestionList.setSelectedIndex(Math.max(selected - 1, 0));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (selected >= 0) {
+                            acceptCarSuggestion(selected);
+                            e.consume();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        carSuggestionPopup.setVisible(false);
+                        e.consume();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+        carIdField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                carSuggestionPopup.setVisible(false);
+            }
+        });
+    }
+
+    // The search takes microseconds even on a large fleet, so it runs right here on the EDT.
+    private void updateCarSuggestions() {
+        String typed = carIdField.getText().trim();
+        if (acceptingSuggestion || typed.isEmpty() || !carIdField.isFocusOwner()) {
+            carSuggestionPopup.setVisible(false);
+            return;
+        }
+        suggestedCars = rentalSystem.searchAvailableCars(typed, CAR_SUGGESTIONS);
+        if (suggestedCars.isEmpty()
+                || suggestedCars.size() == 1 && suggestedCars.get(0).getCarId().equalsIgnoreCase(typed)) {
+            carSuggestionPopup.setVisible(false);
+            return;
+        }
+        String[] labels = new String[suggestedCars.size()];
+        for (int i = 0; i < labels.length; i++) {
+            Car car = suggestedCars.get(i);
+            labels[i] = car.getCarId() + " - " + car.getBrand() + " " + car.getModel();
+        }
+        carSuggestionList.setListData(labels);
+        carSuggestionList.setVisibleRowCount(labels.length);
+        carSuggestionPopup.setPopupSize(Math.max(carIdField.getWidth(), carSuggestionList.getPreferredSize().width),
+                carSuggestionList.getPreferredSize().height + 4);
+        if (carSuggestionPopup.isVisible()) {
+            carSuggestionPopup.pack();
+        } else {
+            carSuggestionPopup.show(carIdField, 0, carIdField.getHeight());
+        }
+    }
+
+    private void acceptCarSuggestion(int index) {
+        acceptingSuggestion = true;
+        try {
+            carIdField.setText(suggestedCars.get(index).getCarId());
+        } finally {
+            acceptingSuggestion = false;
+        }
+        carSuggestionPopup.setVisible(false);
+    }
+
+    private void applyInventoryFilter() {
+        String brand = brandFilterField.getText().trim();
+        String maxPrice = priceFilterField.getText().trim();
+        double maxPricePerDay = Double.POSITIVE_INFINITY;
+        if (!maxPrice.isEmpty()) {
+            try {
+                maxPricePerDay = Double.parseDouble(maxPrice);
+            } catch (NumberFormatException e) {
+                return;
+            }
+        }
+        inventoryModel.setFilter(brand.isEmpty() ? null : brand, maxPricePerDay);
+    }
+
+    private void applyTheme() {
+        Color bg = isDarkMode ? DARK_BG : LIGHT_BG;
+        Color fg = isDarkMode ? DARK_FG : LIGHT_FG;
+        Color outputBg = isDarkMode ? new Color(45, 45, 45) : new Color(250, 250, 250);
+
+        getContentPane().setBackground(bg);
+
+        outputArea.setBackground(outputBg);
+        outputArea.setForeground(fg);
+        inventoryTable.setBackground(outputBg);
+        inventoryTable.setForeground(fg);
+
+        // Update label colors in input panel
+        for (Component comp : ((JPanel)getContentPane().getComponent(1)).getComponents()) {
+            if (comp instanceof JPanel) {
+                for (Component innerComp : ((JPanel) comp).getComponents()) {
+                    if (innerComp instanceof JLabel) {
+                        innerComp.setForeground(fg);
+                    }
+                    if (innerComp instanceof JTextField) {
+                        innerComp.setBackground(isDarkMode ? new Color(60, 60, 60) : Color.WHITE);
+                        innerComp.setForeground(fg);
+                        ((JTextField)innerComp).setCaretColor(fg);
+                    }
+                }
+            }
+        }
+
+        // Update buttons colors
+        if (isDarkMode) {
+            rentButton.setBackground(DARK_BUTTON_BG);
+            rentButton.setForeground(DARK_BUTTON_FG);
+            returnButton.setBackground(DARK_BUTTON_RETURN_BG);
+            returnButton.setForeground(DARK_BUTTON_FG);
+            showCarsButton.setBackground(DARK_BUTTON_SHOW_BG);
+            showCarsButton.setForeground(DARK_BUTTON_FG);
+        } else {
+            rentButton.setBackground(LIGHT_BUTTON_BG);
+            rentButton.setForeground(LIGHT_BUTTON_FG);
+            returnButton.setBackground(LIGHT_BUTTON_RETURN_BG);
+            returnButton.setForeground(LIGHT_BUTTON_FG);
+            showCarsButton.setBackground(LIGHT_BUTTON_SHOW_BG);
+            showCarsButton.setForeground(LIGHT_BUTTON_FG);
+        }
+
+        // Update input panel background color
+        Component inputPanel = getContentPane().getComponent(2);
+        if (inputPanel instanceof JPanel) {
+            ((JPanel)inputPanel).setBackground(bg);
+            Border titledBorder = BorderFactory.createTitledBorder(
+                    BorderFactory.createLineBorder(isDarkMode ? new Color(100,100,100) : new Color(200, 200, 200), 1, true),
+                    "Rental Controls",
+                    javax.swing.border.TitledBorder.LEFT,
+                    javax.swing.border.TitledBorder.TOP,
+                    LABEL_FONT,
+                    fg
+            );
+            ((JPanel)inputPanel).setBorder(new CompoundBorder(
+                    titledBorder,
+                    new EmptyBorder(15, 15, 15, 15)
+            ));
+            // Also update label colors inside inputPanel
+            for (Component c : ((JPanel)inputPanel).getComponents()) {
+                if (c instanceof JLabel) {
+                    c.setForeground(fg);
+                }
+            }
+        }
+    }
+
+    private void closeHistory() {
+        if (history == null) {
+            return;
+        }
+        try {
+            history.close();
+        } catch (IOException e) {
+            System.err.println("Could not close rental history: " + e.getMessage());
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Could not close rental journal: " + e.getMessage());
+        }
+    }
+
+    private void toggleTheme() {
+        isDarkMode = !isDarkMode;
+        applyTheme();
+    }
+
+    private void appendOutput(String message) {
+        outputArea.log(message);
+    }
+
+    private void handleRentCar() {
+        String customerName = customerNameField.getText().trim();
+        String contact = contactField.getText().trim();
+        String carId = carIdField.getText().trim();
+        String rentalDaysText = rentalDaysField.getText().trim();
+
+        if (!isValidCustomerName(customerName)) {
+            showErrorMessage("Please enter a valid customer name (letters and spaces only).");
+            return;
+        }
+        if (!isValidContact(contact)) {
+            showErrorMessage("Please enter a phone number or e-mail address, or leave it empty.");
+            return;
+        }
+        if (carId.isEmpty()) {
+            showErrorMessage("Please enter a car ID.");
+            return;
+        }
+
+        int rentalDays;
+        try {
+            rentalDays = Integer.parseInt(rentalDaysText);
+            if (!CarRentalSystem.isValidLength(rentalDays)) {
+                showErrorMessage("Rental days must be from 1 to " + CarRentalSystem.MAX_RENTAL_DAYS + ".");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            showErrorMessage("Please enter a valid number for rental days.");
+            return;
+        }
+
+        setBusy(true);
+        rentalService.prepareRental(carId, customerName, contact, rentalDays)
+                .whenComplete((offer, failure) -> SwingUtilities.invokeLater(() -> confirmRental(offer, failure)));
+    }
+
+    private void confirmRental(RentalService.RentalOffer offer, Throwable failure) {
+        if (failure != null) {
+            setBusy(false);
+            showErrorMessage("Failed to prepare the rental: " + failure.getMessage());
+            return;
+        }
+        if (offer == null) {
+            setBusy(false);
+            appendOutput("Invalid car ID or car not available for rent.\n");
+            return;
+        }
+        // The car is held while the dialog is open, so no one else can take it meanwhile.
+        Car selectedCar = offer.getCar();
+        Customer newCustomer = offer.getCustomer();
+        int rentalDays = offer.getDays();
+        double totalPrice = offer.getTotalPrice();
+
+        int confirm = JOptionPane.showConfirmDialog(
+                this,
+                "Customer ID: " + newCustomer.getCustomerId() + "\n" +
+                        "Customer Name: " + newCustomer.getName() + "\n" +
+                        "Car: " + selectedCar.getBrand() + " " + selectedCar.getModel() + "\n" +
+                        "Rental Days: " + rentalDays + "\n" +
+                        String.format("Total Price: $%.2f%n", totalPrice) +
+                        "The car is held for you for " + RentalService.HOLD_MILLIS / 60_000 + " minutes.\n" +
+                        "Confirm rental?",
+                "Confirm Rental",
+                JOptionPane.YES_NO_OPTION);
+
+        if (confirm != JOptionPane.YES_OPTION) {
+            setBusy(false);
+            rentalService.decline(offer);
+            appendOutput("Rental canceled by user.\n");
+            return;
+        }
+        rentalService.rent(offer).whenComplete((success, error) -> SwingUtilities.invokeLater(() -> {
+            setBusy(false);
+            if (error == null && success) {
+                appendOutput(String.format("Car rented successfully: %s %s for %d days. Total: $%.2f\n",
+                        selectedCar.getBrand(), selectedCar.getModel(), rentalDays, totalPrice));
+                clearInputFields();
+            } else {
+                showErrorMessage("Failed to rent the car. The hold on it may have run out; please try again.");
+            }
+        }));
+    }
+
+    private void handleReturnCar() {
+        String carId = carIdField.getText().trim();
+        if (carId.isEmpty()) {
+            showErrorMessage("Please enter a car ID to return.");
+            return;
+        }
+
+        setBusy(true);
+        rentalService.returnCar(carId).whenComplete((rentedCar, failure) -> SwingUtilities.invokeLater(() -> {
+            setBusy(false);
+            if (failure != null) {
+                showErrorMessage("Failed to return the car. Please check the car ID.");
+            } else if (rentedCar == null) {
+                appendOutput("Invalid car ID or the car is not currently rented.\n");
+            } else {
+                appendOutput(String.format("Car returned successfully: %s %s\n", rentedCar.getBrand(), rentedCar.getModel()));
+                clearInputFields();
+            }
+        }));
+    }
+
+    // Keeps a second click from starting another rental or return while one is in progress.
+    private void setBusy(boolean busy) {
+        rentButton.setEnabled(!busy);
+        returnButton.setEnabled(!busy);
+        setCursor(Cursor.getPredefinedCursor(busy ? Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR));
+    }
+
+    private void displayAllCars() {
+        // Clearing the filter fields shows the whole fleet again.
+        brandFilterField.setText("");
+        priceFilterField.setText("");
+        inventoryTable.getRowSorter().setSortKeys(null);
+        inventoryTable.scrollRectToVisible(inventoryTable.getCellRect(0, 0, true));
+        appendOutput(String.format("Cars Inventory: %d cars, %d available.\n",
+                rentalSystem.getCarCount(), rentalSystem.getAvailableCarCount()));
+    }
+
+    private boolean isValidCustomerName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        return Pattern.matches("[a-zA-Z\\s\\-']+", name);
+    }
+
+    private boolean isValidContact(String contact) {
+        return contact.isEmpty()
+                || Pattern.matches("[^\\s@]+@[^\\s@]+\\.[^\\s@]+", contact)
+                || Pattern.matches("\\+?[0-9][0-9\\s().\\-/]{4,}", contact);
+    }
+
+    private void showErrorMessage(String message) {
+        JOptionPane.showMessageDialog(this, message, "Input Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void clearInputFields() {
+        customerNameField.setText("");
+        contactField.setText("");
+        carIdField.setText("");
+        rentalDaysField.setText("");
+    }
+
+    public static void main(String[] args) {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception ignored) {}
+
+        SwingUtilities.invokeLater(() -> {
+            CarRentalGUI gui = new CarRentalGUI();
+            gui.setVisible(true);
+        });
+    }
+
+    private static class RoundedBorder extends AbstractBorder {
+        private final int radius;
+
+        public RoundedBorder(int radius) {
+            this.radius = radius;
+        }
+
+        @Override
+        public void paintBorder(Component c, Graphics g, int x, int y, int width, int height) {
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(new Color(0, 0, 0, 50));
+            g2d.drawRoundRect(x, y, width - 1, height - 1, radius, radius);
+            g2d.dispose();
+        }
+
+        @Override
+        public Insets getBorderInsets(Component c) {
+            return new Insets(radius+1, radius+1, radius+1, radius+1);
+        }
+
+        @Override
+        public Insets getBorderInsets(Component c, Insets insets) {
+            insets.left = insets.top = insets.right = insets.bottom = radius+1;
+            return insets;
+        }
+    }
+}
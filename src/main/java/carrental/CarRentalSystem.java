@@ -0,0 +1,1297 @@
+package carrental;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Core system managing cars, customers, and rentals.
+ *
+ * <p>Safe to share between several counters. Each car is guarded by one of a fixed set of
+ * lock stripes, so renting or returning different cars does not contend, while the indexes
+ * themselves are concurrent collections that readers can use without locking.
+ *
+ * <p>Cars are held by a {@link FleetStore}: on the heap by default, or in memory-mapped
+ * columns via {@link ColumnarFleetStore} for very large fleets.
+ */
+class CarRentalSystem {
+    private static final int STRIPE_COUNT = Math.max(64,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1) << 1);
+    // How often holds that ran out are looked for.
+    private static final long HOLD_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Longest rental, hold or reservation that can be made.
+    static final int MAX_RENTAL_DAYS = 365;
+
+    private final FleetStore fleet;
+    private final AvailabilityIndex availability;
+    private final CarSearchIndex search;
+    private final AssignmentIndex assignment = new AssignmentIndex();
+    private final CustomerRegistry customers = new CustomerRegistry();
+    private final Object[] stripes;
+    private final FleetRollups rollups;
+
+    // Active rentals, one row per car; the list view is rebuilt only when asked for.
+    private final RentalTable rentals = new RentalTable();
+    private final AtomicLong rentalsVersion;
+    private volatile RentalsSnapshot rentalsSnapshot;
+
+    // Reservations per car, present only for cars that have any.
+    private final Map<Car, BookingCalendar> calendars = new ConcurrentHashMap<>();
+    // Cars taken out of service, for example while they move to another branch.
+    private final Set<Car> withdrawn = ConcurrentHashMap.newKeySet();
+    // Withdrawn cars on their way to another branch of a BranchNetwork, by the name of that branch.
+    private final Map<Car, String> transfers = new ConcurrentHashMap<>();
+    // Cars set aside by holds. The wheel that runs holds out is guarded by itself, and is only
+    // ever locked after a stripe, never before.
+    private final Map<Car, Hold> holds = new ConcurrentHashMap<>();
+    private final TimingWheel holdWheel = new TimingWheel(System.nanoTime() / HOLD_TICK_NANOS);
+    private boolean holdTickerRunning;
+    private final CurrentDay currentDay = new CurrentDay();
+
+    private volatile RentalJournal journal;
+    // Replaced whole on change, so a rent or return walks it without an iterator.
+    private volatile FleetListener[] listeners = new FleetListener[0];
+    private final RentalEventBus events;
+    private final RentalMetrics metrics = new RentalMetrics(this);
+
+    public CarRentalSystem() {
+        this(new HeapFleetStore());
+    }
+
+    CarRentalSystem(FleetStore fleet) {
+        this(fleet, new RentalEventBus(RentalEventBus.DEFAULT_CAPACITY, RentalEventBus.BackPressure.BLOCK));
+    }
+
+    CarRentalSystem(FleetStore fleet, RentalEventBus events) {
+        this.fleet = fleet;
+        this.events = events;
+        availability = new AvailabilityIndex(fleet);
+        search = new CarSearchIndex(fleet, availability);
+        stripes = new Object[STRIPE_COUNT];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        rollups = new FleetRollups(stripes.length);
+        rentalsVersion = new AtomicLong();
+        // A reopened store already holds cars; index them as if they had just been added.
+        List<Car> stored = fleet.allCarsView();
+        for (int ordinal = 0, size = fleet.size(); ordinal < size; ordinal++) {
+            admitCar(ordinal, stored.get(ordinal));
+        }
+        search.add(0, fleet.size());
+    }
+
+    LocalDate today() {
+        return currentDay.date();
+    }
+
+    private int stripeIndex(int ordinal) {
+        return ordinal & (stripes.length - 1);
+    }
+
+    private Object stripeFor(Car car) {
+        return stripes[stripeIndex(car.getOrdinal())];
+    }
+
+    // Called holding the fleet lock, just before the car is added at the given ordinal, or from
+    // the constructor for a car already in the store: indexes the car's availability, gives it
+    // its rental row, counts it in the rollups and offers it for assignment. The search index,
+    // which reads IDs from the store, takes the car once the store has it.
+    private void admitCar(int ordinal, Car car) {
+        availability.add(ordinal, car);
+        rentals.ensureRow(ordinal);
+        assignment.ensureRow(ordinal);
+        synchronized (stripes[stripeIndex(ordinal)]) {
+            rollups.carAdded(stripeIndex(ordinal), car);
+            if (car.isAvailable()) {
+                assignment.setAvailable(ordinal, car, true);
+            }
+        }
+    }
+
+    // Marks the car available or not in the store and both indexes. Called under the car's stripe lock.
+    private void setAvailable(Car car, boolean available) {
+        fleet.setAvailable(car, available);
+        availability.setAvailable(car.getOrdinal(), available);
+        assignment.setAvailable(car.getOrdinal(), car, available);
+    }
+
+    /**
+     * Counts and latencies of this system's calls, and fleet gauges.
+     */
+    public RentalMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Price, in minor currency units, of renting the car for the given number of days from
+     * {@code startDate}, timed as a quote in this system's metrics.
+     */
+    public long quote(Car car, LocalDate startDate, int days) {
+        long started = metrics.start();
+        long amount = Car.getPricingEngine().quote(car, startDate, days);
+        metrics.record(RentalMetrics.Op.QUOTE, started, true);
+        return amount;
+    }
+
+    /**
+     * {@link Car#calculatePrice}, timed as a quote in this system's metrics.
+     */
+    public double calculatePrice(Car car, int days) {
+        long started = metrics.start();
+        double price = car.calculatePrice(days);
+        metrics.record(RentalMetrics.Op.QUOTE, started, true);
+        return price;
+    }
+
+    /**
+     * Cars, rentals out, revenue in flight and days booked, overall and per brand and model, all
+     * as of one moment. Costs as much as there are brands and models, not cars.
+     */
+    public RollupSnapshot getRollups() {
+        BitSet all = new BitSet(stripes.length);
+        all.set(0, stripes.length);
+        long[][][] sums = new long[1][][];
+        lockFrom(all, 0, () -> {
+            sums[0] = rollups.sum();
+            return true;
+        });
+        return rollups.snapshot(sums[0]);
+    }
+
+    public synchronized void addFleetListener(FleetListener listener) {
+        FleetListener[] current = listeners;
+        FleetListener[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = listener;
+        listeners = grown;
+    }
+
+    public synchronized void removeFleetListener(FleetListener listener) {
+        List<FleetListener> remaining = new ArrayList<>(Arrays.asList(listeners));
+        if (remaining.remove(listener)) {
+            listeners = remaining.toArray(new FleetListener[0]);
+        }
+    }
+
+    /**
+     * Delivers every later rent and return to the handler, in batches, on a thread of its own,
+     * until the returned handle is closed. Unlike a {@link FleetListener}, a slow handler does
+     * not hold up the rental that caused the event.
+     *
+     * <p>Events are published holding the car's stripe lock, so a car's events arrive in the
+     * order its rentals and returns happened. A handler must therefore not wait for a rent or
+     * return to finish: with {@link RentalEventBus.BackPressure#BLOCK} that rental may be
+     * waiting on the handler.
+     */
+    public RentalEventBus.Subscription subscribe(String name, RentalEventHandler handler) {
+        return events.subscribe(name, handler);
+    }
+
+    private void fireAvailabilityChanged(Car car) {
+        for (FleetListener listener : listeners) {
+            listener.availabilityChanged(car);
+        }
+    }
+
+    /**
+     * Records every later change in the given journal, or stops journaling when passed null.
+     */
+    void attachJournal(RentalJournal journal) {
+        this.journal = journal;
+    }
+
+    public void addCar(Car car) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        synchronized (fleet) {
+            if (fleet.byId(car.getCarId()) != null) {
+                return;
+            }
+            // Journaled before the store publishes it, so no one can rent the car first. Snapshots
+            // rotate the journal under this same lock, so no car is journaled before the rotation
+            // point and added after it.
+            if (log != null) {
+                sequence = log.logAddCar(car);
+            }
+            admitCar(fleet.size(), car);
+            fleet.add(car);
+            search.add(car.getOrdinal(), 1);
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        for (FleetListener listener : listeners) {
+            listener.carAdded(car);
+        }
+    }
+
+    /**
+     * Adds many cars at once, skipping any whose ID is already in the fleet or earlier in the
+     * list. The fleet lock is taken once, the journal is written in one go and waited on once,
+     * and listeners hear about all the cars together. Returns how many cars were added.
+     */
+    public int addCars(List<Car> cars) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        List<Car> added = new ArrayList<>(cars.size());
+        synchronized (fleet) {
+            Set<String> seen = new HashSet<>();
+            for (Car car : cars) {
+                if (fleet.byId(car.getCarId()) == null && seen.add(FleetStore.idKey(car.getCarId()))) {
+                    added.add(car);
+                }
+            }
+            // As in addCar, journaled before any of the cars can be seen, and under the fleet
+            // lock that snapshots rotate the journal under, so a snapshot sees either the whole
+            // chunk both journaled and added, or none of it.
+            if (log != null && !added.isEmpty()) {
+                sequence = log.logAddCars(added);
+            }
+            int first = fleet.size();
+            for (Car car : added) {
+                admitCar(fleet.size(), car);
+                fleet.add(car);
+            }
+            search.add(first, added.size());
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        if (!added.isEmpty()) {
+            for (FleetListener listener : listeners) {
+                listener.carsAdded(added);
+            }
+        }
+        return added.size();
+    }
+
+    /**
+     * Runs {@code action} holding the fleet lock, so that no car is added meanwhile, and returns
+     * how many cars the fleet had. Cars are never removed or reordered, so the first that many
+     * cars of {@link #getAllCars()} stay the fleet as it was, whatever is added later.
+     */
+    int withFleetLocked(Runnable action) {
+        synchronized (fleet) {
+            action.run();
+            return fleet.size();
+        }
+    }
+
+    /**
+     * Adds a customer that already has an ID; does nothing if that ID is taken.
+     */
+    public void addCustomer(Customer customer) {
+        if (!customers.add(customer)) {
+            return;
+        }
+        RentalJournal log = journal;
+        if (log != null) {
+            log.awaitDurable(log.logAddCustomer(customer));
+        }
+    }
+
+    /**
+     * Returns the existing customer with this name and contact (phone or e-mail, may be empty),
+     * ignoring case, accents and punctuation, or registers a new one. Without a contact, an
+     * earlier customer of the same name is returned only while they have no car rented.
+     */
+    public Customer registerCustomer(String name, String contact) {
+        RentalJournal log = journal;
+        long[] sequence = new long[1];
+        Customer customer = customers.register(name, contact, this::hasNoRentals, created -> {
+            if (log != null) {
+                sequence[0] = log.logAddCustomer(created);
+            }
+        });
+        if (log != null && sequence[0] != 0) {
+            log.awaitDurable(sequence[0]);
+        }
+        return customer;
+    }
+
+    private boolean hasNoRentals(Customer customer) {
+        int ordinal = customers.findOrdinal(customer);
+        return ordinal < 0 || !rentals.hasRows(ordinal);
+    }
+
+    public Customer findCustomerById(String customerId) {
+        return customers.byId(customerId);
+    }
+
+    List<Customer> getCustomers() {
+        return customers.list();
+    }
+
+    public int getCustomerCount() {
+        return customers.size();
+    }
+
+    /**
+     * Rents the car from today. Fails if {@code days} is not between 1 and
+     * {@link #MAX_RENTAL_DAYS}.
+     */
+    public boolean rentCar(Car car, Customer customer, int days) {
+        return isValidLength(days) && rentCar(car, customer, today(), days);
+    }
+
+    static boolean isValidLength(long days) {
+        return days > 0 && days <= MAX_RENTAL_DAYS;
+    }
+
+    /**
+     * Rents the car from {@code startDate}. Fails if the car is already out or if the rental
+     * would run into one of its reservations.
+     */
+    boolean rentCar(Car car, Customer customer, LocalDate startDate, int days) {
+        return startRental(car, customer, startDate, days, -1, null, null);
+    }
+
+    /**
+     * Rents the car again as read back from the journal or a snapshot, at the price it was made
+     * for, or at today's price if {@code priceMinor} is negative because none was stored.
+     */
+    boolean restoreRental(Car car, Customer customer, LocalDate startDate, int days, long priceMinor) {
+        return startRental(car, customer, startDate, days, priceMinor, null, null);
+    }
+
+    private boolean startRental(Car car, Customer customer, LocalDate startDate, int days, long priceMinor,
+                                Reservation pickedUp, Hold held) {
+        long started = metrics.start();
+        boolean rented = tryStartRental(car, customer, startDate, days, priceMinor, pickedUp, held);
+        metrics.record(RentalMetrics.Op.RENT, started, rented);
+        return rented;
+    }
+
+    // Allocates nothing unless the car has reservations or the rental is journaled.
+    private boolean tryStartRental(Car car, Customer customer, LocalDate startDate, int days, long priceMinor,
+                                   Reservation pickedUp, Hold held) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        car = fleet.resolve(car);
+        int row = car.getOrdinal();
+        int customerOrdinal = customers.ordinal(customer);
+        long startDay = startDate.toEpochDay();
+        // Priced before the lock is taken, so the car is held no longer than it has to be.
+        long price = priceMinor >= 0 ? priceMinor : quote(car, startDate, days);
+        synchronized (stripeFor(car)) {
+            if (held != null ? holds.get(car) != held || held.isExpired() : !car.isAvailable()) {
+                return false;
+            }
+            if (pickedUp != null && !removeBooking(pickedUp)) {
+                return false;
+            }
+            BookingCalendar calendar = calendars.get(car);
+            if (calendar != null && !calendar.isFree(startDate, startDate.plusDays(Math.max(1, days)))) {
+                if (pickedUp != null) {
+                    calendar.add(pickedUp);
+                }
+                return false;
+            }
+            if (held != null) {
+                holds.remove(car);
+                synchronized (holdWheel) {
+                    holdWheel.cancel(held);
+                }
+            }
+            setAvailable(car, false);
+            rentals.put(row, customerOrdinal, startDay, days, price);
+            rollups.rented(stripeIndex(row), car, days, price);
+            if (log != null) {
+                if (pickedUp != null) {
+                    log.logCancel(pickedUp);
+                }
+                sequence = log.logRent(car, customer, startDate, days, price);
+            }
+            events.publish(RentalEvent.Type.RENTED, car, customer, startDay, days, price);
+        }
+        rentalsVersion.incrementAndGet();
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        fireAvailabilityChanged(car);
+        return true;
+    }
+
+    public boolean returnCar(Car car) {
+        long started = metrics.start();
+        boolean returned = tryReturnCar(car);
+        metrics.record(RentalMetrics.Op.RETURN, started, returned);
+        return returned;
+    }
+
+    private boolean tryReturnCar(Car car) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        car = fleet.resolve(car);
+        int row = car.getOrdinal();
+        int customerOrdinal;
+        long startDay;
+        int days;
+        long price;
+        synchronized (stripeFor(car)) {
+            if (!rentals.isRented(row)) {
+                return false;
+            }
+            customerOrdinal = rentals.customer(row);
+            startDay = rentals.startDay(row);
+            days = rentals.days(row);
+            price = rentals.priceMinor(row);
+            rentals.clear(row);
+            setAvailable(car, true);
+            rollups.returned(stripeIndex(row), car, days, price);
+            if (log != null) {
+                sequence = log.logReturn(car);
+            }
+            events.publish(RentalEvent.Type.RETURNED, car, customers.byOrdinal(customerOrdinal), startDay, days, price);
+        }
+        rentalsVersion.incrementAndGet();
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        fireAvailabilityChanged(car);
+        return true;
+    }
+
+    /**
+     * Rents every requested car, or none of them. All the cars' locks are taken once, every
+     * item is checked in a single pass, and then all are committed together with one journal
+     * write and one wait for durability. Returns one result per request, in order.
+     */
+    public List<BatchResult> rentBatch(List<RentRequest> requests) {
+        long started = metrics.start();
+        List<BatchResult> results = commitRentBatch(requests);
+        metrics.record(RentalMetrics.Op.BATCH, started, results.isEmpty() || results.get(0).isSuccess());
+        return results;
+    }
+
+    private List<BatchResult> commitRentBatch(List<RentRequest> requests) {
+        Car[] cars = new Car[requests.size()];
+        Rental[] priced = new Rental[cars.length];
+        int[] customerOrdinals = new int[cars.length];
+        LocalDate today = today();
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = fleet.resolve(requests.get(i).getCar());
+            priced[i] = new Rental(cars[i], requests.get(i).getCustomer(), today, requests.get(i).getDays());
+            customerOrdinals[i] = customers.ordinal(requests.get(i).getCustomer());
+        }
+        List<Rental> rented = new ArrayList<>(cars.length);
+        List<BatchResult> results = new ArrayList<>(cars.length);
+        RentalJournal log = journal;
+        long[] sequence = new long[1];
+        boolean committed = withStripes(cars, () -> {
+            Set<Car> seen = new HashSet<>();
+            boolean ok = true;
+            for (int i = 0; i < cars.length; i++) {
+                Car car = cars[i];
+                String problem = null;
+                if (!seen.add(car)) {
+                    problem = "Car appears more than once in the batch.";
+                } else if (!isValidLength(priced[i].getDays())) {
+                    problem = "Rental must be from 1 to " + MAX_RENTAL_DAYS + " days.";
+                } else if (!car.isAvailable()) {
+                    problem = "Car is not available.";
+                } else {
+                    BookingCalendar calendar = calendars.get(car);
+                    Rental rental = priced[i];
+                    if (calendar != null && !calendar.isFree(rental.getStartDate(), rental.getEndDate())) {
+                        problem = "Car is reserved during the rental.";
+                    }
+                    rented.add(rental);
+                }
+                ok &= problem == null;
+                results.add(new BatchResult(car, problem == null, problem));
+            }
+            if (!ok) {
+                return false;
+            }
+            for (int i = 0; i < cars.length; i++) {
+                Car car = cars[i];
+                Rental rental = priced[i];
+                int row = car.getOrdinal();
+                setAvailable(car, false);
+                rentals.put(row, customerOrdinals[i], rental.getStartDate().toEpochDay(), rental.getDays(),
+                        rental.getPriceMinor());
+                rollups.rented(stripeIndex(row), car, rental.getDays(), rental.getPriceMinor());
+            }
+            if (log != null) {
+                sequence[0] = log.logRents(rented);
+            }
+            events.publishAll(RentalEvent.Type.RENTED, rented);
+            return true;
+        });
+        if (!committed) {
+            return rejected(results);
+        }
+        rentalsVersion.incrementAndGet();
+        if (log != null) {
+            log.awaitDurable(sequence[0]);
+        }
+        for (Car car : cars) {
+            fireAvailabilityChanged(car);
+        }
+        return results;
+    }
+
+    /**
+     * Returns every given car, or none of them if any is not currently rented.
+     */
+    public List<BatchResult> returnBatch(List<Car> carsToReturn) {
+        long started = metrics.start();
+        List<BatchResult> results = commitReturnBatch(carsToReturn);
+        metrics.record(RentalMetrics.Op.BATCH, started, results.isEmpty() || results.get(0).isSuccess());
+        return results;
+    }
+
+    private List<BatchResult> commitReturnBatch(List<Car> carsToReturn) {
+        Car[] cars = new Car[carsToReturn.size()];
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = fleet.resolve(carsToReturn.get(i));
+        }
+        List<Rental> returned = new ArrayList<>(cars.length);
+        List<BatchResult> results = new ArrayList<>(cars.length);
+        RentalJournal log = journal;
+        long[] sequence = new long[1];
+        boolean committed = withStripes(cars, () -> {
+            Set<Car> seen = new HashSet<>();
+            boolean ok = true;
+            for (Car car : cars) {
+                String problem = null;
+                if (!seen.add(car)) {
+                    problem = "Car appears more than once in the batch.";
+                } else if (!rentals.isRented(car.getOrdinal())) {
+                    problem = "Car is not rented.";
+                }
+                ok &= problem == null;
+                results.add(new BatchResult(car, problem == null, problem));
+            }
+            if (!ok) {
+                return false;
+            }
+            for (Car car : cars) {
+                Rental rental = rentalAt(car);
+                int row = car.getOrdinal();
+                rentals.clear(row);
+                setAvailable(car, true);
+                rollups.returned(stripeIndex(row), car, rental.getDays(), rental.getPriceMinor());
+                returned.add(rental);
+            }
+            if (log != null) {
+                sequence[0] = log.logReturns(returned);
+            }
+            events.publishAll(RentalEvent.Type.RETURNED, returned);
+            return true;
+        });
+        if (!committed) {
+            return rejected(results);
+        }
+        rentalsVersion.incrementAndGet();
+        if (log != null) {
+            log.awaitDurable(sequence[0]);
+        }
+        for (Car car : cars) {
+            fireAvailabilityChanged(car);
+        }
+        return results;
+    }
+
+    private static List<BatchResult> rejected(List<BatchResult> results) {
+        List<BatchResult> rejected = new ArrayList<>(results.size());
+        for (BatchResult result : results) {
+            rejected.add(result.isSuccess()
+                    ? new BatchResult(result.getCar(), false, "Not applied: another item in the batch failed.")
+                    : result);
+        }
+        return rejected;
+    }
+
+    // Runs body holding the stripe locks of all the given cars, taken in ascending order so batches cannot deadlock.
+    private boolean withStripes(Car[] cars, BooleanSupplier body) {
+        BitSet needed = new BitSet(stripes.length);
+        for (Car car : cars) {
+            needed.set(stripeIndex(car.getOrdinal()));
+        }
+        return lockFrom(needed, needed.nextSetBit(0), body);
+    }
+
+    private boolean lockFrom(BitSet needed, int stripe, BooleanSupplier body) {
+        if (stripe < 0) {
+            return body.getAsBoolean();
+        }
+        synchronized (stripes[stripe]) {
+            return lockFrom(needed, needed.nextSetBit(stripe + 1), body);
+        }
+    }
+
+    // The car's active rental, built from its row, or null. Called under the car's stripe lock.
+    private Rental rentalAt(Car car) {
+        int row = car.getOrdinal();
+        if (!rentals.isRented(row)) {
+            return null;
+        }
+        return new Rental(car, customers.byOrdinal(rentals.customer(row)), LocalDate.ofEpochDay(rentals.startDay(row)),
+                rentals.days(row), rentals.priceMinor(row));
+    }
+
+    // Whether the car's active rental runs into the range. Called under the car's stripe lock.
+    private boolean rentalOverlaps(Car car, LocalDate startDate, LocalDate endDate) {
+        int row = car.getOrdinal();
+        return rentals.isRented(row) && rentals.startDay(row) < endDate.toEpochDay()
+                && startDate.toEpochDay() < rentals.endDay(row);
+    }
+
+    // Called under the car's stripe lock.
+    private boolean removeBooking(Booking booking) {
+        BookingCalendar calendar = calendars.get(booking.getCar());
+        if (calendar == null || !calendar.remove(booking)) {
+            return false;
+        }
+        if (calendar.isEmpty()) {
+            calendars.remove(booking.getCar());
+        }
+        return true;
+    }
+
+    /**
+     * Takes an available car out of service, for example while it is driven to another branch.
+     * It stays in the fleet but cannot be rented or reserved until {@link #reinstateCar} puts it
+     * back. Fails if the car is out, already withdrawn or has reservations.
+     */
+    public boolean withdrawCar(Car car) {
+        return withdrawCar(car, null);
+    }
+
+    /**
+     * Withdraws the car on its way to the named branch, or for no transfer if null. The branch
+     * is journaled with the withdrawal, so that a {@link BranchNetwork} put back together after
+     * a crash can finish the transfer; {@link #transferArrived} records that it is done.
+     */
+    boolean withdrawCar(Car car, String toBranch) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        car = fleet.resolve(car);
+        synchronized (stripeFor(car)) {
+            BookingCalendar calendar = calendars.get(car);
+            if (!car.isAvailable() || (calendar != null && !calendar.isEmpty()) || withdrawn.contains(car)) {
+                return false;
+            }
+            // Before the car shows as withdrawn, so that a snapshot never sees it without its branch.
+            if (toBranch != null) {
+                transfers.put(car, toBranch);
+            }
+            withdrawn.add(car);
+            setAvailable(car, false);
+            if (log != null) {
+                sequence = log.logWithdraw(car, toBranch);
+            }
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        fireAvailabilityChanged(car);
+        return true;
+    }
+
+    /**
+     * Puts a withdrawn car back into service. Returns false if it was not withdrawn.
+     */
+    public boolean reinstateCar(Car car) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        car = fleet.resolve(car);
+        synchronized (stripeFor(car)) {
+            if (!withdrawn.remove(car)) {
+                return false;
+            }
+            transfers.remove(car);
+            setAvailable(car, true);
+            if (log != null) {
+                sequence = log.logReinstate(car);
+            }
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        fireAvailabilityChanged(car);
+        return true;
+    }
+
+    /**
+     * Records that the car, withdrawn for a transfer, is now at the branch it was sent to. It
+     * stays withdrawn here.
+     */
+    void transferArrived(Car car) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        car = fleet.resolve(car);
+        synchronized (stripeFor(car)) {
+            if (transfers.remove(car) == null) {
+                return;
+            }
+            if (log != null) {
+                sequence = log.logTransferArrived(car);
+            }
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Withdrawn cars whose transfer has not yet arrived, by the branch they were sent to.
+     */
+    Map<Car, String> getTransfers() {
+        return new HashMap<>(transfers);
+    }
+
+    public boolean isWithdrawn(Car car) {
+        return withdrawn.contains(fleet.resolve(car));
+    }
+
+    public int getWithdrawnCarCount() {
+        return withdrawn.size();
+    }
+
+    List<Car> getWithdrawnCars() {
+        return new ArrayList<>(withdrawn);
+    }
+
+    /**
+     * Books the car for the days from {@code startDate} up to, but not including, {@code endDate}.
+     * Returns null if the range is empty or longer than {@link #MAX_RENTAL_DAYS}, the car is
+     * withdrawn, or the range overlaps a rental, a hold or another reservation of the car.
+     */
+    public Reservation reserveCar(Car car, Customer customer, LocalDate startDate, LocalDate endDate) {
+        if (!isValidLength(ChronoUnit.DAYS.between(startDate, endDate))) {
+            return null;
+        }
+        return bookReservation(car, customer, startDate, endDate);
+    }
+
+    // Also used by journal replay, which takes back whatever was booked before the limit.
+    Reservation bookReservation(Car car, Customer customer, LocalDate startDate, LocalDate endDate) {
+        if (!endDate.isAfter(startDate)) {
+            return null;
+        }
+        RentalJournal log = journal;
+        long sequence = 0;
+        car = fleet.resolve(car);
+        Reservation reservation = new Reservation(car, customer, startDate, endDate);
+        synchronized (stripeFor(car)) {
+            if (withdrawn.contains(car) || rentalOverlaps(car, startDate, endDate)
+                    || holdOverlaps(car, startDate, endDate)) {
+                return null;
+            }
+            BookingCalendar calendar = calendars.computeIfAbsent(car, c -> new BookingCalendar());
+            if (!calendar.add(reservation)) {
+                return null;
+            }
+            if (log != null) {
+                sequence = log.logReserve(reservation);
+            }
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        return reservation;
+    }
+
+    public boolean cancelReservation(Reservation reservation) {
+        RentalJournal log = journal;
+        long sequence = 0;
+        synchronized (stripeFor(reservation.getCar())) {
+            if (!removeBooking(reservation)) {
+                return false;
+            }
+            if (log != null) {
+                sequence = log.logCancel(reservation);
+            }
+        }
+        if (log != null) {
+            log.awaitDurable(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Turns a reservation into a rental starting today and ending when the reservation ends.
+     * Fails if the car is still out or the reservation is over.
+     */
+    public boolean pickUpReservation(Reservation reservation) {
+        LocalDate today = today();
+        int days = (int) ChronoUnit.DAYS.between(today, reservation.getEndDate());
+        if (days <= 0) {
+            return false;
+        }
+        return startRental(reservation.getCar(), reservation.getCustomer(), today, days, -1, reservation, null);
+    }
+
+    /**
+     * Sets the car aside for the customer for {@code ttlMillis}, for a rental of {@code days}
+     * from today, without renting it yet. Nobody else can rent the car, or reserve it for those
+     * days, until the hold is confirmed with {@link #confirmHold}, given up with
+     * {@link #releaseHold} or runs out, whereupon the car is free again. Returns null if the car
+     * is not available or is reserved during those days, or if {@code days} is out of range.
+     */
+    public Hold placeHold(Car car, Customer customer, int days, long ttlMillis) {
+        if (!isValidLength(days)) {
+            return null;
+        }
+        car = fleet.resolve(car);
+        LocalDate today = today();
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        Hold hold = new Hold(car, customer, today, days, expiresAt);
+        synchronized (stripeFor(car)) {
+            BookingCalendar calendar = calendars.get(car);
+            if (!car.isAvailable() || (calendar != null && !calendar.isFree(today, today.plusDays(Math.max(1, days))))) {
+                return null;
+            }
+            holds.put(car, hold);
+            setAvailable(car, false);
+            synchronized (holdWheel) {
+                holdWheel.schedule(hold, (expiresAt + HOLD_TICK_NANOS - 1) / HOLD_TICK_NANOS);
+                if (!holdTickerRunning) {
+                    holdTickerRunning = true;
+                    Thread ticker = new Thread(this::expireHolds, "hold-expiry");
+                    ticker.setDaemon(true);
+                    ticker.start();
+                }
+            }
+        }
+        fireAvailabilityChanged(car);
+        return hold;
+    }
+
+    /**
+     * Rents the held car on the hold's terms. Fails if the hold was released or ran out, or if
+     * it can no longer be honoured, in which case it stays in place until released or run out.
+     */
+    public boolean confirmHold(Hold hold) {
+        return startRental(hold.getCar(), hold.getCustomer(), hold.getStartDate(), hold.getDays(), -1, null, hold);
+    }
+
+    /**
+     * Gives up the hold and frees the car. Returns false if the hold was already confirmed,
+     * released or ran out.
+     */
+    public boolean releaseHold(Hold hold) {
+        Car car = hold.getCar();
+        synchronized (stripeFor(car)) {
+            if (!holds.remove(car, hold)) {
+                return false;
+            }
+            synchronized (holdWheel) {
+                holdWheel.cancel(hold);
+            }
+            setAvailable(car, true);
+        }
+        fireAvailabilityChanged(car);
+        return true;
+    }
+
+    public int getHeldCarCount() {
+        return holds.size();
+    }
+
+    // Runs on the hold-expiry thread while any hold is on the wheel, freeing each car whose hold
+    // ran out. Stops once the wheel is empty; the next hold starts it again.
+    private void expireHolds() {
+        List<Hold> expired = new ArrayList<>();
+        while (true) {
+            LockSupport.parkNanos(HOLD_TICK_NANOS);
+            synchronized (holdWheel) {
+                holdWheel.advance(System.nanoTime() / HOLD_TICK_NANOS, entry -> expired.add((Hold) entry));
+                if (expired.isEmpty() && holdWheel.isEmpty()) {
+                    holdTickerRunning = false;
+                    return;
+                }
+            }
+            for (Hold hold : expired) {
+                Car car = hold.getCar();
+                boolean freed;
+                synchronized (stripeFor(car)) {
+                    freed = holds.remove(car, hold);
+                    if (freed) {
+                        setAvailable(car, true);
+                    }
+                }
+                if (freed) {
+                    fireAvailabilityChanged(car);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    // Whether a hold on the car covers any day of the range. Called under the car's stripe lock.
+    private boolean holdOverlaps(Car car, LocalDate startDate, LocalDate endDate) {
+        Hold hold = holds.get(car);
+        return hold != null && hold.overlaps(startDate, endDate);
+    }
+
+    /**
+     * Returns whether the car is in service and has no rental, hold or reservation on any day from
+     * {@code startDate} up to, but not including, {@code endDate}.
+     */
+    public boolean isCarFreeBetween(Car car, LocalDate startDate, LocalDate endDate) {
+        car = fleet.resolve(car);
+        synchronized (stripeFor(car)) {
+            if (withdrawn.contains(car) || rentalOverlaps(car, startDate, endDate)
+                    || holdOverlaps(car, startDate, endDate)) {
+                return false;
+            }
+            BookingCalendar calendar = calendars.get(car);
+            return calendar == null || calendar.isFree(startDate, endDate);
+        }
+    }
+
+    /**
+     * Finds the first car, in the order cars were added, of the given brand (any brand if null)
+     * costing at most {@code maxPricePerDay} that is free for the whole date range.
+     * Returns null if there is none.
+     */
+    public Car findCarFreeBetween(LocalDate startDate, LocalDate endDate, String brand, double maxPricePerDay) {
+        Car[] found = new Car[1];
+        List<Car> all = fleet.allCarsView();
+        availability.forEachCar(brand, maxPricePerDay, ordinal -> {
+            if (ordinal < all.size() && isCarFreeBetween(all.get(ordinal), startDate, endDate)) {
+                found[0] = all.get(ordinal);
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    /**
+     * Picks the cheapest available car of the given brand (any brand if null) costing at most
+     * {@code maxPricePerDay} a day that is free from {@code startDate} up to, but not including,
+     * {@code endDate}; among equal prices the car added first wins. Returns null if there is
+     * none. Unlike {@link #findCarFreeBetween} this does not scan the fleet: the cars come off
+     * per-brand price heaps, so it costs O(log n) unless many of the cheapest cars are booked.
+     */
+    public Car assignCar(LocalDate startDate, LocalDate endDate, String brand, double maxPricePerDay) {
+        return assignCars(Collections.singletonList(
+                new AssignmentRequest(startDate, endDate, brand, maxPricePerDay))).get(0);
+    }
+
+    /**
+     * Matches a queue of requests to the fleet in one pass, in order: each request gets the car
+     * {@link #assignCar} would pick for it among the cars not matched to an earlier request, or
+     * null if none fits. Requests for the same brand share one walk through its cars, cheapest
+     * first. Nothing is rented or reserved; the caller does that with the cars returned.
+     */
+    public List<Car> assignCars(List<AssignmentRequest> requests) {
+        long started = metrics.start();
+        List<Car> all = fleet.allCarsView();
+        Map<String, AssignmentQueue> queues = new HashMap<>();
+        Set<Car> taken = new HashSet<>();
+        List<Car> assigned = new ArrayList<>(requests.size());
+        boolean allAssigned = true;
+        for (AssignmentRequest request : requests) {
+            String brand = request.getBrand();
+            AssignmentQueue queue = queues.computeIfAbsent(brand == null ? null : brand.toUpperCase(Locale.ROOT),
+                    key -> new AssignmentQueue(brand));
+            Car car = queue.next(request, taken, all);
+            allAssigned &= car != null;
+            assigned.add(car);
+        }
+        metrics.record(RentalMetrics.Op.ASSIGN, started, allAssigned);
+        return assigned;
+    }
+
+    // The available cars of one brand, or of any brand, cheapest first, fetched from the
+    // assignment heaps in growing runs as a batch works through them.
+    private final class AssignmentQueue {
+        private final String brand;
+        private int[] ordinals = new int[0];
+        private boolean exhausted;
+        // Every car before this one has been taken by an earlier request.
+        private int first;
+
+        AssignmentQueue(String brand) {
+            this.brand = brand;
+        }
+
+        Car next(AssignmentRequest request, Set<Car> taken, List<Car> all) {
+            for (int i = first; ; i++) {
+                if (i >= ordinals.length) {
+                    if (exhausted) {
+                        return null;
+                    }
+                    int limit = Math.max(8, ordinals.length * 4);
+                    ordinals = assignment.cheapest(brand, limit);
+                    exhausted = ordinals.length < limit;
+                    if (i >= ordinals.length) {
+                        return null;
+                    }
+                }
+                if (ordinals[i] >= all.size()) {
+                    continue;
+                }
+                Car car = all.get(ordinals[i]);
+                if (car.getBasePricePerDay() > request.getMaxPricePerDay()) {
+                    return null;
+                }
+                boolean take = !taken.contains(car) && isCarFreeBetween(car, request.getStartDate(), request.getEndDate());
+                if (take) {
+                    taken.add(car);
+                }
+                if (i == first && taken.contains(car)) {
+                    first++;
+                }
+                if (take) {
+                    return car;
+                }
+            }
+        }
+    }
+
+    /**
+     * The car's active rental and reservations, ordered by start date.
+     */
+    public List<Booking> getBookingsForCar(Car car) {
+        car = fleet.resolve(car);
+        synchronized (stripeFor(car)) {
+            BookingCalendar calendar = calendars.get(car);
+            Rental rental = rentalAt(car);
+            if (rental == null) {
+                return calendar == null ? Collections.emptyList() : calendar.bookings();
+            }
+            List<Booking> bookings = calendar == null ? new ArrayList<>(1) : calendar.bookings();
+            int at = 0;
+            while (at < bookings.size() && bookings.get(at).getStartDate().isBefore(rental.getStartDate())) {
+                at++;
+            }
+            bookings.add(at, rental);
+            return bookings;
+        }
+    }
+
+    Reservation findReservation(Car car, LocalDate startDate) {
+        for (Booking booking : getBookingsForCar(car)) {
+            if (booking instanceof Reservation && booking.getStartDate().equals(startDate)) {
+                return (Reservation) booking;
+            }
+        }
+        return null;
+    }
+
+    List<Reservation> getReservations() {
+        List<Reservation> reservations = new ArrayList<>();
+        for (Car car : calendars.keySet()) {
+            for (Booking booking : getBookingsForCar(car)) {
+                if (booking instanceof Reservation) {
+                    reservations.add((Reservation) booking);
+                }
+            }
+        }
+        return reservations;
+    }
+
+    /**
+     * Looks up a car by ID, ignoring case. Returns null if no such car exists.
+     */
+    public Car findCarById(String carId) {
+        long started = metrics.start();
+        Car car = fleet.byId(carId);
+        metrics.record(RentalMetrics.Op.LOOKUP, started, car != null);
+        return car;
+    }
+
+    public Car findAvailableCarById(String carId) {
+        long started = metrics.start();
+        Car car = fleet.byId(carId);
+        if (car != null && !car.isAvailable()) {
+            car = null;
+        }
+        metrics.record(RentalMetrics.Op.LOOKUP, started, car != null);
+        return car;
+    }
+
+    public Car findRentedCarById(String carId) {
+        long started = metrics.start();
+        Car car = fleet.byId(carId);
+        if (car != null) {
+            synchronized (stripeFor(car)) {
+                if (!rentals.isRented(car.getOrdinal())) {
+                    car = null;
+                }
+            }
+        }
+        metrics.record(RentalMetrics.Op.LOOKUP, started, car != null);
+        return car;
+    }
+
+    /**
+     * Returns the active rental for the given car, or null if the car is not rented. Each call
+     * builds a new {@link Rental}.
+     */
+    public Rental getRentalForCar(Car car) {
+        car = fleet.resolve(car);
+        synchronized (stripeFor(car)) {
+            return rentalAt(car);
+        }
+    }
+
+    /**
+     * The customer's active rentals, matched by customer ID, most recent first. Walks only the
+     * customer's own rows of the rental table.
+     */
+    public Collection<Rental> getRentalsForCustomer(Customer customer) {
+        int ordinal = customers.findOrdinal(customer);
+        if (ordinal < 0) {
+            return Collections.emptyList();
+        }
+        List<Car> all = fleet.allCarsView();
+        List<Rental> held = new ArrayList<>();
+        for (int row : rentals.rowsOf(ordinal)) {
+            Car car = all.get(row);
+            synchronized (stripeFor(car)) {
+                if (rentals.isRented(row) && rentals.customer(row) == ordinal) {
+                    held.add(rentalAt(car));
+                }
+            }
+        }
+        return Collections.unmodifiableList(held);
+    }
+
+    /**
+     * Returns a read-only live view of the available cars, in the order they were added.
+     */
+    public Collection<Car> getAvailableCars() {
+        return fleet.availableView();
+    }
+
+    public int getAvailableCarCount() {
+        return fleet.availableCount();
+    }
+
+    /**
+     * Counts available cars of the given brand (any brand if null) costing at most
+     * {@code maxPricePerDay} a day, using the availability bitsets.
+     */
+    public int countAvailableCars(String brand, double maxPricePerDay) {
+        return availability.count(brand, maxPricePerDay);
+    }
+
+    /**
+     * Returns up to {@code limit} available cars of the given brand (any brand if null) costing
+     * at most {@code maxPricePerDay} a day, in the order they were added.
+     */
+    public List<Car> findAvailableCars(String brand, double maxPricePerDay, int limit) {
+        List<Car> matches = new ArrayList<>();
+        List<Car> all = fleet.allCarsView();
+        availability.forEach(brand, maxPricePerDay, ordinal -> {
+            if (ordinal < all.size()) {
+                matches.add(all.get(ordinal));
+            }
+            return matches.size() < limit;
+        });
+        return matches;
+    }
+
+    /**
+     * Returns up to {@code limit} available cars for what someone typed: the start of a car ID,
+     * or the start of words in the brand and model ("aud q"), with close spellings tried when
+     * nothing matches. Cars matched by ID come first.
+     */
+    public List<Car> searchAvailableCars(String query, int limit) {
+        long started = metrics.start();
+        List<Car> matches = new ArrayList<>();
+        List<Car> all = fleet.allCarsView();
+        for (int ordinal : search.search(query, limit)) {
+            if (ordinal < all.size()) {
+                matches.add(all.get(ordinal));
+            }
+        }
+        metrics.record(RentalMetrics.Op.SEARCH, started, !matches.isEmpty());
+        return matches;
+    }
+
+    /**
+     * Ordinals, in ascending order, of all cars (rented or not) of the given brand (any brand if
+     * null) costing at most {@code maxPricePerDay} a day.
+     */
+    int[] matchingCars(String brand, double maxPricePerDay) {
+        int[][] found = {new int[64]};
+        int[] count = new int[1];
+        int size = fleet.size();
+        availability.forEachCar(brand, maxPricePerDay, ordinal -> {
+            if (ordinal < size) {
+                if (count[0] == found[0].length) {
+                    found[0] = Arrays.copyOf(found[0], count[0] * 2);
+                }
+                found[0][count[0]++] = ordinal;
+            }
+            return true;
+        });
+        return Arrays.copyOf(found[0], count[0]);
+    }
+
+    /**
+     * Returns a read-only live view of the whole fleet, in the order the cars were added.
+     */
+    public List<Car> getAllCars() {
+        return fleet.allCarsView();
+    }
+
+    public int getCarCount() {
+        return fleet.size();
+    }
+
+    FleetStore getFleetStore() {
+        return fleet;
+    }
+
+    /**
+     * Returns a read-only snapshot of the active rentals. The snapshot is rebuilt
+     * lazily after a rent or return, so repeated calls in between are free.
+     */
+    public List<Rental> getRentals() {
+        long version = rentalsVersion.get();
+        RentalsSnapshot snapshot = rentalsSnapshot;
+        if (snapshot == null || snapshot.version != version) {
+            snapshot = new RentalsSnapshot(version, Collections.unmodifiableList(collectRentals()));
+            rentalsSnapshot = snapshot;
+        }
+        return snapshot.rentals;
+    }
+
+    // Builds a Rental for every car that is out, found through the availability bits.
+    private List<Rental> collectRentals() {
+        List<Rental> found = new ArrayList<>();
+        List<Car> all = fleet.allCarsView();
+        int size = all.size();
+        for (int word = 0, words = availability.wordCount(); word < words; word++) {
+            for (long out = ~availability.availableWord(word); out != 0; out &= out - 1) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(out);
+                if (ordinal >= size) {
+                    break;
+                }
+                Car car = all.get(ordinal);
+                synchronized (stripeFor(car)) {
+                    Rental rental = rentalAt(car);
+                    if (rental != null) {
+                        found.add(rental);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static final class RentalsSnapshot {
+        final long version;
+        final List<Rental> rentals;
+
+        RentalsSnapshot(long version, List<Rental> rentals) {
+            this.version = version;
+            this.rentals = rentals;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package carrental;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Finds available cars from what staff type: the start of a car ID ("id_00"), or the start of
+ * words in the brand and model ("aud q", "thar"), trying close spellings when nothing matches
+ * ("mahimdra").
+ *
+ * <p>Every brand and model word has a bitset of the cars that have it, kept in a sorted map so
+ * all words starting with a prefix form one range. A query ANDs those bitsets with the live
+ * availability bits of {@link AvailabilityIndex} a word at a time and stops at the first
+ * {@code limit} hits, so renting and returning need no bookkeeping here. Misspelt words are
+ * matched through the trigrams they share with known words.
+ *
+ * <p>Car IDs are not copied here: cars are kept as ordinals sorted by ID, and the IDs are read
+ * from the {@link FleetStore} when compared. The sorted ordinals are held in a few runs whose
+ * lengths grow from the newest to the oldest, merged like the carries of a binary counter, so
+ * each car is moved O(log n) times however the fleet grows.
+ */
+class CarSearchIndex {
+    // Bound the work of a query whose words start a great many car IDs or brand and model words.
+    private static final int MAX_ID_SCAN = 4_096;
+    private static final int MAX_PREFIX_WORDS = 256;
+    private static final int FUZZY_WORDS = 3;
+    private static final int MAX_CACHED_LABELS = 10_000;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final AvailabilityIndex.Bits[] NONE = new AvailabilityIndex.Bits[0];
+
+    private final FleetStore fleet;
+    private final AvailabilityIndex availability;
+    // Runs of ordinals sorted by ID ignoring case, oldest and longest first; replaced whole on
+    // change, and never changed once published, so searches read them without locking.
+    private volatile int[][] idRuns = new int[0][];
+    private final ConcurrentSkipListMap<String, AvailabilityIndex.Bits> words = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+    // Brands and models repeat across a fleet, so each is split into words only once.
+    private final Map<String, String[]> labelWords = new HashMap<>();
+
+    CarSearchIndex(FleetStore fleet, AvailabilityIndex availability) {
+        this.fleet = fleet;
+        this.availability = availability;
+    }
+
+    /**
+     * Indexes the {@code count} cars from ordinal {@code first} on, which the store already has.
+     * Called by a single writer at a time.
+     */
+    void add(int first, int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<Car> cars = fleet.allCarsView();
+        int[] run = new int[count];
+        for (int i = 0; i < count; i++) {
+            Car car = cars.get(first + i);
+            addWords(first + i, car.getBrand());
+            addWords(first + i, car.getModel());
+            run[i] = first + i;
+        }
+        run = sortById(run);
+        int[][] runs = idRuns;
+        int kept = runs.length;
+        while (kept > 0 && runs[kept - 1].length <= run.length) {
+            run = mergeById(runs[--kept], run);
+        }
+        int[][] updated = Arrays.copyOf(runs, kept + 1);
+        updated[kept] = run;
+        idRuns = updated;
+    }
+
+    // Bottom-up merge sort of ordinals by ID.
+    private int[] sortById(int[] ordinals) {
+        int[][] pieces = new int[ordinals.length][];
+        for (int i = 0; i < ordinals.length; i++) {
+            pieces[i] = new int[] {ordinals[i]};
+        }
+        for (int count = pieces.length; count > 1; count = (count + 1) / 2) {
+            for (int i = 0; i < count; i += 2) {
+                pieces[i / 2] = i + 1 < count ? mergeById(pieces[i], pieces[i + 1]) : pieces[i];
+            }
+        }
+        return pieces[0];
+    }
+
+    // Merges two runs sorted by ID, reading each ID from the store once.
+    private int[] mergeById(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        String left = fleet.idAt(a[0]);
+        String right = fleet.idAt(b[0]);
+        for (int k = 0; k < merged.length; k++) {
+            if (j == b.length || (i < a.length && String.CASE_INSENSITIVE_ORDER.compare(left, right) <= 0)) {
+                merged[k] = a[i++];
+                left = i < a.length ? fleet.idAt(a[i]) : null;
+            } else {
+                merged[k] = b[j++];
+                right = j < b.length ? fleet.idAt(b[j]) : null;
+            }
+        }
+        return merged;
+    }
+
+    private void addWords(int ordinal, String label) {
+        String[] split = labelWords.get(label);
+        if (split == null) {
+            split = NON_WORD.split(normalize(label));
+            if (labelWords.size() < MAX_CACHED_LABELS) {
+                labelWords.put(label, split);
+            }
+        }
+        for (String word : split) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            AvailabilityIndex.Bits bits = words.get(word);
+            if (bits == null) {
+                bits = new AvailabilityIndex.Bits();
+                words.put(word, bits);
+                for (String trigram : trigrams(word)) {
+                    trigrams.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(word);
+                }
+            }
+            bits.setSparse(ordinal);
+        }
+    }
+
+    private static String normalize(String text) {
+        return CustomerRegistry.normalizeName(text);
+    }
+
+    /**
+     * Ordinals of up to {@code limit} available cars matching the query. Cars whose ID starts
+     * with the first query word come first, then cars where every query word starts a word of
+     * the brand or model, each group in the order the cars were added.
+     */
+    int[] search(String query, int limit) {
+        String[] tokens = SPACES.split(query.trim());
+        if (limit <= 0 || tokens[0].isEmpty()) {
+            return new int[0];
+        }
+        String[] terms = new String[tokens.length];
+        AvailabilityIndex.Bits[][] matches = new AvailabilityIndex.Bits[tokens.length][];
+        for (int i = 0; i < tokens.length; i++) {
+            terms[i] = NON_WORD.matcher(normalize(tokens[i])).replaceAll("");
+            matches[i] = wordsStartingWith(terms[i]);
+        }
+        int[] found = new int[limit];
+        int count = findById(FleetStore.idKey(tokens[0]), matches, found);
+        count = findByWords(matches, found, count, count);
+        if (count == 0 && correctSpelling(terms, matches)) {
+            count = findByWords(matches, found, 0, 0);
+        }
+        return count == limit ? found : Arrays.copyOf(found, count);
+    }
+
+    private AvailabilityIndex.Bits[] wordsStartingWith(String prefix) {
+        if (prefix.isEmpty()) {
+            return NONE;
+        }
+        List<AvailabilityIndex.Bits> matching = new ArrayList<>();
+        for (AvailabilityIndex.Bits bits : words.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            matching.add(bits);
+            if (matching.size() == MAX_PREFIX_WORDS) {
+                break;
+            }
+        }
+        return matching.toArray(NONE);
+    }
+
+    // Walks the cars whose ID starts with the prefix in ID order, merging the runs as it goes.
+    private int findById(String prefix, AvailabilityIndex.Bits[][] matches, int[] found) {
+        int[][] runs = idRuns;
+        int[] next = new int[runs.length];
+        String[] heads = new String[runs.length];
+        for (int r = 0; r < runs.length; r++) {
+            next[r] = lowerBound(runs[r], prefix);
+            heads[r] = headWithPrefix(runs[r], next[r], prefix);
+        }
+        int count = 0;
+        for (int scanned = 0; scanned < MAX_ID_SCAN && count < found.length; scanned++) {
+            int lowest = -1;
+            for (int r = 0; r < runs.length; r++) {
+                if (heads[r] != null && (lowest < 0 || String.CASE_INSENSITIVE_ORDER.compare(heads[r], heads[lowest]) < 0)) {
+                    lowest = r;
+                }
+            }
+            if (lowest < 0) {
+                break;
+            }
+            int ordinal = runs[lowest][next[lowest]++];
+            heads[lowest] = headWithPrefix(runs[lowest], next[lowest], prefix);
+            if (availability.isAvailable(ordinal) && hasWords(ordinal, matches)) {
+                found[count++] = ordinal;
+            }
+        }
+        return count;
+    }
+
+    // Position of the first car in the run whose ID is not below the prefix.
+    private int lowerBound(int[] run, String prefix) {
+        int low = 0;
+        int high = run.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(fleet.idAt(run[middle]), prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // The ID at the position if it starts with the prefix, otherwise null.
+    private String headWithPrefix(int[] run, int at, String prefix) {
+        if (at >= run.length) {
+            return null;
+        }
+        String id = fleet.idAt(run[at]);
+        return id.regionMatches(true, 0, prefix, 0, prefix.length()) ? id : null;
+    }
+
+    // True if the car has a word starting with each query word after the first.
+    private static boolean hasWords(int ordinal, AvailabilityIndex.Bits[][] matches) {
+        for (int i = 1; i < matches.length; i++) {
+            boolean any = false;
+            for (AvailabilityIndex.Bits bits : matches[i]) {
+                if ((bits.word(ordinal >>> 6) & (1L << ordinal)) != 0) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends available cars having a word starting with every query word, skipping the first
+     * {@code skip} entries of {@code found} if met again. Returns the new count.
+     */
+    private int findByWords(AvailabilityIndex.Bits[][] matches, int[] found, int count, int skip) {
+        for (AvailabilityIndex.Bits[] match : matches) {
+            if (match.length == 0) {
+                return count;
+            }
+        }
+        long[][] pages = new long[matches.length][];
+        long[][] unions = new long[matches.length][];
+        int wordCount = availability.wordCount();
+        for (int page = 0; page << AvailabilityIndex.PAGE_SHIFT < wordCount && count < found.length; page++) {
+            if (!loadPages(matches, page, pages, unions)) {
+                continue;
+            }
+            long[] available = availability.availablePage(page);
+            int first = page << AvailabilityIndex.PAGE_SHIFT;
+            int end = Math.min(AvailabilityIndex.PAGE_WORDS, wordCount - first);
+            for (int w = 0; w < end && count < found.length; w++) {
+                long hits = available[w];
+                for (int i = 0; i < pages.length && hits != 0; i++) {
+                    hits &= pages[i][w];
+                }
+                for (; hits != 0 && count < found.length; hits &= hits - 1) {
+                    int ordinal = (first + w << 6) + Long.numberOfTrailingZeros(hits);
+                    if (!contains(found, skip, ordinal)) {
+                        found[count++] = ordinal;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Points {@code pages[i]} at the cars in the given page having a word starting with query
+     * word {@code i}, ORed together in {@code unions[i]} when several words do. Returns false
+     * if some query word has no such cars in this page.
+     */
+    private static boolean loadPages(AvailabilityIndex.Bits[][] matches, int page, long[][] pages, long[][] unions) {
+        for (int i = 0; i < matches.length; i++) {
+            pages[i] = null;
+            for (AvailabilityIndex.Bits bits : matches[i]) {
+                long[] words = bits.sparsePage(page);
+                if (words == null) {
+                    continue;
+                }
+                if (pages[i] == null) {
+                    pages[i] = words;
+                    continue;
+                }
+                if (pages[i] != unions[i]) {
+                    if (unions[i] == null) {
+                        unions[i] = new long[AvailabilityIndex.PAGE_WORDS];
+                    }
+                    System.arraycopy(pages[i], 0, unions[i], 0, AvailabilityIndex.PAGE_WORDS);
+                    pages[i] = unions[i];
+                }
+                for (int w = 0; w < AvailabilityIndex.PAGE_WORDS; w++) {
+                    unions[i][w] |= words[w];
+                }
+            }
+            if (pages[i] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] found, int count, int ordinal) {
+        for (int i = 0; i < count; i++) {
+            if (found[i] == ordinal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the matches of every query word that starts no known word with those of the
+     * closest known words. Returns false if some word has nothing close enough.
+     */
+    private boolean correctSpelling(String[] terms, AvailabilityIndex.Bits[][] matches) {
+        boolean corrected = false;
+        for (int i = 0; i < terms.length; i++) {
+            if (matches[i].length > 0) {
+                continue;
+            }
+            List<String> similar = closestWords(terms[i]);
+            if (similar.isEmpty()) {
+                return false;
+            }
+            matches[i] = new AvailabilityIndex.Bits[similar.size()];
+            for (int j = 0; j < similar.size(); j++) {
+                matches[i][j] = words.get(similar.get(j));
+            }
+            corrected = true;
+        }
+        return corrected;
+    }
+
+    // Known words sharing a trigram with the term and at most one or two edits from it, or from
+    // its length's worth of their start, closest first.
+    private List<String> closestWords(String term) {
+        if (term.length() < 3) {
+            return Collections.emptyList();
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : trigrams(term)) {
+            Set<String> having = trigrams.get(trigram);
+            if (having != null) {
+                for (String word : having) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        int maxEdits = term.length() <= 4 ? 1 : 2;
+        Map<String, Integer> edits = new HashMap<>();
+        for (String word : shared.keySet()) {
+            int distance = editDistance(term, word);
+            if (word.length() > term.length()) {
+                distance = Math.min(distance, editDistance(term, word.substring(0, term.length())));
+            }
+            if (distance <= maxEdits) {
+                edits.put(word, distance);
+            }
+        }
+        List<String> closest = new ArrayList<>(edits.keySet());
+        closest.sort(Comparator.comparingInt((String word) -> edits.get(word))
+                .thenComparing(word -> -shared.get(word))
+                .thenComparing(Comparator.naturalOrder()));
+        return closest.size() > FUZZY_WORDS ? closest.subList(0, FUZZY_WORDS) : closest;
+    }
+
+    private static String[] trigrams(String word) {
+        String padded = "$$" + word + "$$";
+        String[] result = new String[padded.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = padded.substring(i, i + 3);
+        }
+        return result;
+    }
+
+    // Edits (insertions, deletions, substitutions and swaps of neighbours) turning a into b.
+    private static int editDistance(String a, String b) {
+        int[] before = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], before[j - 2] + 1);
+                }
+            }
+            int[] spare = before;
+            before = previous;
+            previous = current;
+            current = spare;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,157 @@
+package carrental;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+
+/**
+ * Table model reading straight from a rental system's fleet. Nothing is copied: rows are the
+ * cars' ordinals, either all of them or those matching a brand and price filter, and cells are
+ * read from the live fleet only for the rows the table actually paints.
+ *
+ * <p>Added cars arrive through a {@link FleetListener}, and rents and returns through the rental
+ * event bus a batch at a time. Each batch makes one trip to the event dispatch thread, where only
+ * the rows from the first to the last changed car are repainted.
+ */
+class CarTableModel extends AbstractTableModel implements FleetListener, RentalEventHandler {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Car ID", "Brand", "Model", "Price/Day", "Status"};
+    private static final Class<?>[] TYPES = {String.class, String.class, String.class, Double.class, String.class};
+
+    private final CarRentalSystem system;
+    private final List<Car> cars;
+    private int carCount;
+    // Matching ordinals in ascending order, or null when the table shows every car.
+    private int[] rows;
+    private String brand;
+    private double maxPricePerDay = Double.POSITIVE_INFINITY;
+    // Lowest and highest ordinal changed in the batch being read; touched only by the event thread.
+    private int batchFirst = Integer.MAX_VALUE;
+    private int batchLast = -1;
+    private final RentalEventBus.Subscription subscription;
+
+    CarTableModel(CarRentalSystem system) {
+        this.system = system;
+        this.cars = system.getAllCars();
+        this.carCount = system.getCarCount();
+        system.addFleetListener(this);
+        subscription = system.subscribe("inventory-table", this);
+    }
+
+    void close() {
+        system.removeFleetListener(this);
+        subscription.close();
+    }
+
+    /**
+     * Shows only cars of the given brand (any brand if null) costing at most {@code maxPricePerDay}.
+     */
+    void setFilter(String brand, double maxPricePerDay) {
+        this.brand = brand;
+        this.maxPricePerDay = maxPricePerDay;
+        carCount = system.getCarCount();
+        rows = brand == null && maxPricePerDay == Double.POSITIVE_INFINITY
+                ? null
+                : system.matchingCars(brand, maxPricePerDay);
+        fireTableDataChanged();
+    }
+
+    Car getCarAt(int row) {
+        return cars.get(rows == null ? row : rows[row]);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows == null ? carCount : rows.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Car car = getCarAt(row);
+        switch (column) {
+            case 0:
+                return car.getCarId();
+            case 1:
+                return car.getBrand();
+            case 2:
+                return car.getModel();
+            case 3:
+                return car.getBasePricePerDay();
+            default:
+                return car.isAvailable() ? "Available" : "Rented";
+        }
+    }
+
+    @Override
+    public void carAdded(Car car) {
+        int ordinal = car.getOrdinal();
+        SwingUtilities.invokeLater(() -> {
+            if (rows != null) {
+                // Cheaper to re-run the bitset filter than to work out whether the new car matches.
+                setFilter(brand, maxPricePerDay);
+            } else if (ordinal >= carCount) {
+                int first = carCount;
+                carCount = ordinal + 1;
+                fireTableRowsInserted(first, ordinal);
+            }
+        });
+    }
+
+    @Override
+    public void carsAdded(List<Car> cars) {
+        // Inserting up to the last car's row covers all of them.
+        carAdded(cars.get(cars.size() - 1));
+    }
+
+    @Override
+    public void onEvent(RentalEvent event, long sequence, boolean endOfBatch) {
+        int ordinal = event.getCar().getOrdinal();
+        batchFirst = Math.min(batchFirst, ordinal);
+        batchLast = Math.max(batchLast, ordinal);
+        if (endOfBatch) {
+            int first = batchFirst;
+            int last = batchLast;
+            batchFirst = Integer.MAX_VALUE;
+            batchLast = -1;
+            SwingUtilities.invokeLater(() -> repaintCars(first, last));
+        }
+    }
+
+    @Override
+    public void onDropped(long count) {
+        SwingUtilities.invokeLater(() -> repaintCars(0, Integer.MAX_VALUE));
+    }
+
+    // Repaints the rows of cars with ordinals from first to last.
+    private void repaintCars(int first, int last) {
+        int firstRow;
+        int lastRow;
+        if (rows == null) {
+            firstRow = first;
+            lastRow = Math.min(last, carCount - 1);
+        } else {
+            int from = Arrays.binarySearch(rows, first);
+            int to = Arrays.binarySearch(rows, last);
+            firstRow = from >= 0 ? from : -from - 1;
+            lastRow = to >= 0 ? to : -to - 2;
+        }
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+}
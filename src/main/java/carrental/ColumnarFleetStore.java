@@ -0,0 +1,489 @@
+package carrental;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fleet store for very large inventories that keeps car attributes off the heap in
+ * memory-mapped, column-oriented files.
+ *
+ * <p>Brands and models are interned into small dictionaries and stored as {@code int}
+ * codes, prices are a {@code double} column and availability is a bitset with one bit per
+ * car ordinal. Car IDs are stored as UTF-8 bytes with an open-addressing hash index beside
+ * them. A {@link Car} object is only created when a caller asks for a particular car; the rental
+ * system's indexes read prices and IDs straight from the columns through {@link #priceAt} and
+ * {@link #idAt} rather than keeping copies of them on the heap.
+ *
+ * <p>The files are a working copy of the fleet rather than a durable record: availability
+ * is reset when the store is opened and open rentals are restored from the journal.
+ */
+class ColumnarFleetStore implements FleetStore, Closeable {
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int INITIAL_CARS = 1 << 12;
+
+    private final Path directory;
+    private final Column meta;
+    private final Column brands;
+    private final Column models;
+    private final Column prices;
+    private final Column availability;
+    private final Column idEnds;
+    private final Column idBytes;
+    private volatile IdIndex idIndex;
+
+    private final Dictionary brandDictionary;
+    private final Dictionary modelDictionary;
+    private final AtomicInteger availableCount = new AtomicInteger();
+    private volatile int size;
+    private long idBytesUsed;
+
+    private final Collection<Car> availableView = new AbstractCollection<Car>() {
+        @Override
+        public Iterator<Car> iterator() {
+            return new Iterator<Car>() {
+                private int next = nextAvailable(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Car next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    Car car = get(next);
+                    next = nextAvailable(next + 1);
+                    return car;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return availableCount.get();
+        }
+    };
+
+    private final List<Car> allCarsView = new AbstractList<Car>() {
+        @Override
+        public Car get(int index) {
+            return ColumnarFleetStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    private ColumnarFleetStore(Path directory) throws IOException {
+        this.directory = directory;
+        meta = new Column(directory.resolve("fleet.meta"), 16);
+        brands = new Column(directory.resolve("brand.col"), INITIAL_CARS * 4L);
+        models = new Column(directory.resolve("model.col"), INITIAL_CARS * 4L);
+        prices = new Column(directory.resolve("price.col"), INITIAL_CARS * 8L);
+        availability = new Column(directory.resolve("available.bits"), INITIAL_CARS / 8);
+        idEnds = new Column(directory.resolve("id.ends"), INITIAL_CARS * 8L);
+        idBytes = new Column(directory.resolve("id.bytes"), INITIAL_CARS * 8L);
+        brandDictionary = new Dictionary(directory.resolve("brands.dict"));
+        modelDictionary = new Dictionary(directory.resolve("models.dict"));
+    }
+
+    /**
+     * Opens the store in {@code directory}, creating it if needed.
+     */
+    public static ColumnarFleetStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "id-*.idx")) {
+            for (Path index : stale) {
+                Files.delete(index);
+            }
+        }
+        ColumnarFleetStore store = new ColumnarFleetStore(directory);
+        store.size = (int) store.meta.buffer().getLong(0);
+        store.idBytesUsed = store.meta.buffer().getLong(8);
+        store.rebuildIdIndex(Math.max(INITIAL_CARS * 2, Integer.highestOneBit(Math.max(1, store.size) * 4)));
+        for (int ordinal = 0; ordinal < store.size; ordinal++) {
+            store.writeAvailable(ordinal, true);
+        }
+        store.availableCount.set(store.size);
+        return store;
+    }
+
+    @Override
+    public synchronized void add(Car car) {
+        int ordinal = size;
+        byte[] id = car.getCarId().getBytes(StandardCharsets.UTF_8);
+        brands.ensure((ordinal + 1) * 4L);
+        models.ensure((ordinal + 1) * 4L);
+        prices.ensure((ordinal + 1) * 8L);
+        idEnds.ensure((ordinal + 1) * 8L);
+        availability.ensure(((ordinal >>> 6) + 1) * 8L);
+        idBytes.ensure(idBytesUsed + id.length);
+
+        brands.buffer().putInt(ordinal * 4, brandDictionary.code(car.getBrand()));
+        models.buffer().putInt(ordinal * 4, modelDictionary.code(car.getModel()));
+        prices.buffer().putDouble(ordinal * 8, car.getBasePricePerDay());
+        idBytes.buffer().put((int) idBytesUsed, id);
+        idBytesUsed += id.length;
+        idEnds.buffer().putLong(ordinal * 8, idBytesUsed);
+        car.setOrdinal(ordinal);
+        if (car.isAvailable()) {
+            writeAvailable(ordinal, true);
+            availableCount.incrementAndGet();
+        }
+
+        if ((ordinal + 1) * 2L > idIndex.mask + 1L) {
+            rebuildIdIndex((idIndex.mask + 1) * 2);
+        }
+        insertId(ordinal, FleetStore.idKey(car.getCarId()).hashCode());
+        meta.buffer().putLong(8, idBytesUsed);
+        meta.buffer().putLong(0, ordinal + 1);
+        size = ordinal + 1;
+    }
+
+    /**
+     * Materializes the car at the given ordinal.
+     */
+    public Car get(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Car ordinal " + ordinal);
+        }
+        return new StoredCar(this, ordinal, carId(ordinal),
+                brandDictionary.value(brands.buffer().getInt(ordinal * 4)),
+                modelDictionary.value(models.buffer().getInt(ordinal * 4)),
+                prices.buffer().getDouble(ordinal * 8));
+    }
+
+    @Override
+    public String idAt(int ordinal) {
+        return carId(ordinal);
+    }
+
+    @Override
+    public double priceAt(int ordinal) {
+        return prices.buffer().getDouble(ordinal * 8);
+    }
+
+    private String carId(int ordinal) {
+        ByteBuffer ends = idEnds.buffer();
+        int start = ordinal == 0 ? 0 : (int) ends.getLong((ordinal - 1) * 8);
+        int end = (int) ends.getLong(ordinal * 8);
+        byte[] bytes = new byte[end - start];
+        idBytes.buffer().get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Car byId(String carId) {
+        String key = FleetStore.idKey(carId);
+        IdIndex index = idIndex;
+        int mask = index.mask;
+        ByteBuffer slots = index.column.buffer();
+        int limit = size;
+        for (int slot = spread(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots.getInt(slot * 4);
+            if (entry == 0) {
+                return null;
+            }
+            int ordinal = entry - 1;
+            if (ordinal < limit && carId(ordinal).equalsIgnoreCase(carId)) {
+                return get(ordinal);
+            }
+        }
+    }
+
+    @Override
+    public Car resolve(Car car) {
+        if (car instanceof StoredCar && ((StoredCar) car).store == this) {
+            return car;
+        }
+        int ordinal = car.getOrdinal();
+        if (ordinal >= 0 && ordinal < size && carId(ordinal).equals(car.getCarId())) {
+            return get(ordinal);
+        }
+        Car stored = byId(car.getCarId());
+        return stored != null ? stored : car;
+    }
+
+    @Override
+    public void setAvailable(Car car, boolean available) {
+        int ordinal = car.getOrdinal();
+        if (writeAvailable(ordinal, available)) {
+            if (available) {
+                availableCount.incrementAndGet();
+            } else {
+                availableCount.decrementAndGet();
+            }
+        }
+    }
+
+    boolean isAvailable(int ordinal) {
+        return (availability.buffer().getLong((ordinal >>> 6) * 8) & (1L << ordinal)) != 0;
+    }
+
+    // Flips one availability bit with a CAS, since neighbouring cars share the word. Returns true if it changed.
+    private boolean writeAvailable(int ordinal, boolean available) {
+        ByteBuffer words = availability.buffer();
+        int offset = (ordinal >>> 6) * 8;
+        long bit = 1L << ordinal;
+        while (true) {
+            long word = (long) WORDS.getVolatile(words, offset);
+            long updated = available ? word | bit : word & ~bit;
+            if (updated == word) {
+                return false;
+            }
+            if (WORDS.compareAndSet(words, offset, word, updated)) {
+                return true;
+            }
+        }
+    }
+
+    private int nextAvailable(int from) {
+        int limit = size;
+        if (from >= limit) {
+            return -1;
+        }
+        ByteBuffer words = availability.buffer();
+        int wordIndex = from >>> 6;
+        long word = words.getLong(wordIndex * 8) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int ordinal = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return ordinal < limit ? ordinal : -1;
+            }
+            if (++wordIndex > (limit - 1) >>> 6) {
+                return -1;
+            }
+            word = words.getLong(wordIndex * 8);
+        }
+    }
+
+    private void insertId(int ordinal, int hash) {
+        IdIndex index = idIndex;
+        ByteBuffer slots = index.column.buffer();
+        int mask = index.mask;
+        int slot = spread(hash) & mask;
+        while (slots.getInt(slot * 4) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.putInt(slot * 4, ordinal + 1);
+    }
+
+    // Builds a fresh index file and swaps it in, so concurrent lookups never see a half-filled table.
+    private void rebuildIdIndex(int capacity) throws UncheckedIOException {
+        try {
+            IdIndex old = idIndex;
+            Path file = directory.resolve("id-" + capacity + ".idx");
+            Files.deleteIfExists(file);
+            Column index = new Column(file, capacity * 4L);
+            ByteBuffer slots = index.buffer();
+            int mask = capacity - 1;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                int slot = spread(FleetStore.idKey(carId(ordinal)).hashCode()) & mask;
+                while (slots.getInt(slot * 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.putInt(slot * 4, ordinal + 1);
+            }
+            idIndex = new IdIndex(index, mask);
+            if (old != null) {
+                old.column.close();
+                Files.deleteIfExists(old.column.file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int availableCount() {
+        return availableCount.get();
+    }
+
+    @Override
+    public Collection<Car> availableView() {
+        return availableView;
+    }
+
+    @Override
+    public List<Car> allCarsView() {
+        return allCarsView;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Column column : new Column[] {meta, brands, models, prices, availability, idEnds, idBytes, idIndex.column}) {
+            column.close();
+        }
+        brandDictionary.close();
+        modelDictionary.close();
+    }
+
+    /**
+     * The ID hash table and its mask. A rebuild publishes both at once, so a lookup never pairs
+     * a table with the mask of another.
+     */
+    private static final class IdIndex {
+        final Column column;
+        final int mask;
+
+        IdIndex(Column column, int mask) {
+            this.column = column;
+            this.mask = mask;
+        }
+    }
+
+    /**
+     * A car materialized from the columns. Availability is read from and written to the bitset,
+     * and two instances for the same ordinal are equal.
+     */
+    static final class StoredCar extends Car {
+        final ColumnarFleetStore store;
+
+        StoredCar(ColumnarFleetStore store, int ordinal, String carId, String brand, String model, double price) {
+            super(carId, brand, model, price);
+            this.store = store;
+            setOrdinal(ordinal);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return store.isAvailable(getOrdinal());
+        }
+
+        @Override
+        public void rent() {
+            store.setAvailable(this, false);
+        }
+
+        @Override
+        public void returnCar() {
+            store.setAvailable(this, true);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StoredCar && ((StoredCar) other).store == store
+                    && ((StoredCar) other).getOrdinal() == getOrdinal();
+        }
+
+        @Override
+        public int hashCode() {
+            return getOrdinal();
+        }
+    }
+
+    /**
+     * A memory-mapped file that grows by doubling. Readers always see a mapping that covers every
+     * row published through {@code size}, because the file only ever grows.
+     */
+    private static final class Column implements Closeable {
+        final Path file;
+        private final FileChannel channel;
+        private volatile MappedByteBuffer buffer;
+
+        Column(Path file, long initialBytes) throws IOException {
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(Math.max(Math.max(initialBytes, 8), channel.size()));
+        }
+
+        ByteBuffer buffer() {
+            return buffer;
+        }
+
+        void ensure(long bytes) {
+            if (bytes > buffer.capacity()) {
+                try {
+                    map(Math.max(bytes, buffer.capacity() * 2L));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void map(long bytes) throws IOException {
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Column " + file.getFileName() + " would exceed 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mapped.order(ByteOrder.nativeOrder());
+            buffer = mapped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Interns brand or model names to dense codes, appending new names to a text file.
+     */
+    private static final class Dictionary implements Closeable {
+        private final List<String> values = new CopyOnWriteArrayList<>();
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private final BufferedWriter writer;
+
+        Dictionary(Path file) throws IOException {
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    codes.put(line, values.size());
+                    values.add(line);
+                }
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            try {
+                writer.write(value);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            values.add(value);
+            codes.put(value, values.size() - 1);
+            return values.size() - 1;
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package carrental;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link PricingRules} flattened into lookup tables, so that a quote is a handful of array reads
+ * and multiplications whatever the number of rules:
+ * <ul>
+ * <li>a running total of day rates, so the rate of any date range is one subtraction;</li>
+ * <li>the long-rental factor for every rental length up to the longest rule;</li>
+ * <li>the factor of every brand with a rule.</li>
+ * </ul>
+ * Rentals reaching outside the compiled dates are priced day by day from the rules instead, and
+ * those quotes are kept in a {@link QuoteCache}.
+ */
+class CompiledPricingEngine implements PricingEngine {
+    private static final long ONE = 10_000;
+
+    private final PricingRules rules;
+    private final long firstDay;
+    private final long[] cumulativeRate;
+    private final int[] lengthFactor;
+    private final Map<String, Integer> brandFactor = new ConcurrentHashMap<>();
+    private final Map<String, Integer> brandRules;
+    private final QuoteCache outsideTables = new QuoteCache(this::quoteDayByDay, 4096);
+    private final CurrentDay today = new CurrentDay();
+
+    CompiledPricingEngine(PricingRules rules, LocalDate from, LocalDate until) {
+        this.rules = rules;
+        this.firstDay = from.toEpochDay();
+        int span = (int) (until.toEpochDay() - firstDay);
+        cumulativeRate = new long[span + 1];
+        for (int i = 0; i < span; i++) {
+            cumulativeRate[i + 1] = cumulativeRate[i] + dayRate(from.plusDays(i));
+        }
+        TreeMap<Integer, Integer> tiers = rules.longRentalAdjustments();
+        lengthFactor = new int[tiers.isEmpty() ? 1 : tiers.lastKey() + 1];
+        for (int days = 0; days < lengthFactor.length; days++) {
+            Map.Entry<Integer, Integer> tier = tiers.floorEntry(days);
+            lengthFactor[days] = factor(tier == null ? 0 : tier.getValue());
+        }
+        brandRules = new HashMap<>(rules.brandAdjustments());
+    }
+
+    private long dayRate(LocalDate date) {
+        return factor(rules.dayAdjustment(date));
+    }
+
+    private static int factor(int adjustment) {
+        return (int) Math.max(0, ONE + adjustment);
+    }
+
+    @Override
+    public long quote(Car car, LocalDate startDate, int days) {
+        return quote(car, startDate.toEpochDay(), days);
+    }
+
+    @Override
+    public long quote(Car car, int days) {
+        return quote(car, today.epochDay(), days);
+    }
+
+    private long quote(Car car, long startDay, int days) {
+        if (days <= 0) {
+            return 0;
+        }
+        long start = startDay - firstDay;
+        long end = start + days;
+        if (start < 0 || end >= cumulativeRate.length) {
+            return outsideTables.quote(car, startDay, days);
+        }
+        return price(car, cumulativeRate[(int) end] - cumulativeRate[(int) start], days);
+    }
+
+    private long quoteDayByDay(Car car, LocalDate startDate, int days) {
+        long rate = 0;
+        for (int day = 0; day < days; day++) {
+            rate += dayRate(startDate.plusDays(day));
+        }
+        return price(car, rate, days);
+    }
+
+    private long price(Car car, long rate, int days) {
+        long factor = (long) lengthFactor[Math.min(days, lengthFactor.length - 1)] * brandFactor(car.getBrand());
+        return scale(scale(car.getBasePriceMinor(), rate, ONE), factor, ONE * ONE);
+    }
+
+    private int brandFactor(String brand) {
+        Integer factor = brandFactor.get(brand);
+        if (factor == null) {
+            factor = factor(brandRules.getOrDefault(FleetStore.idKey(brand), 0));
+            brandFactor.put(brand, factor);
+        }
+        return factor;
+    }
+
+    // amount * numerator / denominator, rounded half up; numerator and denominator are positive.
+    private static long scale(long amount, long numerator, long denominator) {
+        long high = Math.multiplyHigh(amount, numerator);
+        long low = amount * numerator;
+        if (high == 0 && low >= 0) {
+            return (low + denominator / 2) / denominator;
+        }
+        return java.math.BigInteger.valueOf(amount).multiply(java.math.BigInteger.valueOf(numerator))
+                .add(java.math.BigInteger.valueOf(denominator / 2))
+                .divide(java.math.BigInteger.valueOf(denominator)).longValueExact();
+    }
+
+}
@@ -0,0 +1,28 @@
+package carrental;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Today's date as an epoch day. {@code LocalDate.now()} is slow enough to show up in quotes, so
+ * the day is worked out once and kept until midnight.
+ */
+final class CurrentDay {
+    private final Clock clock = Clock.systemDefaultZone();
+    private volatile LocalDate date;
+    private volatile long endsAt;
+
+    long epochDay() {
+        return date().toEpochDay();
+    }
+
+    LocalDate date() {
+        long now = clock.millis();
+        if (now >= endsAt) {
+            LocalDate today = LocalDate.now(clock);
+            date = today;
+            endsAt = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        }
+        return date;
+    }
+}
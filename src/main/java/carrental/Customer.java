@@ -0,0 +1,58 @@
+package carrental;
+
+import java.util.Locale;
+
+/**
+ * Represents a customer renting a car.
+ */
+class Customer {
+    private String customerId;
+    private String name;
+    private String contact;
+    // The ID upper-cased, as registries key it, made once rather than on every lookup.
+    private final String idKey;
+    // The number the first registry to see this customer gave them; see CustomerRegistry.ordinal.
+    private int ordinal;
+    private volatile CustomerRegistry numberedBy;
+
+    public Customer(String customerId, String name) {
+        this(customerId, name, "");
+    }
+
+    /**
+     * @param contact phone number or e-mail address, or an empty string if not given
+     */
+    public Customer(String customerId, String name, String contact) {
+        this.customerId = customerId;
+        this.name = name;
+        this.contact = contact;
+        this.idKey = customerId.toUpperCase(Locale.ROOT);
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContact() {
+        return contact;
+    }
+
+    String getIdKey() {
+        return idKey;
+    }
+
+    int getOrdinal(CustomerRegistry registry) {
+        return numberedBy == registry ? ordinal : -1;
+    }
+
+    void setOrdinal(CustomerRegistry registry, int ordinal) {
+        if (numberedBy == null) {
+            this.ordinal = ordinal;
+            numberedBy = registry;
+        }
+    }
+}
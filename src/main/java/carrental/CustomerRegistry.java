@@ -0,0 +1,168 @@
+package carrental;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * All customers of a rental system, each kept once. A customer is known by ID and by a key made
+ * from their name and contact details with case, accents, spacing and phone punctuation removed,
+ * so a returning customer typed slightly differently is still found. Customers who give no
+ * contact details cannot be told apart by name alone, so one of them is only taken for another
+ * of the same name once they have no car rented; otherwise they are registered anew. That keeps
+ * the registry from growing with every anonymous rental. New customers get short sequential IDs.
+ *
+ * <p>Customers who rent are also numbered from zero, so a rental can name its customer with an
+ * {@code int}; see {@link #ordinal}.
+ */
+class CustomerRegistry {
+    private static final String ID_PREFIX = "CUS-";
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern PHONE_PUNCTUATION = Pattern.compile("[\\s().\\-/]+");
+
+    private final Map<String, Customer> byId = new ConcurrentHashMap<>();
+    private final Map<String, Customer> byKey = new ConcurrentHashMap<>();
+    // The customer last registered without contact details under each normalized name.
+    private final Map<String, Customer> anonymous = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    // Customer numbers by ID key, and customers by number; both grow under ordinalLock.
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final Object ordinalLock = new Object();
+    private volatile Customer[] byOrdinal = new Customer[64];
+    private int ordinalCount;
+
+    /**
+     * Returns the customer with this name and contact, registering them under a new ID if they
+     * are not known yet. Without a contact, the last customer registered under the name is
+     * returned only if {@code reusable} accepts them. {@code onCreate} is called with the
+     * customer only if they are new.
+     */
+    Customer register(String name, String contact, Predicate<Customer> reusable, Consumer<Customer> onCreate) {
+        if (contact.trim().isEmpty()) {
+            return anonymous.compute(normalizeName(name),
+                    (key, last) -> last != null && reusable.test(last) ? last : create(name, contact, onCreate));
+        }
+        return byKey.computeIfAbsent(key(name, contact), key -> create(name, contact, onCreate));
+    }
+
+    private Customer create(String name, String contact, Consumer<Customer> onCreate) {
+        Customer customer = new Customer(ID_PREFIX + lastId.incrementAndGet(), name.trim(), contact.trim());
+        byId.put(idKey(customer.getCustomerId()), customer);
+        onCreate.accept(customer);
+        return customer;
+    }
+
+    /**
+     * Adds a customer that already has an ID, such as one being restored. Returns false if a
+     * customer with that ID is already registered.
+     */
+    boolean add(Customer customer) {
+        if (byId.putIfAbsent(idKey(customer.getCustomerId()), customer) != null) {
+            return false;
+        }
+        if (!customer.getContact().trim().isEmpty()) {
+            byKey.putIfAbsent(key(customer.getName(), customer.getContact()), customer);
+        } else {
+            anonymous.put(normalizeName(customer.getName()), customer);
+        }
+        // Generated IDs must stay clear of the ones restored.
+        String id = customer.getCustomerId();
+        if (id.startsWith(ID_PREFIX) && id.length() > ID_PREFIX.length() && id.length() < ID_PREFIX.length() + 18) {
+            try {
+                long number = Long.parseLong(id.substring(ID_PREFIX.length()));
+                lastId.accumulateAndGet(number, Math::max);
+            } catch (NumberFormatException ignored) {
+                // An ID from before sequential numbering.
+            }
+        }
+        return true;
+    }
+
+    Customer find(String name, String contact) {
+        return contact.trim().isEmpty() ? null : byKey.get(key(name, contact));
+    }
+
+    Customer byId(String customerId) {
+        return byId.get(idKey(customerId));
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    /**
+     * The customer's number, given the first time it is asked for. Customers with the same ID
+     * share a number, whether or not they were registered. Allocates nothing once the customer
+     * has a number, even if another registry numbered them first.
+     */
+    int ordinal(Customer customer) {
+        int ordinal = customer.getOrdinal(this);
+        if (ordinal >= 0) {
+            return ordinal;
+        }
+        String key = customer.getIdKey();
+        Integer known = ordinals.get(key);
+        if (known != null) {
+            return known;
+        }
+        synchronized (ordinalLock) {
+            known = ordinals.get(key);
+            if (known != null) {
+                return known;
+            }
+            ordinal = ordinalCount++;
+            Customer[] numbered = byOrdinal;
+            if (ordinal == numbered.length) {
+                numbered = Arrays.copyOf(numbered, ordinal * 2);
+            }
+            numbered[ordinal] = customer;
+            byOrdinal = numbered;
+            ordinals.put(key, ordinal);
+            customer.setOrdinal(this, ordinal);
+            return ordinal;
+        }
+    }
+
+    Customer byOrdinal(int ordinal) {
+        return byOrdinal[ordinal];
+    }
+
+    /**
+     * The customer's number, or -1 if none has been given out yet.
+     */
+    int findOrdinal(Customer customer) {
+        int ordinal = customer.getOrdinal(this);
+        if (ordinal >= 0) {
+            return ordinal;
+        }
+        Integer known = ordinals.get(customer.getIdKey());
+        return known == null ? -1 : known;
+    }
+
+    List<Customer> list() {
+        return new ArrayList<>(byId.values());
+    }
+
+    private static String idKey(String customerId) {
+        return customerId.toUpperCase(Locale.ROOT);
+    }
+
+    static String key(String name, String contact) {
+        return normalizeName(name) + '\n' + normalizeContact(contact);
+    }
+
+    static String normalizeName(String name) {
+        String plain = COMBINING_MARKS.matcher(java.text.Normalizer.normalize(name, java.text.Normalizer.Form.NFKD))
+                .replaceAll("");
+        return SPACES.matcher(plain.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizeContact(String contact) {
+        String trimmed = contact.trim().toLowerCase(Locale.ROOT);
+        return trimmed.indexOf('@') >= 0 ? trimmed : PHONE_PUNCTUATION.matcher(trimmed).replaceAll("");
+    }
+}
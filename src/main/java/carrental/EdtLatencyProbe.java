@@ -0,0 +1,97 @@
+package carrental;
+
+import javax.swing.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures how long the event dispatch thread takes to pick up a task. A daemon thread posts a
+ * tiny task every few milliseconds, never more than one at a time, and records how long it
+ * waited; a wait longer than the stall threshold is reported as it happens.
+ */
+class EdtLatencyProbe implements Closeable {
+    private static final int SAMPLES = 1 << 14;
+
+    private final long intervalMillis;
+    private final long stallNanos;
+    private final Consumer<String> reporter;
+    private final long[] samples = new long[SAMPLES];
+    private long count;
+    private long stalls;
+    private long max;
+    private volatile boolean running = true;
+    private final Thread thread;
+
+    EdtLatencyProbe(long intervalMillis, long stallMillis, Consumer<String> reporter) {
+        this.intervalMillis = intervalMillis;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+        this.reporter = reporter;
+        this.thread = new Thread(this::probeLoop, "edt-latency-probe");
+        this.thread.setDaemon(true);
+    }
+
+    EdtLatencyProbe start() {
+        thread.start();
+        return this;
+    }
+
+    private void probeLoop() {
+        Object done = new Object();
+        while (running) {
+            long posted = System.nanoTime();
+            boolean[] ran = new boolean[1];
+            SwingUtilities.invokeLater(() -> {
+                record(System.nanoTime() - posted);
+                synchronized (done) {
+                    ran[0] = true;
+                    done.notifyAll();
+                }
+            });
+            try {
+                synchronized (done) {
+                    while (!ran[0] && running) {
+                        done.wait(100);
+                    }
+                }
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void record(long latency) {
+        samples[(int) (count++ & (SAMPLES - 1))] = latency;
+        max = Math.max(max, latency);
+        if (latency >= stallNanos) {
+            stalls++;
+            reporter.accept(String.format("EDT stalled for %.1f ms", latency / 1e6));
+        }
+    }
+
+    synchronized long stalls() {
+        return stalls;
+    }
+
+    /**
+     * Latency percentiles over the most recent samples, and the worst seen, in milliseconds.
+     */
+    synchronized String summary() {
+        long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+        Arrays.sort(sorted);
+        return String.format("EDT latency over %d probes: p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d stalls",
+                count, percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, max / 1e6, stalls);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (p * sorted.length))];
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+}
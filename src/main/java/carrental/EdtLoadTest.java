@@ -0,0 +1,99 @@
+package carrental;
+
+import javax.swing.*;
+import java.nio.file.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Scripted load for the GUI's event loop: replays rent and return clicks on the event dispatch
+ * thread while an {@link EdtLatencyProbe} watches for stalls, either doing the work right in
+ * the handler as the GUI used to ({@code --mode sync}) or through {@link RentalService}
+ * ({@code --mode async}). Runs headless.
+ *
+ * <pre>
+ * java -cp target/classes carrental.EdtLoadTest [--cars 10000] [--clicks 2000] [--mode async|sync] [--stall ms]
+ * </pre>
+ */
+class EdtLoadTest {
+    // Every click is the same returning customer.
+    private static final String LOAD_TEST_CONTACT = "load.test@example.com";
+
+    public static void main(String[] args) throws Exception {
+        int cars = 10_000;
+        int clicks = 2_000;
+        boolean async = true;
+        long stallMillis = 50;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cars":
+                    cars = Integer.parseInt(args[++i]);
+                    break;
+                case "--clicks":
+                    clicks = Integer.parseInt(args[++i]);
+                    break;
+                case "--mode":
+                    async = !"sync".equals(args[++i]);
+                    break;
+                case "--stall":
+                    stallMillis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        // Journaled, like the GUI, so every click waits for the disk.
+        Path dataDir = Files.createTempDirectory("rental-edt");
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal journal = RentalJournal.open(dataDir, system);
+        for (int i = 0; i < cars; i++) {
+            system.addCar(new Car(String.format("ID_%06d", i), "BMW", "BMW X3", 2600.0));
+        }
+        RentalService service = new RentalService(system);
+        EdtLatencyProbe probe = new EdtLatencyProbe(2, stallMillis, message -> { }).start();
+
+        // Each click rents a car and returns it again; a few clicks are in flight at once.
+        Semaphore inFlight = new Semaphore(4);
+        CountDownLatch finished = new CountDownLatch(clicks);
+        long started = System.nanoTime();
+        for (int i = 0; i < clicks; i++) {
+            String carId = String.format("ID_%06d", i % cars);
+            inFlight.acquire();
+            boolean viaService = async;
+            SwingUtilities.invokeLater(() -> {
+                Runnable done = () -> {
+                    inFlight.release();
+                    finished.countDown();
+                };
+                if (viaService) {
+                    service.prepareRental(carId, "Load Test", LOAD_TEST_CONTACT, 3)
+                            .thenCompose(offer -> offer == null
+                                    ? CompletableFuture.completedFuture(null)
+                                    : service.rent(offer).thenCompose(rented -> service.returnCar(carId)))
+                            .whenComplete((car, failure) -> SwingUtilities.invokeLater(done));
+                } else {
+                    Car car = system.findAvailableCarById(carId);
+                    if (car != null) {
+                        Customer customer = system.registerCustomer("Load Test", LOAD_TEST_CONTACT);
+                        system.calculatePrice(car, 3);
+                        system.rentCar(car, customer, 3);
+                        system.returnCar(car);
+                    }
+                    done.run();
+                }
+            });
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - started;
+        probe.close();
+        service.close();
+        journal.close();
+
+        System.out.printf("%s: %d clicks in %.0f ms (%.0f clicks/s)%n", async ? "async" : "sync", clicks,
+                elapsed / 1e6, clicks * 1e9 / elapsed);
+        System.out.println(probe.summary());
+    }
+}
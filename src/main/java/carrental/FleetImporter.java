@@ -0,0 +1,458 @@
+package carrental;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a large fleet from a file in one streaming pass. The file is read through a channel in
+ * fixed-size chunks cut at record boundaries; chunks are parsed in parallel on a fork-join pool
+ * and then added to the rental system in file order, a whole chunk per call to
+ * {@link CarRentalSystem#addCars}. Only a few chunks are in memory at once, whatever the size of
+ * the file. Cars whose ID is already in the fleet, or earlier in the file, are skipped.
+ *
+ * <p>Two formats are read:
+ * <ul>
+ * <li>CSV with the columns {@code carId,brand,model,pricePerDay}, one car per line, an optional
+ * header line, and fields optionally in double quotes (quoted fields may not span lines);</li>
+ * <li>a compact binary format: the bytes {@code FLT1}, then per car the ID, brand and model as
+ * UTF-8 strings each preceded by a two-byte length, and the price as an eight-byte double, all
+ * big-endian. {@link #writeBinary} writes it.</li>
+ * </ul>
+ * The format is recognised from the first bytes of the file.
+ */
+class FleetImporter {
+    static final byte[] BINARY_MAGIC = {'F', 'L', 'T', '1'};
+    private static final int CHUNK_SIZE = 4 << 20;
+    private static final int MAX_ERRORS = 20;
+    private static final int MAX_CANONICAL = 1 << 16;
+
+    private final CarRentalSystem system;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    // Brand and model names repeat across a fleet, so one copy of each is shared by every car.
+    private final Map<String, String> canonical = new ConcurrentHashMap<>();
+
+    FleetImporter(CarRentalSystem system) {
+        this(system, ForkJoinPool.commonPool());
+    }
+
+    FleetImporter(CarRentalSystem system, ForkJoinPool pool) {
+        this.system = system;
+        this.pool = pool;
+        this.maxInFlight = pool.getParallelism() + 2;
+    }
+
+    /**
+     * What an import did.
+     */
+    static final class Result {
+        long read;
+        long added;
+        long duplicates;
+        long malformed;
+        long nanos;
+        final List<String> errors = new ArrayList<>();
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getAdded() {
+            return added;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        /**
+         * The first few malformed records, with where they were found.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("read %d cars, added %d, skipped %d duplicates and %d malformed records in %d ms",
+                    read, added, duplicates, malformed, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    // One parsed chunk.
+    private static final class Batch {
+        final List<Car> cars = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        long malformed;
+    }
+
+    public Result importFile(Path file) throws IOException {
+        long started = System.nanoTime();
+        Result result = new Result();
+        Deque<ForkJoinTask<Batch>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            boolean binary = startsWithMagic(channel, buffer);
+            boolean header = true;
+            long line = 1;
+            while (true) {
+                boolean eof = channel.read(buffer) < 0;
+                buffer.flip();
+                int end = eof ? buffer.limit() : (binary ? binaryBoundary(buffer) : lastNewline(buffer));
+                if (end < 0) {
+                    if (buffer.limit() == buffer.capacity()) {
+                        throw new IOException(file + ": record longer than " + CHUNK_SIZE + " bytes");
+                    }
+                    buffer.compact();
+                    continue;
+                }
+                byte[] chunk = new byte[end];
+                buffer.get(chunk);
+                buffer.compact();
+                if (chunk.length > 0) {
+                    long firstLine = line;
+                    boolean skipHeader = header;
+                    ForkJoinTask<Batch> task = binary
+                            ? pool.submit(() -> parseBinary(chunk))
+                            : pool.submit(() -> parseCsv(chunk, firstLine, skipHeader));
+                    inFlight.addLast(task);
+                    if (!binary) {
+                        line += countNewlines(chunk);
+                    }
+                    header = false;
+                }
+                while (inFlight.size() >= maxInFlight || (eof && !inFlight.isEmpty())) {
+                    commit(inFlight.removeFirst().join(), result);
+                }
+                if (eof) {
+                    break;
+                }
+            }
+        } finally {
+            for (ForkJoinTask<Batch> task : inFlight) {
+                task.cancel(true);
+            }
+        }
+        canonical.clear();
+        result.nanos = System.nanoTime() - started;
+        return result;
+    }
+
+    private void commit(Batch batch, Result result) {
+        int added = system.addCars(batch.cars);
+        result.read += batch.cars.size() + batch.malformed;
+        result.added += added;
+        result.duplicates += batch.cars.size() - added;
+        result.malformed += batch.malformed;
+        for (String error : batch.errors) {
+            if (result.errors.size() < MAX_ERRORS) {
+                result.errors.add(error);
+            }
+        }
+    }
+
+    private static boolean startsWithMagic(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.position() < BINARY_MAGIC.length && channel.read(buffer) >= 0) {
+            // Keep reading; a channel may return fewer bytes than asked for.
+        }
+        if (buffer.position() >= BINARY_MAGIC.length) {
+            for (int i = 0; i < BINARY_MAGIC.length; i++) {
+                if (buffer.get(i) != BINARY_MAGIC[i]) {
+                    return false;
+                }
+            }
+            buffer.flip();
+            buffer.position(BINARY_MAGIC.length);
+            buffer.compact();
+            return true;
+        }
+        return false;
+    }
+
+    private static int lastNewline(ByteBuffer buffer) {
+        for (int i = buffer.limit() - 1; i >= buffer.position(); i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // End of the last whole record in the buffer, or -1 if there is none.
+    private static int binaryBoundary(ByteBuffer buffer) {
+        int end = -1;
+        for (int next = recordEnd(buffer, buffer.position()); next >= 0; next = recordEnd(buffer, next)) {
+            end = next;
+        }
+        return end;
+    }
+
+    // End of the record starting at the given position, or -1 if the buffer stops inside it.
+    private static int recordEnd(ByteBuffer buffer, int position) {
+        int next = position;
+        for (int field = 0; field < 3 && next >= 0; field++) {
+            next = next + 2 <= buffer.limit() ? next + 2 + (buffer.getShort(next) & 0xFFFF) : -1;
+        }
+        return next < 0 || next + 8 > buffer.limit() ? -1 : next + 8;
+    }
+
+    private static long countNewlines(byte[] chunk) {
+        long lines = 0;
+        for (byte b : chunk) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private Batch parseCsv(byte[] chunk, long firstLine, boolean mayHaveHeader) {
+        Batch batch = new Batch();
+        String text = new String(chunk, StandardCharsets.UTF_8);
+        List<String> fields = new ArrayList<>(4);
+        long line = firstLine;
+        for (int start = 0; start < text.length(); line++) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end;
+            int last = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            if (last > start) {
+                boolean parsed = splitCsv(text, start, last, fields);
+                if (parsed && line == 1 && mayHaveHeader && fields.get(0).equalsIgnoreCase("carId")) {
+                    start = end + 1;
+                    continue;
+                }
+                String error = parsed ? addCar(batch, fields) : "unbalanced quotes";
+                if (error != null) {
+                    batch.malformed++;
+                    if (batch.errors.size() < MAX_ERRORS) {
+                        batch.errors.add("line " + line + ": " + error);
+                    }
+                }
+            }
+            start = end + 1;
+        }
+        return batch;
+    }
+
+    private static boolean splitCsv(String text, int start, int end, List<String> fields) {
+        fields.clear();
+        int i = start;
+        while (true) {
+            if (i < end && text.charAt(i) == '"') {
+                StringBuilder field = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= end) {
+                        return false;
+                    }
+                    char c = text.charAt(i++);
+                    if (c == '"') {
+                        if (i < end && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                fields.add(field.toString());
+                if (i < end && text.charAt(i) != ',') {
+                    return false;
+                }
+            } else {
+                int comma = text.indexOf(',', i);
+                int fieldEnd = comma < 0 || comma > end ? end : comma;
+                fields.add(text.substring(i, fieldEnd).trim());
+                i = fieldEnd;
+            }
+            if (i >= end) {
+                return true;
+            }
+            i++;
+        }
+    }
+
+    private Batch parseBinary(byte[] chunk) {
+        Batch batch = new Batch();
+        ByteBuffer in = ByteBuffer.wrap(chunk);
+        List<String> fields = new ArrayList<>(4);
+        while (in.remaining() > 0) {
+            // Only the last chunk of a file can end inside a record, when the file is cut short.
+            if (recordEnd(in, in.position()) < 0) {
+                batch.malformed++;
+                if (batch.errors.size() < MAX_ERRORS) {
+                    batch.errors.add("last " + in.remaining() + " bytes: record cut short");
+                }
+                break;
+            }
+            fields.clear();
+            for (int field = 0; field < 3; field++) {
+                int length = in.getShort() & 0xFFFF;
+                fields.add(new String(chunk, in.position(), length, StandardCharsets.UTF_8));
+                in.position(in.position() + length);
+            }
+            fields.add(null);
+            double price = in.getDouble();
+            String error = addCar(batch, fields, price);
+            if (error != null) {
+                batch.malformed++;
+                if (batch.errors.size() < MAX_ERRORS) {
+                    batch.errors.add("car " + fields.get(0) + ": " + error);
+                }
+            }
+        }
+        return batch;
+    }
+
+    private String addCar(Batch batch, List<String> fields) {
+        if (fields.size() != 4) {
+            return "expected 4 fields, found " + fields.size();
+        }
+        double price;
+        try {
+            price = Double.parseDouble(fields.get(3));
+        } catch (NumberFormatException e) {
+            return "price is not a number: " + fields.get(3);
+        }
+        return addCar(batch, fields, price);
+    }
+
+    // Returns why the car was rejected, or null if it was added to the batch.
+    private String addCar(Batch batch, List<String> fields, double price) {
+        String carId = fields.get(0);
+        if (carId.isEmpty() || fields.get(1).isEmpty() || fields.get(2).isEmpty()) {
+            return "car ID, brand and model are required";
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            return "price must be zero or more";
+        }
+        batch.cars.add(new Car(carId, canonical(fields.get(1)), canonical(fields.get(2)), price));
+        return null;
+    }
+
+    private String canonical(String name) {
+        String shared = canonical.get(name);
+        if (shared != null) {
+            return shared;
+        }
+        if (canonical.size() < MAX_CANONICAL) {
+            shared = canonical.putIfAbsent(name, name);
+        }
+        return shared == null ? name : shared;
+    }
+
+    /**
+     * Writes cars in the binary import format.
+     */
+    static void writeBinary(Path file, Iterable<Car> cars) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.write(BINARY_MAGIC);
+            for (Car car : cars) {
+                writeString(out, car.getCarId());
+                writeString(out, car.getBrand());
+                writeString(out, car.getModel());
+                out.writeDouble(car.getBasePricePerDay());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Field longer than 65535 bytes: " + text.substring(0, 40) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Imports fleet files into the rental system saved in a data directory, or writes a test
+     * fleet of {@code --generate N} cars to each file instead (binary if it ends in
+     * {@code .fleet}, otherwise CSV).
+     *
+     * <pre>
+     * java -cp target/classes carrental.FleetImporter [--dataDir rental-data] file...
+     * java -cp target/classes carrental.FleetImporter --generate 1000000 cars.csv
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Paths.get("rental-data");
+        long generate = -1;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dataDir":
+                    dataDir = Paths.get(args[++i]);
+                    break;
+                case "--generate":
+                    generate = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    files.add(Paths.get(args[i]));
+            }
+        }
+        if (generate >= 0) {
+            for (Path file : files) {
+                generate(file, generate);
+            }
+            return;
+        }
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal journal = RentalJournal.open(dataDir, system);
+        try {
+            FleetImporter importer = new FleetImporter(system);
+            for (Path file : files) {
+                Result result = importer.importFile(file);
+                System.out.println(file + ": " + result);
+                for (String error : result.getErrors()) {
+                    System.out.println("  " + error);
+                }
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static void generate(Path file, long count) throws IOException {
+        String[] brands = {"BMW", "AUDI", "Mahindra", "Suzuki", "Hyundai"};
+        String[] models = {"BMW X3", "AUDI Q3", "Thar", "Brezza", "I 10"};
+        Iterable<Car> cars = () -> new Iterator<Car>() {
+            long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Car next() {
+                int kind = (int) (next % brands.length);
+                return new Car(String.format("IMP_%08d", next++), brands[kind], models[kind], 400.0 + next % 23 * 100);
+            }
+        };
+        if (file.toString().endsWith(".fleet")) {
+            writeBinary(file, cars);
+            return;
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("carId,brand,model,pricePerDay\n");
+            for (Car car : cars) {
+                out.write(car.getCarId() + "," + car.getBrand() + "," + car.getModel() + "," + car.getBasePricePerDay() + "\n");
+            }
+        }
+    }
+}
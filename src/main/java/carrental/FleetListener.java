@@ -0,0 +1,28 @@
+package carrental;
+
+import java.util.List;
+
+/**
+ * Notified after a rental system's fleet changes, on the thread that made the change and once
+ * the change is durable.
+ */
+interface FleetListener {
+    void carAdded(Car car);
+
+    /**
+     * Several cars were added at once, in this order.
+     */
+    default void carsAdded(List<Car> cars) {
+        for (Car car : cars) {
+            carAdded(car);
+        }
+    }
+
+    /**
+     * The car was rented or returned. Called on the renting thread before the rental call
+     * returns; listeners that need not be that prompt should {@link CarRentalSystem#subscribe}
+     * to rental events instead.
+     */
+    default void availabilityChanged(Car car) {
+    }
+}
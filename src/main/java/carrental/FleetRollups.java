@@ -0,0 +1,146 @@
+package carrental;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running totals of a fleet and its active rentals, overall, per brand and per model, kept
+ * up to date by {@link CarRentalSystem} on every add, rent and return.
+ *
+ * <p>Brands and models are told apart ignoring case, as {@link FleetStore#idKey} does for the
+ * indexes, and go by the spelling they were first seen with. They are numbered as they are
+ * first seen, and there is one array of totals
+ * per lock stripe of the rental system, indexed by those numbers and changed only while that
+ * stripe is held. An update is a few additions with no extra locking or contention. A snapshot
+ * adds the stripes' arrays together while holding all of them, which costs as much as there
+ * are brands and models, however large the fleet.
+ */
+class FleetRollups {
+    private static final int FIELDS = 4;
+    private static final int CARS = 0;
+    private static final int RENTED = 1;
+    private static final int REVENUE = 2;
+    private static final int DAYS = 3;
+
+    private static final class Stripe {
+        final long[] total = new long[FIELDS];
+        long[] byBrand = new long[FIELDS * 8];
+        long[] byModel = new long[FIELDS * 8];
+    }
+
+    private final Stripe[] stripes;
+    // Numbers by key, and the same numbers by name exactly as spelt, which rents and returns look
+    // up so as not to build a key each time.
+    private final Map<String, Integer> brandIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> brandsBySpelling = new ConcurrentHashMap<>();
+    private final Map<String, Integer> modelIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> modelsBySpelling = new ConcurrentHashMap<>();
+    // Names in the order they were numbered; guarded by themselves.
+    private final List<String> brands = new ArrayList<>();
+    private final List<String> models = new ArrayList<>();
+
+    FleetRollups(int stripeCount) {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Each of these is called holding the given stripe of the rental system.
+
+    void carAdded(int stripe, Car car) {
+        add(stripes[stripe], car, 1, 0, 0, 0);
+    }
+
+    void rented(int stripe, Car car, int days, long priceMinor) {
+        add(stripes[stripe], car, 0, 1, priceMinor, days);
+    }
+
+    void returned(int stripe, Car car, int days, long priceMinor) {
+        add(stripes[stripe], car, 0, -1, -priceMinor, -days);
+    }
+
+    private void add(Stripe stripe, Car car, long cars, long rented, long revenue, long days) {
+        add(stripe.total, 0, cars, rented, revenue, days);
+        int brand = id(brandsBySpelling, brandIds, brands, car.getBrand()) * FIELDS;
+        if (brand >= stripe.byBrand.length) {
+            stripe.byBrand = Arrays.copyOf(stripe.byBrand, Math.max(brand + FIELDS, stripe.byBrand.length * 2));
+        }
+        add(stripe.byBrand, brand, cars, rented, revenue, days);
+        int model = id(modelsBySpelling, modelIds, models, car.getModel()) * FIELDS;
+        if (model >= stripe.byModel.length) {
+            stripe.byModel = Arrays.copyOf(stripe.byModel, Math.max(model + FIELDS, stripe.byModel.length * 2));
+        }
+        add(stripe.byModel, model, cars, rented, revenue, days);
+    }
+
+    private static void add(long[] totals, int at, long cars, long rented, long revenue, long days) {
+        totals[at + CARS] += cars;
+        totals[at + RENTED] += rented;
+        totals[at + REVENUE] += revenue;
+        totals[at + DAYS] += days;
+    }
+
+    private static int id(Map<String, Integer> bySpelling, Map<String, Integer> ids, List<String> names, String name) {
+        Integer id = bySpelling.get(name);
+        if (id == null) {
+            String key = FleetStore.idKey(name);
+            synchronized (names) {
+                id = ids.get(key);
+                if (id == null) {
+                    id = names.size();
+                    names.add(name);
+                    ids.put(key, id);
+                }
+            }
+            bySpelling.putIfAbsent(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * The totals of all stripes added together: overall, then per brand and per model by number.
+     * Called holding every stripe.
+     */
+    long[][] sum() {
+        long[][] sums = {new long[FIELDS], new long[0], new long[0]};
+        for (Stripe stripe : stripes) {
+            sums[0] = addAll(sums[0], stripe.total);
+            sums[1] = addAll(sums[1], stripe.byBrand);
+            sums[2] = addAll(sums[2], stripe.byModel);
+        }
+        return sums;
+    }
+
+    private static long[] addAll(long[] into, long[] totals) {
+        if (into.length < totals.length) {
+            into = Arrays.copyOf(into, totals.length);
+        }
+        for (int i = 0; i < totals.length; i++) {
+            into[i] += totals[i];
+        }
+        return into;
+    }
+
+    /**
+     * Turns what {@link #sum} returned into a snapshot; needs no locks.
+     */
+    RollupSnapshot snapshot(long[][] sums) {
+        return new RollupSnapshot(totals(sums[0], 0), totals(sums[1], brands), totals(sums[2], models));
+    }
+
+    private static RollupSnapshot.Totals totals(long[] sums, int at) {
+        return new RollupSnapshot.Totals((int) sums[at + CARS], (int) sums[at + RENTED], sums[at + REVENUE], sums[at + DAYS]);
+    }
+
+    private static Map<String, RollupSnapshot.Totals> totals(long[] sums, List<String> names) {
+        Map<String, RollupSnapshot.Totals> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        synchronized (names) {
+            // A name numbered after the sums were taken has nothing in them yet.
+            for (int id = 0; id < names.size() && (id + 1) * FIELDS <= sums.length; id++) {
+                result.put(names.get(id), totals(sums, id * FIELDS));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
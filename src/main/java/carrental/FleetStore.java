@@ -0,0 +1,57 @@
+package carrental;
+
+import java.util.*;
+
+/**
+ * Where a {@link CarRentalSystem} keeps its cars: the fleet table, the ID index and the
+ * availability index. Rentals and customers stay in the rental system itself.
+ *
+ * <p>{@link #add} and {@link #setAvailable} are called with the rental system's locks held;
+ * everything else may be called from any thread without locking.
+ */
+interface FleetStore {
+    static String idKey(String carId) {
+        return carId.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a car whose ID is not yet in the store and assigns it the next ordinal, equal to {@link #size()}.
+     */
+    void add(Car car);
+
+    /**
+     * Looks up a car by ID, ignoring case. Returns null if no such car exists.
+     */
+    Car byId(String carId);
+
+    /**
+     * Maps a car handed in by a caller to the instance this store tracks.
+     */
+    Car resolve(Car car);
+
+    /**
+     * The ID of the car at the given ordinal, which must be below {@link #size()}.
+     */
+    String idAt(int ordinal);
+
+    /**
+     * The base price per day of the car at the given ordinal, which must be below {@link #size()}.
+     */
+    double priceAt(int ordinal);
+
+    void setAvailable(Car car, boolean available);
+
+    int size();
+
+    int availableCount();
+
+    /**
+     * Read-only live view of the available cars, in ordinal order.
+     */
+    Collection<Car> availableView();
+
+    /**
+     * Read-only live view of the whole fleet, in ordinal order.
+     */
+    List<Car> allCarsView();
+}
@@ -0,0 +1,152 @@
+package carrental;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default fleet store: cars are ordinary heap objects held in an append-only table.
+ */
+class HeapFleetStore implements FleetStore {
+    private volatile Car[] table = new Car[16];
+    private volatile int size;
+    private final Map<String, Car> carsById = new ConcurrentHashMap<>();
+    // One bit per car by ordinal, so renting and returning flip a bit instead of allocating.
+    private final AvailabilityIndex.Bits availableBits = new AvailabilityIndex.Bits();
+    private final AtomicInteger availableCount = new AtomicInteger();
+    private final Collection<Car> availableView = new AbstractCollection<Car>() {
+        @Override
+        public Iterator<Car> iterator() {
+            return new Iterator<Car>() {
+                private int next = nextAvailable(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Car next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    Car car = table[next];
+                    next = nextAvailable(next + 1);
+                    return car;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return availableCount.get();
+        }
+    };
+    private final List<Car> allCarsView = new AbstractList<Car>() {
+        @Override
+        public Car get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Car ordinal " + index);
+            }
+            return table[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    @Override
+    public void add(Car car) {
+        Car[] cars = table;
+        int ordinal = size;
+        if (ordinal == cars.length) {
+            cars = Arrays.copyOf(cars, ordinal * 2);
+            table = cars;
+        }
+        car.setOrdinal(ordinal);
+        cars[ordinal] = car;
+        availableBits.ensure((ordinal >>> 6) + 1);
+        if (car.isAvailable()) {
+            availableBits.set(ordinal, true);
+            availableCount.incrementAndGet();
+        }
+        size = ordinal + 1;
+        carsById.put(FleetStore.idKey(car.getCarId()), car);
+    }
+
+    @Override
+    public Car byId(String carId) {
+        return carsById.get(FleetStore.idKey(carId));
+    }
+
+    @Override
+    public Car resolve(Car car) {
+        return car;
+    }
+
+    @Override
+    public String idAt(int ordinal) {
+        return table[ordinal].getCarId();
+    }
+
+    @Override
+    public double priceAt(int ordinal) {
+        return table[ordinal].getBasePricePerDay();
+    }
+
+    @Override
+    public void setAvailable(Car car, boolean available) {
+        if (available) {
+            car.returnCar();
+            if (availableBits.set(car.getOrdinal(), true)) {
+                availableCount.incrementAndGet();
+            }
+        } else {
+            car.rent();
+            if (availableBits.set(car.getOrdinal(), false)) {
+                availableCount.decrementAndGet();
+            }
+        }
+    }
+
+    private int nextAvailable(int from) {
+        int limit = size;
+        if (from >= limit) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = availableBits.word(wordIndex) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int ordinal = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return ordinal < limit ? ordinal : -1;
+            }
+            if (++wordIndex > (limit - 1) >>> 6) {
+                return -1;
+            }
+            word = availableBits.word(wordIndex);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int availableCount() {
+        return availableCount.get();
+    }
+
+    @Override
+    public Collection<Car> availableView() {
+        return availableView;
+    }
+
+    @Override
+    public List<Car> allCarsView() {
+        return allCarsView;
+    }
+}
@@ -0,0 +1,88 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * One entry of a {@link RentalHistory}: a car rented, or a car returned. A return repeats what
+ * was rented and adds the day the car came back, so each return describes a finished rental on
+ * its own.
+ */
+final class HistoryEvent {
+    private final RentalEvent.Type type;
+    private final long timeMillis;
+    private final String carId;
+    private final String customerId;
+    private final String customerName;
+    private final LocalDate startDate;
+    private final int days;
+    private final LocalDate endDate;
+    private final long amountMinor;
+
+    HistoryEvent(RentalEvent.Type type, long timeMillis, String carId, String customerId, String customerName,
+            LocalDate startDate, int days, LocalDate endDate, long amountMinor) {
+        this.type = type;
+        this.timeMillis = timeMillis;
+        this.carId = carId;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.startDate = startDate;
+        this.days = days;
+        this.endDate = endDate;
+        this.amountMinor = amountMinor;
+    }
+
+    public RentalEvent.Type getType() {
+        return type;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public String getCarId() {
+        return carId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Days booked when the car was rented.
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Day the car came back for a return; the day it is due back for a rental.
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Price of the booked days, in the smallest currency unit.
+     */
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public boolean isReturn() {
+        return type == RentalEvent.Type.RETURNED;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s by %s (%s) from %s to %s", isReturn() ? "Returned" : "Rented", carId,
+                isReturn() ? "after rental" : "for " + days + " days", customerName, customerId, startDate, endDate);
+    }
+}
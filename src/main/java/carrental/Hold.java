@@ -0,0 +1,62 @@
+package carrental;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A car set aside for a customer for a short while, for example while they read a confirmation
+ * dialog. Until the hold is confirmed, released or runs out, nobody else can rent the car or
+ * reserve it for the days the hold covers. Holds are not journaled; after a restart the car is
+ * simply free again.
+ */
+final class Hold extends TimingWheel.Entry {
+    private final Car car;
+    private final Customer customer;
+    private final LocalDate startDate;
+    private final int days;
+    private final long expiresAtNanos;
+
+    Hold(Car car, Customer customer, LocalDate startDate, int days, long expiresAtNanos) {
+        this.car = car;
+        this.customer = customer;
+        this.startDate = startDate;
+        this.days = days;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * First day of the rental the hold is for.
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public boolean isExpired() {
+        return getRemainingMillis() == 0;
+    }
+
+    public long getRemainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    long getExpiresAtNanos() {
+        return expiresAtNanos;
+    }
+
+    // Whether the rental the hold is for would run into the range.
+    boolean overlaps(LocalDate start, LocalDate end) {
+        return startDate.isBefore(end) && start.isBefore(startDate.plusDays(Math.max(1, days)));
+    }
+}
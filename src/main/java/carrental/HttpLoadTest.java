@@ -0,0 +1,149 @@
+package carrental;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for {@link RentalHttpServer} over localhost. Each worker runs a closed loop of mixed
+ * requests: six quotes, two available-car searches, then renting and returning one of its own
+ * cars. Reports sustained requests per second and latency percentiles. Without {@code --url} it
+ * starts a server in this process with a generated fleet.
+ *
+ * <pre>
+ * java -cp target/classes carrental.HttpLoadTest [--url http://localhost:8080] [--cars 10000] [--threads 16] [--time ms]
+ * </pre>
+ */
+class HttpLoadTest {
+    private static final int SAMPLE_CAPACITY = 1 << 18;
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int cars = 10_000;
+        int threads = 16;
+        long timeMillis = 10_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--cars":
+                    cars = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    timeMillis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        RentalHttpServer server = null;
+        if (url == null) {
+            CarRentalSystem system = new CarRentalSystem();
+            for (int i = 0; i < cars; i++) {
+                system.addCar(new Car(String.format("ID_%06d", i), i % 2 == 0 ? "BMW" : "AUDI", "Model", 400.0 + i % 23 * 100));
+            }
+            server = RentalHttpServer.start(system, 0);
+            url = "http://localhost:" + server.getPort();
+        }
+        java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_1_1)
+                .build();
+        String base = url;
+        int fleet = cars;
+        int workers = threads;
+
+        // A short warm-up, then the measured run.
+        runWorkers(client, base, fleet, workers, Math.min(2_000, timeMillis / 5));
+        long[][] samples = new long[threads][];
+        long[] counts = new long[threads];
+        long[] errors = new long[threads];
+        long elapsed = runWorkers(client, base, fleet, workers, timeMillis, samples, counts, errors);
+        if (server != null) {
+            server.close();
+        }
+
+        long requests = Arrays.stream(counts).sum();
+        long[] all = Arrays.stream(samples).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d requests from %d threads in %.1f s: %.0f req/s, %d errors%n",
+                requests, threads, elapsed / 1e9, requests * 1e9 / elapsed, Arrays.stream(errors).sum());
+        System.out.printf("latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, percentile(all, 0.999) / 1e6);
+    }
+
+    private static long runWorkers(java.net.http.HttpClient client, String base, int fleet, int threads, long timeMillis)
+            throws InterruptedException {
+        return runWorkers(client, base, fleet, threads, timeMillis, new long[threads][], new long[threads], new long[threads]);
+    }
+
+    private static long runWorkers(java.net.http.HttpClient client, String base, int fleet, int threads, long timeMillis,
+            long[][] samples, long[] counts, long[] errors) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(timeMillis);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                long[] latencies = new long[SAMPLE_CAPACITY];
+                long n = 0;
+                long failed = 0;
+                int slice = Math.max(1, fleet / threads);
+                // Only stops between rounds, so no car is left rented for the next run.
+                for (long i = 0; i % 10 != 0 || System.nanoTime() < deadline; i++) {
+                    String carId = String.format("ID_%06d", (thread * slice + i / 10 % slice) % fleet);
+                    int step = (int) (i % 10);
+                    java.net.http.HttpRequest request;
+                    if (step < 6) {
+                        request = get(base + "/quote?carId=" + carId + "&days=" + (1 + step));
+                    } else if (step < 8) {
+                        request = get(base + "/cars/available?brand=BMW&maxPrice=" + (500 + step * 100) + "&limit=20");
+                    } else if (step == 8) {
+                        request = post(base + "/rentals", "carId=" + carId + "&customerName=Load+Test&days=3");
+                    } else {
+                        request = post(base + "/returns", "carId=" + carId);
+                    }
+                    long begin = System.nanoTime();
+                    try {
+                        int status = client.send(request, java.net.http.HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 400) {
+                            failed++;
+                        }
+                    } catch (IOException e) {
+                        failed++;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    latencies[(int) (n++ & (SAMPLE_CAPACITY - 1))] = System.nanoTime() - begin;
+                }
+                samples[thread] = Arrays.copyOf(latencies, (int) Math.min(n, SAMPLE_CAPACITY));
+                counts[thread] = n;
+                errors[thread] = failed;
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static java.net.http.HttpRequest get(String uri) {
+        return java.net.http.HttpRequest.newBuilder(java.net.URI.create(uri)).GET().build();
+    }
+
+    private static java.net.http.HttpRequest post(String uri, String form) {
+        return java.net.http.HttpRequest.newBuilder(java.net.URI.create(uri))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(java.net.http.HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (p * sorted.length))];
+    }
+}
@@ -0,0 +1,229 @@
+package carrental;
+
+import javax.swing.*;
+import javax.swing.text.Element;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text area for a log that may be left running for days. Only the newest {@code maxLines} lines
+ * are kept: messages are queued in a ring of that many lines, and all messages arriving within
+ * one frame reach the document in a single update, after which the oldest lines are trimmed.
+ * Everything can optionally also be written to a set of rolling files.
+ *
+ * <p>{@link #log} may be called from any thread.
+ */
+class LogArea extends JTextArea {
+    private static final long serialVersionUID = 1L;
+    private static final int FRAME_MILLIS = 16;
+
+    private final int maxLines;
+    private final ArrayDeque<String> pending;
+    private final javax.swing.Timer flushTimer;
+    private int skipped;
+    private boolean scheduled;
+    private RollingLogFile spill;
+
+    LogArea(int maxLines) {
+        this.maxLines = Math.max(1, maxLines);
+        this.pending = new ArrayDeque<>(Math.min(this.maxLines, 1024));
+        this.flushTimer = new javax.swing.Timer(FRAME_MILLIS, e -> flush());
+        this.flushTimer.setRepeats(false);
+        // A coalescing timer drops an expiry that lands while its previous event is still being
+        // handled, which would leave a flush scheduled but never run.
+        this.flushTimer.setCoalesce(false);
+    }
+
+    /**
+     * Also writes every message to {@code file}, starting a new file once it reaches
+     * {@code maxBytes} and keeping {@code files} of them.
+     */
+    void spillTo(Path file, long maxBytes, int files) throws IOException {
+        RollingLogFile previous;
+        synchronized (pending) {
+            previous = spill;
+            spill = new RollingLogFile(file, maxBytes, files);
+        }
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    void log(String message) {
+        RollingLogFile file;
+        synchronized (pending) {
+            int start = 0;
+            while (start < message.length()) {
+                int end = message.indexOf('\n', start);
+                end = end < 0 ? message.length() : end + 1;
+                if (pending.size() == maxLines) {
+                    pending.removeFirst();
+                    skipped++;
+                }
+                pending.addLast(message.substring(start, end));
+                start = end;
+            }
+            file = spill;
+            if (!scheduled) {
+                scheduled = true;
+                flushTimer.restart();
+            }
+        }
+        if (file != null) {
+            file.write(message);
+        }
+    }
+
+    private void flush() {
+        StringBuilder text = new StringBuilder();
+        synchronized (pending) {
+            if (skipped > 0) {
+                text.append("... ").append(skipped).append(" earlier lines not shown ...\n");
+                skipped = 0;
+            }
+            for (String line : pending) {
+                text.append(line);
+            }
+            pending.clear();
+            scheduled = false;
+        }
+        append(text.toString());
+        Element root = getDocument().getDefaultRootElement();
+        // A log ending in a newline has an empty last line, which does not count.
+        int excess = root.getElementCount() - 1 - maxLines;
+        if (excess > 0) {
+            replaceRange(null, 0, root.getElement(excess).getStartOffset());
+        }
+        setCaretPosition(getDocument().getLength());
+    }
+
+    /**
+     * Stops writing to the spill file, if any.
+     */
+    void closeSpill() {
+        RollingLogFile file;
+        synchronized (pending) {
+            file = spill;
+            spill = null;
+        }
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * A log file that is rolled over to {@code name.1}, {@code name.2} and so on once it grows
+     * past a size limit. Messages are buffered and written in batches on a background thread, so
+     * callers never wait on disk; if the disk falls more than a buffer behind, messages are
+     * dropped and counted rather than queued without limit.
+     */
+    private static final class RollingLogFile {
+        private static final int MAX_BUFFERED = 1 << 20;
+
+        private final Path file;
+        private final long maxBytes;
+        private final int files;
+        private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "log-spill");
+            t.setDaemon(true);
+            return t;
+        });
+        private StringBuilder buffer = new StringBuilder();
+        private int dropped;
+        private Writer out;
+        private long size;
+
+        RollingLogFile(Path file, long maxBytes, int files) throws IOException {
+            this.file = file;
+            this.maxBytes = maxBytes;
+            this.files = Math.max(1, files);
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            open();
+        }
+
+        private void open() throws IOException {
+            size = Files.exists(file) ? Files.size(file) : 0;
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        void write(String message) {
+            synchronized (this) {
+                if (buffer.length() + message.length() > MAX_BUFFERED) {
+                    dropped++;
+                    return;
+                }
+                boolean idle = buffer.length() == 0;
+                buffer.append(message);
+                if (!idle) {
+                    return;
+                }
+            }
+            writer.execute(this::drain);
+        }
+
+        private void drain() {
+            String text;
+            synchronized (this) {
+                if (dropped > 0) {
+                    buffer.append("... ").append(dropped).append(" messages dropped, log file fell behind ...\n");
+                    dropped = 0;
+                }
+                text = buffer.toString();
+                buffer = new StringBuilder();
+            }
+            try {
+                if (size >= maxBytes) {
+                    roll();
+                }
+                out.write(text);
+                out.flush();
+                size += text.length();
+            } catch (IOException e) {
+                System.err.println("Could not write log file " + file + ": " + e.getMessage());
+            }
+        }
+
+        private void roll() throws IOException {
+            out.close();
+            for (int i = files - 1; i >= 1; i--) {
+                Path older = i == 1 ? file : numbered(i - 1);
+                if (Files.exists(older)) {
+                    Files.move(older, numbered(i), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (files == 1) {
+                Files.delete(file);
+            }
+            open();
+        }
+
+        private Path numbered(int i) {
+            return file.resolveSibling(file.getFileName() + "." + i);
+        }
+
+        void close() {
+            writer.execute(() -> {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close log file " + file + ": " + e.getMessage());
+                }
+            });
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
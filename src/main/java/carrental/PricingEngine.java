@@ -0,0 +1,35 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * Prices rentals. Amounts are in minor currency units (cents) so totals add up exactly.
+ */
+interface PricingEngine {
+    /**
+     * Charges the base price for every day, with no adjustments.
+     */
+    PricingEngine FLAT = new PricingEngine() {
+        @Override
+        public long quote(Car car, LocalDate startDate, int days) {
+            return car.getBasePriceMinor() * days;
+        }
+
+        @Override
+        public long quote(Car car, int days) {
+            return car.getBasePriceMinor() * days;
+        }
+    };
+
+    /**
+     * Price of renting the car for the given number of days, from {@code startDate}.
+     */
+    long quote(Car car, LocalDate startDate, int days);
+
+    /**
+     * Price of renting the car for the given number of days, from today.
+     */
+    default long quote(Car car, int days) {
+        return quote(car, LocalDate.now(), days);
+    }
+}
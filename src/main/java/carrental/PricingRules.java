@@ -0,0 +1,152 @@
+package carrental;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A set of pricing rules, compiled into a {@link CompiledPricingEngine} before use. Each rule is an
+ * adjustment in basis points (1/100 of a percent): seasonal and weekend adjustments change the
+ * rate of the days they cover and add up when they overlap, the best long-rental discount whose
+ * minimum length is reached applies to the whole rental, and brand adjustments apply on top.
+ */
+class PricingRules {
+    private static final Pattern PERCENT = Pattern.compile("([+-]?\\d+(?:\\.\\d{1,2})?)%");
+
+    private final List<MonthDay[]> seasons = new ArrayList<>();
+    private final List<Integer> seasonAdjustments = new ArrayList<>();
+    private int weekendAdjustment;
+    private final TreeMap<Integer, Integer> longRentalAdjustments = new TreeMap<>();
+    private final Map<String, Integer> brandAdjustments = new HashMap<>();
+
+    /**
+     * Adjusts the rate of every day from {@code from} to {@code to}, inclusive, in any year. The
+     * range may wrap around the new year.
+     */
+    public PricingRules season(MonthDay from, MonthDay to, int basisPoints) {
+        seasons.add(new MonthDay[] {from, to});
+        seasonAdjustments.add(basisPoints);
+        return this;
+    }
+
+    /**
+     * Adjusts the rate of Saturdays and Sundays.
+     */
+    public PricingRules weekend(int basisPoints) {
+        weekendAdjustment = basisPoints;
+        return this;
+    }
+
+    /**
+     * Adjusts the whole price of rentals of at least {@code minDays} days.
+     */
+    public PricingRules longRental(int minDays, int basisPoints) {
+        if (minDays < 1) {
+            throw new IllegalArgumentException("Minimum rental length must be at least one day: " + minDays);
+        }
+        longRentalAdjustments.put(minDays, basisPoints);
+        return this;
+    }
+
+    /**
+     * Adjusts the whole price of rentals of the given brand, ignoring case.
+     */
+    public PricingRules brand(String brand, int basisPoints) {
+        brandAdjustments.put(FleetStore.idKey(brand), basisPoints);
+        return this;
+    }
+
+    /**
+     * Reads rules from a text file with one rule per line, for example:
+     * <pre>
+     * # comments and blank lines are ignored
+     * season 06-01 08-31 +20%
+     * weekend +15%
+     * long 7 -10%
+     * brand BMW +5.5%
+     * </pre>
+     */
+    public static PricingRules load(Path file) throws IOException {
+        PricingRules rules = new PricingRules();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            try {
+                rules.parse(words);
+            } catch (RuntimeException e) {
+                throw new IOException(file + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    private void parse(String[] words) {
+        String kind = words[0].toLowerCase(Locale.ROOT);
+        if (kind.equals("season") && words.length == 4) {
+            season(MonthDay.parse("--" + words[1]), MonthDay.parse("--" + words[2]), basisPoints(words[3]));
+        } else if (kind.equals("weekend") && words.length == 2) {
+            weekend(basisPoints(words[1]));
+        } else if (kind.equals("long") && words.length == 3) {
+            longRental(Integer.parseInt(words[1]), basisPoints(words[2]));
+        } else if (kind.equals("brand") && words.length == 3) {
+            brand(words[1], basisPoints(words[2]));
+        } else {
+            throw new IllegalArgumentException("Unrecognized rule: " + String.join(" ", words));
+        }
+    }
+
+    private static int basisPoints(String percent) {
+        java.util.regex.Matcher matcher = PERCENT.matcher(percent);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Expected a percentage such as +15% or -7.5%: " + percent);
+        }
+        return new java.math.BigDecimal(matcher.group(1)).movePointRight(2).intValueExact();
+    }
+
+    /**
+     * Adjustment, in basis points, to the rate of the given day.
+     */
+    int dayAdjustment(LocalDate date) {
+        int adjustment = 0;
+        MonthDay day = MonthDay.from(date);
+        for (int i = 0; i < seasons.size(); i++) {
+            MonthDay from = seasons.get(i)[0];
+            MonthDay to = seasons.get(i)[1];
+            boolean inSeason = from.isAfter(to)
+                    ? !day.isBefore(from) || !day.isAfter(to)
+                    : !day.isBefore(from) && !day.isAfter(to);
+            if (inSeason) {
+                adjustment += seasonAdjustments.get(i);
+            }
+        }
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
+            adjustment += weekendAdjustment;
+        }
+        return adjustment;
+    }
+
+    TreeMap<Integer, Integer> longRentalAdjustments() {
+        return longRentalAdjustments;
+    }
+
+    Map<String, Integer> brandAdjustments() {
+        return brandAdjustments;
+    }
+
+    /**
+     * Compiles the rules into tables covering a year before and two years after today.
+     */
+    public CompiledPricingEngine compile() {
+        return new CompiledPricingEngine(this, LocalDate.now().minusYears(1), LocalDate.now().plusYears(2));
+    }
+}
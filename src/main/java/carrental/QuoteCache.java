@@ -0,0 +1,61 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * Remembers recent quotes of another engine in a fixed number of slots, keyed by car class
+ * (brand and base price) and date range. A new quote simply replaces whatever shared its slot,
+ * so the cache never grows and needs no locking.
+ */
+class QuoteCache implements PricingEngine {
+    private final PricingEngine engine;
+    private final Quote[] slots;
+    private final CurrentDay today = new CurrentDay();
+
+    QuoteCache(PricingEngine engine, int capacity) {
+        this.engine = engine;
+        this.slots = new Quote[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+    }
+
+    @Override
+    public long quote(Car car, LocalDate startDate, int days) {
+        return quote(car, startDate.toEpochDay(), days);
+    }
+
+    @Override
+    public long quote(Car car, int days) {
+        return quote(car, today.epochDay(), days);
+    }
+
+    long quote(Car car, long startDay, int days) {
+        String brand = car.getBrand();
+        long basePrice = car.getBasePriceMinor();
+        int hash = brand.hashCode() * 31 + Long.hashCode(basePrice * 0x9E3779B97F4A7C15L ^ startDay * 31 + days);
+        int slot = (hash ^ hash >>> 16) & (slots.length - 1);
+        Quote quote = slots[slot];
+        if (quote != null && quote.days == days && quote.startDay == startDay && quote.basePrice == basePrice
+                && quote.brand.equals(brand)) {
+            return quote.amount;
+        }
+        long amount = engine.quote(car, LocalDate.ofEpochDay(startDay), days);
+        slots[slot] = new Quote(brand, basePrice, startDay, days, amount);
+        return amount;
+    }
+
+    // Immutable, so a slot read by another thread is always either null or complete.
+    private static final class Quote {
+        final String brand;
+        final long basePrice;
+        final long startDay;
+        final int days;
+        final long amount;
+
+        Quote(String brand, long basePrice, long startDay, int days, long amount) {
+            this.brand = brand;
+            this.basePrice = basePrice;
+            this.startDay = startDay;
+            this.days = days;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package carrental;
+
+/**
+ * One line of a batch rental: which car, for whom and for how long.
+ */
+class RentRequest {
+    private final Car car;
+    private final Customer customer;
+    private final int days;
+
+    public RentRequest(Car car, Customer customer, int days) {
+        this.car = car;
+        this.customer = customer;
+        this.days = days;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public int getDays() {
+        return days;
+    }
+}
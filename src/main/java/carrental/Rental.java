@@ -0,0 +1,62 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a rental transaction linking a car and a customer.
+ */
+class Rental implements Booking {
+    private Car car;
+    private Customer customer;
+    private int days;
+    private LocalDate startDate;
+    private long priceMinor;
+
+    public Rental(Car car, Customer customer, int days) {
+        this(car, customer, LocalDate.now(), days);
+    }
+
+    public Rental(Car car, Customer customer, LocalDate startDate, int days) {
+        this.car = car;
+        this.customer = customer;
+        this.days = days;
+        this.startDate = startDate;
+        this.priceMinor = Car.getPricingEngine().quote(car, startDate, days);
+    }
+
+    // For a rental read back from where it is stored, at the price it was made for.
+    Rental(Car car, Customer customer, LocalDate startDate, int days, long priceMinor) {
+        this.car = car;
+        this.customer = customer;
+        this.days = days;
+        this.startDate = startDate;
+        this.priceMinor = priceMinor;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return startDate.plusDays(Math.max(1, days));
+    }
+
+    /**
+     * Price quoted when the rental was made, in minor currency units (cents).
+     */
+    public long getPriceMinor() {
+        return priceMinor;
+    }
+}
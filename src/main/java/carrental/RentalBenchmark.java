@@ -0,0 +1,433 @@
+package carrental;
+
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Self-contained micro-benchmark harness for the rental hot paths.
+ *
+ * <p>Each benchmark runs against fleets of several sizes, single-threaded and on all cores,
+ * and for rent/return also on a small shared set of cars so threads fight over the same
+ * locks. For every run it reports throughput, latency percentiles and bytes allocated per
+ * operation, which is enough to compare two builds and catch regressions.
+ *
+ * <pre>
+ * mvn compile
+ * java -cp target/classes carrental.RentalBenchmark [--sizes 5,1000,100000,1000000] [--threads N] [--time ms] [--filter name]
+ *                                                   [--store heap|columnar] [--subscribers N] [--metrics on|off]
+ * </pre>
+ *
+ * <p>{@code --subscribers} attaches that many do-nothing rental event subscribers, to see what
+ * they cost the renting threads. {@code --metrics off} stops the system counting and timing its
+ * calls, to see what {@link RentalMetrics} costs.
+ */
+class RentalBenchmark {
+    private static final String[] BRANDS = {"BMW", "AUDI", "Mahindra", "Suzuki", "Hyundai"};
+    private static final String[] MODELS = {"BMW X3", "AUDI Q3", "Thar", "Brezza", "I 10"};
+    private static final int HOT_CARS = 5;
+    private static final int SAMPLE_CAPACITY = 1 << 18;
+    // Next year's summer, inside the dates the rules are compiled for.
+    private static final LocalDate QUOTE_START = LocalDate.now().plusYears(1).withMonth(6).withDayOfMonth(1);
+    private static final CompiledPricingEngine RULES = new PricingRules()
+            .season(MonthDay.of(6, 1), MonthDay.of(8, 31), 2000)
+            .season(MonthDay.of(12, 20), MonthDay.of(1, 5), 3000)
+            .weekend(1500)
+            .longRental(7, -1000)
+            .longRental(30, -2500)
+            .brand("BMW", 500)
+            .compile();
+
+    // Results are folded in here so the JIT cannot drop the measured calls.
+    static volatile long sink;
+
+    /**
+     * One benchmarked operation. {@link #prepare} and {@link #cleanup} run outside the timed region.
+     */
+    interface Operation {
+        default void prepare(long iteration) {
+        }
+
+        void run(long iteration);
+
+        default void cleanup(long iteration) {
+        }
+    }
+
+    /**
+     * Creates the operation a single worker thread will run.
+     */
+    interface Benchmark {
+        Operation create(Fixture fixture, int thread, int threads, boolean contended);
+    }
+
+    static final class Fixture {
+        final CarRentalSystem system;
+        final Car[] cars;
+        final String[] ids;
+
+        Fixture(int size, FleetStore store) {
+            system = new CarRentalSystem(store);
+            cars = new Car[size];
+            ids = new String[size];
+            for (int i = 0; i < size; i++) {
+                int kind = i % BRANDS.length;
+                ids[i] = String.format("ID_%07d", i);
+                system.addCar(new Car(ids[i], BRANDS[kind], MODELS[kind], 400.0 + (i % 23) * 100.0));
+                cars[i] = system.getAllCars().get(i);
+            }
+        }
+
+        /**
+         * Picks the car a worker uses on a given iteration: its own slice of the fleet normally,
+         * or one of a handful of cars shared by every thread when {@code contended} is set.
+         */
+        Car carFor(long iteration, int thread, int threads, boolean contended) {
+            if (contended) {
+                return cars[(int) (iteration % Math.min(HOT_CARS, cars.length))];
+            }
+            int slice = Math.max(1, cars.length / threads);
+            int base = (thread * slice) % cars.length;
+            return cars[base + (int) (iteration % slice)];
+        }
+    }
+
+    private static final Map<String, Benchmark> BENCHMARKS = new LinkedHashMap<>();
+
+    static {
+        BENCHMARKS.put("rentCar", (f, t, n, contended) -> {
+            Customer customer = new Customer("BENCH-" + t, "Bench");
+            return new Operation() {
+                private Car car;
+
+                public void prepare(long i) {
+                    car = f.carFor(i, t, n, contended);
+                }
+
+                public void run(long i) {
+                    sink += f.system.rentCar(car, customer, 3) ? 1 : 0;
+                }
+
+                public void cleanup(long i) {
+                    f.system.returnCar(car);
+                }
+            };
+        });
+        BENCHMARKS.put("returnCar", (f, t, n, contended) -> {
+            Customer customer = new Customer("BENCH-" + t, "Bench");
+            return new Operation() {
+                private Car car;
+
+                public void prepare(long i) {
+                    car = f.carFor(i, t, n, contended);
+                    f.system.rentCar(car, customer, 3);
+                }
+
+                public void run(long i) {
+                    sink += f.system.returnCar(car) ? 1 : 0;
+                }
+            };
+        });
+        BENCHMARKS.put("rentBatch100", (f, t, n, contended) -> {
+            Customer customer = new Customer("BENCH-" + t, "Bench");
+            List<RentRequest> requests = new ArrayList<>();
+            List<Car> cars = new ArrayList<>();
+            return new Operation() {
+                public void prepare(long i) {
+                    batchOf(f, i, t, n, contended, cars);
+                    requests.clear();
+                    for (Car car : cars) {
+                        requests.add(new RentRequest(car, customer, 3));
+                    }
+                }
+
+                public void run(long i) {
+                    sink += f.system.rentBatch(requests).size();
+                }
+
+                public void cleanup(long i) {
+                    f.system.returnBatch(cars);
+                }
+            };
+        });
+        BENCHMARKS.put("rentLoop100", (f, t, n, contended) -> {
+            // The same 100 rentals made one rentCar call at a time, for comparison with rentBatch100.
+            Customer customer = new Customer("BENCH-" + t, "Bench");
+            List<Car> cars = new ArrayList<>();
+            return new Operation() {
+                public void prepare(long i) {
+                    batchOf(f, i, t, n, contended, cars);
+                }
+
+                public void run(long i) {
+                    for (Car car : cars) {
+                        sink += f.system.rentCar(car, customer, 3) ? 1 : 0;
+                    }
+                }
+
+                public void cleanup(long i) {
+                    for (Car car : cars) {
+                        f.system.returnCar(car);
+                    }
+                }
+            };
+        });
+        BENCHMARKS.put("getAvailableCars", (f, t, n, contended) -> i -> {
+            // A listing reads the count plus the first page of the available view.
+            long seen = f.system.getAvailableCarCount();
+            int page = 0;
+            for (Car car : f.system.getAvailableCars()) {
+                seen += car.getOrdinal();
+                if (++page == 20) {
+                    break;
+                }
+            }
+            sink += seen;
+        });
+        BENCHMARKS.put("availableQuery", (f, t, n, contended) ->
+                i -> sink += f.system.countAvailableCars("BMW", 1000.0 + (i & 7) * 100.0));
+        BENCHMARKS.put("availableQueryLoop", (f, t, n, contended) -> i -> {
+            // The same question answered the old way, one car object at a time.
+            double ceiling = 1000.0 + (i & 7) * 100.0;
+            int count = 0;
+            for (Car car : f.system.getAvailableCars()) {
+                if (car.getBrand().equalsIgnoreCase("BMW") && car.getBasePricePerDay() <= ceiling) {
+                    count++;
+                }
+            }
+            sink += count;
+        });
+        BENCHMARKS.put("assignCar", (f, t, n, contended) -> {
+            LocalDate start = f.system.today();
+            LocalDate end = start.plusDays(3);
+            return i -> sink += f.system.assignCar(start, end, "Mahindra", 1000.0 + (i & 7) * 100.0) != null ? 1 : 0;
+        });
+        BENCHMARKS.put("findCarFreeBetween", (f, t, n, contended) -> {
+            // The first fitting car in fleet order rather than the cheapest, by a scan, for comparison.
+            LocalDate start = f.system.today();
+            LocalDate end = start.plusDays(3);
+            return i -> sink += f.system.findCarFreeBetween(start, end, "Mahindra", 1000.0 + (i & 7) * 100.0) != null ? 1 : 0;
+        });
+        BENCHMARKS.put("calculatePrice", (f, t, n, contended) ->
+                i -> sink += (long) f.system.calculatePrice(f.cars[(int) (i % f.cars.length)], 1 + (int) (i & 15)));
+        BENCHMARKS.put("quoteRules", (f, t, n, contended) -> quotes(f, QUOTE_START));
+        BENCHMARKS.put("quoteRulesCached", (f, t, n, contended) -> quotes(f, QUOTE_START.plusYears(5)));
+        BENCHMARKS.put("findAvailableCarById", (f, t, n, contended) -> i -> {
+            // Same call the GUI's findAvailableCarById makes for the Car ID field.
+            Car car = f.system.findAvailableCarById(f.ids[(int) ((i * 7919) % f.ids.length)]);
+            sink += car == null ? 0 : 1;
+        });
+        BENCHMARKS.put("searchAvailable", (f, t, n, contended) -> {
+            // What staff type in the GUI's Car ID field: part of an ID, a brand and model, a typo.
+            String[] queries = {"aud q", "thar", f.ids[f.ids.length / 2].substring(0, 8), "mahimdra", "brez"};
+            return i -> sink += f.system.searchAvailableCars(queries[(int) (i % queries.length)], 8).size();
+        });
+    }
+
+    // A week of start dates and up to two weeks' rental, as a search page would ask. Dates past
+    // the compiled tables are served from the engine's quote cache.
+    private static Operation quotes(Fixture f, LocalDate from) {
+        LocalDate[] starts = new LocalDate[8];
+        for (int d = 0; d < starts.length; d++) {
+            starts[d] = from.plusDays(d);
+        }
+        return i -> sink += RULES.quote(f.cars[(int) (i % f.cars.length)], starts[(int) (i >>> 4) & 7],
+                1 + (int) (i & 15));
+    }
+
+    // Fills cars with up to 100 distinct cars for one batch iteration.
+    private static void batchOf(Fixture f, long iteration, int thread, int threads, boolean contended, List<Car> cars) {
+        cars.clear();
+        Set<Car> distinct = new HashSet<>();
+        for (int k = 0; k < 100; k++) {
+            Car car = f.carFor(iteration * 100 + k, thread, threads, contended);
+            if (distinct.add(car)) {
+                cars.add(car);
+            }
+        }
+    }
+
+    static final class Result {
+        long operations;
+        long timedNanos;
+        long allocatedBytes;
+        long allocationOps;
+        final long[] samples = new long[SAMPLE_CAPACITY];
+        int sampleCount;
+
+        void record(long nanos) {
+            samples[(int) (operations & (SAMPLE_CAPACITY - 1))] = nanos;
+            if (sampleCount < SAMPLE_CAPACITY) {
+                sampleCount++;
+            }
+            operations++;
+            timedNanos += nanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {5, 1_000, 100_000, 1_000_000};
+        int cores = Runtime.getRuntime().availableProcessors();
+        long timeMillis = 1_000;
+        String filter = null;
+        boolean columnar = false;
+        int subscribers = 0;
+        boolean metrics = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--threads":
+                    cores = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    timeMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--filter":
+                    filter = args[++i];
+                    break;
+                case "--store":
+                    columnar = "columnar".equals(args[++i]);
+                    break;
+                case "--subscribers":
+                    subscribers = Integer.parseInt(args[++i]);
+                    break;
+                case "--metrics":
+                    metrics = !"off".equals(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        System.out.printf("%-22s %9s %8s %-10s %14s %9s %9s %9s %9s%n",
+                "Benchmark", "Fleet", "Threads", "Mode", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "B/op");
+        for (int size : sizes) {
+            FleetStore store = columnar
+                    ? ColumnarFleetStore.open(Files.createTempDirectory("rental-bench"))
+                    : new HeapFleetStore();
+            Fixture fixture = new Fixture(size, store);
+            fixture.system.getMetrics().setEnabled(metrics);
+            Car.setPricingEngine(PricingEngine.FLAT);
+            for (int s = 0; s < subscribers; s++) {
+                fixture.system.subscribe("bench-" + s, (event, sequence, endOfBatch) -> {
+                    if (endOfBatch) {
+                        sink += sequence;
+                    }
+                });
+            }
+            for (Map.Entry<String, Benchmark> entry : BENCHMARKS.entrySet()) {
+                if (filter != null && !entry.getKey().contains(filter)) {
+                    continue;
+                }
+                boolean writes = entry.getKey().startsWith("rent") || entry.getKey().startsWith("return");
+                report(entry.getKey(), size, 1, false, run(fixture, entry.getValue(), 1, false, timeMillis));
+                if (cores > 1) {
+                    report(entry.getKey(), size, cores, false, run(fixture, entry.getValue(), cores, false, timeMillis));
+                    if (writes) {
+                        report(entry.getKey(), size, cores, true, run(fixture, entry.getValue(), cores, true, timeMillis));
+                    }
+                }
+            }
+        }
+    }
+
+    static Result[] run(Fixture fixture, Benchmark benchmark, int threads, boolean contended, long timeMillis)
+            throws InterruptedException {
+        Result[] results = new Result[threads];
+        Thread[] workers = new Thread[threads];
+        CyclicBarrier start = new CyclicBarrier(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results[t] = new Result();
+            workers[t] = new Thread(() -> {
+                Operation op = benchmark.create(fixture, thread, threads, contended);
+                try {
+                    start.await();
+                    measure(op, new Result(), timeMillis / 2);   // warm-up, discarded
+                    start.await();
+                    measure(op, results[thread], timeMillis);
+                    measureAllocation(op, results[thread]);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "bench-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return results;
+    }
+
+    private static void measure(Operation op, Result result, long timeMillis) {
+        long deadline = System.nanoTime() + timeMillis * 1_000_000L;
+        long i = 0;
+        while (System.nanoTime() < deadline) {
+            op.prepare(i);
+            long begin = System.nanoTime();
+            op.run(i);
+            long elapsed = System.nanoTime() - begin;
+            op.cleanup(i);
+            result.record(elapsed);
+            i++;
+        }
+    }
+
+    private static void measureAllocation(Operation op, Result result) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            result.allocationOps = -1;
+            return;
+        }
+        // Calibrate the cost of the probe itself, then count only what run() allocates.
+        long probe = threads.getCurrentThreadAllocatedBytes();
+        long overhead = threads.getCurrentThreadAllocatedBytes() - probe;
+        int iterations = (int) Math.max(1, Math.min(10_000, result.operations));
+        for (int i = 0; i < iterations; i++) {
+            op.prepare(i);
+            long before = threads.getCurrentThreadAllocatedBytes();
+            op.run(i);
+            long after = threads.getCurrentThreadAllocatedBytes();
+            op.cleanup(i);
+            result.allocatedBytes += Math.max(0, after - before - overhead);
+        }
+        result.allocationOps = iterations;
+    }
+
+    private static void report(String name, int size, int threads, boolean contended, Result[] results) {
+        double throughput = 0;
+        long allocated = 0;
+        long allocationOps = 0;
+        int samples = 0;
+        for (Result r : results) {
+            throughput += r.operations * 1e9 / Math.max(1, r.timedNanos);
+            allocated += r.allocatedBytes;
+            allocationOps += r.allocationOps;
+            samples += r.sampleCount;
+        }
+        long[] merged = new long[samples];
+        int offset = 0;
+        for (Result r : results) {
+            System.arraycopy(r.samples, 0, merged, offset, r.sampleCount);
+            offset += r.sampleCount;
+        }
+        Arrays.sort(merged);
+        String perOp = allocationOps <= 0 ? "n/a" : String.format("%.1f", (double) allocated / allocationOps);
+        System.out.printf("%-22s %9d %8d %-10s %14.0f %9d %9d %9d %9s%n",
+                name, size, threads, contended ? "contended" : "own-cars", throughput,
+                percentile(merged, 0.50), percentile(merged, 0.99), percentile(merged, 0.999), perOp);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,69 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * A rent or return, as handed to {@link RentalEventHandler}s. Events are slots of the
+ * {@link RentalEventBus} ring and are reused once every subscriber has moved past them, so
+ * handlers must copy out anything they want to keep.
+ */
+final class RentalEvent {
+    enum Type { RENTED, RETURNED }
+
+    private Type type;
+    private Car car;
+    private Customer customer;
+    private long startDay;
+    private int days;
+    private long priceMinor;
+    private long timeMillis;
+
+    void set(Type type, Car car, Customer customer, long startDay, int days, long priceMinor, long timeMillis) {
+        this.type = type;
+        this.car = car;
+        this.customer = customer;
+        this.startDay = startDay;
+        this.days = days;
+        this.priceMinor = priceMinor;
+        this.timeMillis = timeMillis;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The rental rented or returned, built anew on each call; the event itself holds only its
+     * fields so publishing allocates nothing.
+     */
+    public Rental getRental() {
+        return new Rental(car, customer, getStartDate(), days, priceMinor);
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public LocalDate getStartDate() {
+        return LocalDate.ofEpochDay(startDay);
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public long getPriceMinor() {
+        return priceMinor;
+    }
+
+    /**
+     * When the change was published, in epoch milliseconds.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,272 @@
+package carrental;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans rents and returns out to any number of subscribers without slowing down the rentals.
+ *
+ * <p>Events go into a fixed ring of reused slots. A publisher claims a sequence number with one
+ * CAS, fills the slot and marks it published; nothing is allocated and the bus takes no lock of
+ * its own. Publishers call in holding the lock of the car concerned, so that two changes to one
+ * car are always given sequences in the order they happened. Each subscriber has its own thread
+ * that follows the ring at its own pace and takes everything published since it last looked as
+ * one batch. A publisher may only reuse a slot once the slowest subscriber is past it; what
+ * happens when the ring is full is set by {@link BackPressure}. With no subscribers, publishing
+ * does nothing.
+ */
+class RentalEventBus implements Closeable {
+    static final int DEFAULT_CAPACITY = 4_096;
+
+    enum BackPressure {
+        /** The renting thread waits for the slowest subscriber; no event is lost. */
+        BLOCK,
+        /** The event is dropped and counted, and subscribers are told through {@link RentalEventHandler#onDropped}. */
+        DROP
+    }
+
+    // Slots are marked published with a volatile write: a plain or release store could be
+    // reordered after the read of a subscriber's sleeping flag and leave it asleep.
+    /**
+     * Stops deliveries to one subscriber when closed.
+     */
+    interface Subscription extends Closeable {
+        @Override
+        void close();
+    }
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int SPINS = 100;
+    // After spinning, an idle subscriber polls this many times before asking to be woken, so
+    // that under a steady stream of rentals publishers hardly ever pay for waking one.
+    private static final int POLLS = 10;
+    private static final long POLL_NANOS = 200_000;
+
+    private final RentalEvent[] ring;
+    // The sequence last published into each slot.
+    private final long[] published;
+    private final int mask;
+    private final BackPressure backPressure;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong dropped = new AtomicLong();
+    // Lowest sequence all subscribers had reached when last checked; saves reading them all on every claim.
+    private volatile long gate = -1;
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+
+    RentalEventBus(int capacity, BackPressure backPressure) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        ring = new RentalEvent[capacity];
+        published = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new RentalEvent();
+            published[i] = -1;
+        }
+        mask = capacity - 1;
+        this.backPressure = backPressure;
+    }
+
+    /**
+     * Starts delivering every later event to the handler on a thread of its own, until the
+     * returned handle is closed.
+     */
+    synchronized Subscription subscribe(String name, RentalEventHandler handler) {
+        Subscriber subscriber = new Subscriber(name, handler, claimed.get());
+        Subscriber[] current = subscribers;
+        Subscriber[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = subscriber;
+        subscribers = grown;
+        subscriber.thread.start();
+        return () -> unsubscribe(subscriber);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        synchronized (this) {
+            List<Subscriber> remaining = new ArrayList<>(Arrays.asList(subscribers));
+            if (!remaining.remove(subscriber)) {
+                return;
+            }
+            subscribers = remaining.toArray(new Subscriber[0]);
+        }
+        subscriber.running = false;
+        LockSupport.unpark(subscriber.thread);
+        try {
+            subscriber.thread.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void publish(RentalEvent.Type type, Car car, Customer customer, long startDay, int days, long priceMinor) {
+        long sequence = claim(1);
+        if (sequence >= 0) {
+            ring[(int) sequence & mask].set(type, car, customer, startDay, days, priceMinor, System.currentTimeMillis());
+            SLOT.setVolatile(published, (int) sequence & mask, sequence);
+            wakeSubscribers();
+        }
+    }
+
+    /**
+     * Publishes the rentals as consecutive events, claiming their slots in one go.
+     */
+    void publishAll(RentalEvent.Type type, List<Rental> rentals) {
+        long now = System.currentTimeMillis();
+        for (int from = 0; from < rentals.size(); from += ring.length) {
+            int count = Math.min(ring.length, rentals.size() - from);
+            long first = claim(count);
+            if (first < 0) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                Rental rental = rentals.get(from + i);
+                ring[(int) (first + i) & mask].set(type, rental.getCar(), rental.getCustomer(),
+                        rental.getStartDate().toEpochDay(), rental.getDays(), rental.getPriceMinor(), now);
+            }
+            for (int i = 0; i < count; i++) {
+                SLOT.setVolatile(published, (int) (first + i) & mask, first + i);
+            }
+            wakeSubscribers();
+        }
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    // Returns the first of count consecutive sequences, or -1 if there is no one to publish to
+    // or the events were dropped.
+    private long claim(int count) {
+        for (int attempt = 0; ; attempt++) {
+            Subscriber[] current = subscribers;
+            if (current.length == 0) {
+                return -1;
+            }
+            long last = claimed.get();
+            long wrapPoint = last + count - ring.length;
+            if (wrapPoint > gate) {
+                long slowest = last;
+                for (Subscriber subscriber : current) {
+                    slowest = Math.min(slowest, subscriber.sequence.get());
+                }
+                gate = slowest;
+                if (wrapPoint > slowest) {
+                    if (backPressure == BackPressure.DROP) {
+                        dropped.addAndGet(count);
+                        return -1;
+                    }
+                    wakeSubscribers();
+                    if (attempt < SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(10_000);
+                    }
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(last, last + count)) {
+                return last + 1;
+            }
+        }
+    }
+
+    private void wakeSubscribers() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sleeping) {
+                LockSupport.unpark(subscriber.thread);
+            }
+        }
+    }
+
+    // The highest sequence from next on up to which every event has been published, or next - 1.
+    private long publishedUpTo(long next) {
+        long last = claimed.get();
+        for (long sequence = next; sequence <= last; sequence++) {
+            if ((long) SLOT.getAcquire(published, (int) sequence & mask) != sequence) {
+                return sequence - 1;
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            unsubscribe(subscriber);
+        }
+    }
+
+    private final class Subscriber {
+        final RentalEventHandler handler;
+        final AtomicLong sequence;
+        final Thread thread;
+        volatile boolean sleeping;
+        volatile boolean running = true;
+        private long droppedSeen = dropped.get();
+
+        Subscriber(String name, RentalEventHandler handler, long start) {
+            this.handler = handler;
+            this.sequence = new AtomicLong(start);
+            this.thread = new Thread(this::run, "rental-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (running) {
+                long available = publishedUpTo(next);
+                if (available < next) {
+                    reportDropped();
+                    idle = waitForEvents(next, idle);
+                    continue;
+                }
+                idle = 0;
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEvent(ring[(int) s & mask], s, s == available);
+                    } catch (RuntimeException e) {
+                        System.err.println("Rental event handler " + thread.getName() + " failed: " + e);
+                    }
+                }
+                sequence.lazySet(available);
+                next = available + 1;
+            }
+        }
+
+        private void reportDropped() {
+            long total = dropped.get();
+            if (total != droppedSeen) {
+                long count = total - droppedSeen;
+                droppedSeen = total;
+                try {
+                    handler.onDropped(count);
+                } catch (RuntimeException e) {
+                    System.err.println("Rental event handler " + thread.getName() + " failed: " + e);
+                }
+            }
+        }
+
+        // Spins briefly, then polls a few times, then sleeps until a publisher wakes it.
+        private int waitForEvents(long next, int idle) {
+            if (idle < SPINS) {
+                Thread.onSpinWait();
+                return idle + 1;
+            }
+            if (idle < SPINS + POLLS) {
+                LockSupport.parkNanos(this, POLL_NANOS);
+                return idle + 1;
+            }
+            sleeping = true;
+            if (publishedUpTo(next) < next && running) {
+                LockSupport.park(this);
+            }
+            sleeping = false;
+            return idle;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package carrental;
+
+interface RentalEventHandler {
+    /**
+     * Called on the subscriber's own thread for each event, in order. {@code endOfBatch} is
+     * true for the last event currently published, the moment to flush work gathered over the
+     * batch.
+     */
+    void onEvent(RentalEvent event, long sequence, boolean endOfBatch);
+
+    /**
+     * Some events were lost because this or another subscriber fell a whole ring behind.
+     * Only happens with {@link RentalEventBus.BackPressure#DROP}.
+     */
+    default void onDropped(long count) {
+    }
+}
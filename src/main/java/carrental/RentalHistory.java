@@ -0,0 +1,732 @@
+package carrental;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only record of every rent and return of a {@link CarRentalSystem}, kept for questions
+ * the live system cannot answer once a car is back: revenue per car, utilization by month, who
+ * had a car on a given day.
+ *
+ * <p>Events arrive from the system's event bus and are collected into blocks of
+ * {@link #BLOCK_EVENTS}. A full block is written to the partition file of its month, with the
+ * car and customer IDs it mentions in an uncompressed header and the events themselves as
+ * varints deflated behind it. Until then each batch of events is also written to a tail file,
+ * so restarting the application loses nothing. Unlike the journal, the history is not forced to
+ * disk: it can be rebuilt from a backup, and rentals should not wait for it. On opening, only
+ * the block headers are read, to rebuild the per-car and per-customer indexes of which blocks
+ * mention whom.
+ *
+ * <p>If the bus runs with {@link RentalEventBus.BackPressure#DROP}, events it drops never reach
+ * the history. They are counted in {@link #getDropped} and reported on standard error, since
+ * the figures the history gives are short by those rentals from then on.
+ *
+ * <p>Lookups by car or customer read just the blocks the indexes point at. Aggregates scan the
+ * months in parallel, one block at a time, skipping blocks whose rentals lie outside the dates
+ * asked about, so they need the same memory however long the history is. Aggregates count
+ * finished rentals only.
+ */
+class RentalHistory implements RentalEventHandler, Closeable {
+    static final int BLOCK_EVENTS = 4096;
+
+    private static final int BLOCK_MAGIC = 0x52484231; // "RHB1"
+    private static final int FRAME_BYTES = 20;
+    private static final String PARTITION_PREFIX = "history-";
+    private static final String PARTITION_SUFFIX = ".seg";
+    private static final String TAIL_FILE = "history-tail.log";
+
+    private final Path directory;
+    private final ZoneId zone = ZoneId.systemDefault();
+    // Sealed blocks in the order they were written; a block's number is its place in this list.
+    private final List<Block> blocks = new CopyOnWriteArrayList<>();
+    // Ascending numbers of the blocks mentioning each car and each customer, keyed by upper-case ID.
+    private final Map<String, BlockList> carBlocks = new HashMap<>();
+    private final Map<String, BlockList> customerBlocks = new HashMap<>();
+    // Events not yet in a block; they are in the tail file too.
+    private final List<HistoryEvent> pending = new ArrayList<>();
+    private DataOutputStream tail;
+    private RentalEventBus.Subscription subscription;
+    private final AtomicLong dropped = new AtomicLong();
+    // Held while events are appended and blocks sealed; queries only take the history's own lock.
+    private final Object writing = new Object();
+
+    private RentalHistory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the history kept in {@code directory} and records every later rent and return of
+     * the system. Open it after the system's journal, so replayed rentals are not recorded twice.
+     */
+    public static RentalHistory open(Path directory, CarRentalSystem system) throws IOException {
+        RentalHistory history = open(directory);
+        history.subscription = system.subscribe("rental-history", history);
+        return history;
+    }
+
+    /**
+     * Opens the history kept in {@code directory} for queries only.
+     */
+    static RentalHistory open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        RentalHistory history = new RentalHistory(directory);
+        history.load();
+        return history;
+    }
+
+    private static final class Block {
+        final YearMonth month;
+        final long offset;
+        final int headerLength;
+        final int payloadLength;
+        final int payloadChecksum;
+        // First rental start day and last end day of the block's events, as epoch days.
+        final long firstDay;
+        final long lastDay;
+
+        Block(YearMonth month, long offset, int headerLength, int payloadLength, int payloadChecksum,
+                long firstDay, long lastDay) {
+            this.month = month;
+            this.offset = offset;
+            this.headerLength = headerLength;
+            this.payloadLength = payloadLength;
+            this.payloadChecksum = payloadChecksum;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+        }
+
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return lastDay >= from.toEpochDay() && firstDay < to.toEpochDay();
+        }
+    }
+
+    private static final class BlockList {
+        int[] numbers = new int[4];
+        int size;
+
+        void add(int number) {
+            if (size > 0 && numbers[size - 1] == number) {
+                return;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+    }
+
+    // ---- writing ----
+
+    @Override
+    public void onEvent(RentalEvent event, long sequence, boolean endOfBatch) {
+        Customer customer = event.getCustomer();
+        LocalDate start = event.getStartDate();
+        LocalDate end = start.plusDays(Math.max(1, event.getDays()));
+        if (event.getType() == RentalEvent.Type.RETURNED) {
+            LocalDate returned = Instant.ofEpochMilli(event.getTimeMillis()).atZone(zone).toLocalDate();
+            end = returned.isAfter(start) ? returned : start.plusDays(1);
+        }
+        HistoryEvent entry = new HistoryEvent(event.getType(), event.getTimeMillis(), event.getCar().getCarId(),
+                customer.getCustomerId(), customer.getName(), start, event.getDays(), end, event.getPriceMinor());
+        try {
+            append(entry);
+            if (endOfBatch) {
+                synchronized (this) {
+                    tail.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not record rental history: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onDropped(long count) {
+        long total = dropped.addAndGet(count);
+        System.err.println("Rental history missed " + count + " events dropped by the event bus ("
+                + total + " in all); its figures leave those rentals out");
+    }
+
+    /**
+     * Events the event bus dropped before they reached the history, since it was opened.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    void append(HistoryEvent event) throws IOException {
+        synchronized (writing) {
+            // Blocks never span months, so every partition file holds only its own month.
+            if (!pending.isEmpty() && !monthOf(pending.get(0)).equals(monthOf(event))) {
+                seal();
+            }
+            synchronized (this) {
+                writeTailEvent(event);
+                pending.add(event);
+            }
+            if (pending.size() >= BLOCK_EVENTS) {
+                seal();
+            }
+        }
+    }
+
+    /**
+     * Writes any pending events as a block of their own.
+     */
+    public void flush() throws IOException {
+        synchronized (writing) {
+            if (!pending.isEmpty()) {
+                seal();
+            }
+        }
+    }
+
+    // Called holding the writing lock, which is all that changes the pending events.
+    private void seal() throws IOException {
+        List<HistoryEvent> events = new ArrayList<>(pending);
+        YearMonth month = monthOf(events.get(0));
+        Map<String, Integer> cars = new LinkedHashMap<>();
+        Map<String, Integer> customers = new LinkedHashMap<>();
+        Map<String, String> names = new HashMap<>();
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (HistoryEvent event : events) {
+            cars.putIfAbsent(event.getCarId(), cars.size());
+            customers.putIfAbsent(event.getCustomerId(), customers.size());
+            names.putIfAbsent(event.getCustomerId(), event.getCustomerName());
+            firstDay = Math.min(firstDay, event.getStartDate().toEpochDay());
+            lastDay = Math.max(lastDay, event.getEndDate().toEpochDay());
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(events.size());
+        header.writeLong(firstDay);
+        header.writeLong(lastDay);
+        header.writeInt(cars.size());
+        for (String carId : cars.keySet()) {
+            header.writeUTF(carId);
+        }
+        header.writeInt(customers.size());
+        for (String customerId : customers.keySet()) {
+            header.writeUTF(customerId);
+            header.writeUTF(names.get(customerId));
+        }
+        header.flush();
+
+        // Times and days are stored as differences, which are small and compress well.
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(events.size() * 16);
+        long previousTime = events.get(0).getTimeMillis();
+        writeVarLong(raw, previousTime);
+        for (HistoryEvent event : events) {
+            raw.write(event.getType().ordinal());
+            writeVarLong(raw, zigZag(event.getTimeMillis() - previousTime));
+            previousTime = event.getTimeMillis();
+            writeVarLong(raw, cars.get(event.getCarId()));
+            writeVarLong(raw, customers.get(event.getCustomerId()));
+            writeVarLong(raw, event.getStartDate().toEpochDay() - firstDay);
+            writeVarLong(raw, event.getDays());
+            writeVarLong(raw, event.getEndDate().toEpochDay() - event.getStartDate().toEpochDay());
+            writeVarLong(raw, zigZag(event.getAmountMinor()));
+        }
+        byte[] payload = deflate(raw.toByteArray());
+
+        CRC32 check = new CRC32();
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES + headerBytes.size() + payload.length);
+        frame.putInt(BLOCK_MAGIC).putInt(headerBytes.size()).putInt(payload.length);
+        check.update(headerBytes.toByteArray());
+        frame.putInt((int) check.getValue());
+        check.reset();
+        check.update(payload);
+        int payloadChecksum = (int) check.getValue();
+        frame.putInt(payloadChecksum).put(headerBytes.toByteArray()).put(payload).flip();
+        long offset;
+        try (FileChannel channel = FileChannel.open(partitionFile(month),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            offset = channel.size();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+
+        Block block = new Block(month, offset, headerBytes.size(), payload.length, payloadChecksum, firstDay, lastDay);
+        synchronized (this) {
+            index(block, cars.keySet(), customers.keySet());
+            pending.clear();
+            startTail();
+        }
+    }
+
+    private void index(Block block, Collection<String> carIds, Collection<String> customerIds) {
+        int number = blocks.size();
+        blocks.add(block);
+        for (String carId : carIds) {
+            carBlocks.computeIfAbsent(FleetStore.idKey(carId), k -> new BlockList()).add(number);
+        }
+        for (String customerId : customerIds) {
+            customerBlocks.computeIfAbsent(customerId.toUpperCase(Locale.ROOT), k -> new BlockList()).add(number);
+        }
+    }
+
+    // The tail file starts with the number of blocks written before it, so a tail that was
+    // already sealed when the process stopped is recognised and dropped.
+    private void startTail() throws IOException {
+        if (tail != null) {
+            tail.close();
+        }
+        tail = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(directory.resolve(TAIL_FILE).toFile()), 1 << 14));
+        tail.writeInt(blocks.size());
+        for (HistoryEvent event : pending) {
+            writeTailEvent(event);
+        }
+        tail.flush();
+    }
+
+    private void writeTailEvent(HistoryEvent event) throws IOException {
+        tail.writeByte(event.getType().ordinal());
+        tail.writeLong(event.getTimeMillis());
+        tail.writeUTF(event.getCarId());
+        tail.writeUTF(event.getCustomerId());
+        tail.writeUTF(event.getCustomerName());
+        tail.writeLong(event.getStartDate().toEpochDay());
+        tail.writeInt(event.getDays());
+        tail.writeLong(event.getEndDate().toEpochDay());
+        tail.writeLong(event.getAmountMinor());
+    }
+
+    private YearMonth monthOf(HistoryEvent event) {
+        return YearMonth.from(Instant.ofEpochMilli(event.getTimeMillis()).atZone(zone));
+    }
+
+    private Path partitionFile(YearMonth month) {
+        return directory.resolve(PARTITION_PREFIX + month + PARTITION_SUFFIX);
+    }
+
+    // ---- loading ----
+
+    private void load() throws IOException {
+        List<Path> partitions = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PARTITION_PREFIX + "*" + PARTITION_SUFFIX)) {
+            for (Path path : stream) {
+                partitions.add(path);
+            }
+        }
+        partitions.sort(Comparator.naturalOrder());
+        for (Path path : partitions) {
+            String name = path.getFileName().toString();
+            YearMonth month = YearMonth.parse(name.substring(PARTITION_PREFIX.length(), name.length() - PARTITION_SUFFIX.length()));
+            loadPartition(path, month);
+        }
+
+        List<HistoryEvent> events = new ArrayList<>();
+        Path tailFile = directory.resolve(TAIL_FILE);
+        if (Files.exists(tailFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(tailFile), 1 << 14))) {
+                if (in.readInt() == blocks.size()) {
+                    while (true) {
+                        try {
+                            events.add(new HistoryEvent(RentalEvent.Type.values()[in.readByte()], in.readLong(),
+                                    in.readUTF(), in.readUTF(), in.readUTF(), LocalDate.ofEpochDay(in.readLong()),
+                                    in.readInt(), LocalDate.ofEpochDay(in.readLong()), in.readLong()));
+                        } catch (EOFException e) {
+                            break; // end of the tail, or an event torn by a crash
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                // the tail was being started when the process stopped
+            }
+        }
+        pending.addAll(events);
+        startTail();
+    }
+
+    private void loadPartition(Path path, YearMonth month) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long offset = 0;
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+            CRC32 check = new CRC32();
+            while (offset + FRAME_BYTES <= size) {
+                frame.clear();
+                readFully(channel, frame, offset);
+                frame.flip();
+                int headerLength = frame.getInt(4);
+                int payloadLength = frame.getInt(8);
+                if (frame.getInt(0) != BLOCK_MAGIC || headerLength < 0 || payloadLength < 0
+                        || offset + FRAME_BYTES + headerLength + payloadLength > size) {
+                    break;
+                }
+                ByteBuffer headerBytes = ByteBuffer.allocate(headerLength);
+                readFully(channel, headerBytes, offset + FRAME_BYTES);
+                check.reset();
+                check.update(headerBytes.array());
+                if ((int) check.getValue() != frame.getInt(12)) {
+                    break;
+                }
+                DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes.array()));
+                header.readInt();
+                long firstDay = header.readLong();
+                long lastDay = header.readLong();
+                List<String> carIds = new ArrayList<>();
+                for (int i = header.readInt(); i > 0; i--) {
+                    carIds.add(header.readUTF());
+                }
+                List<String> customerIds = new ArrayList<>();
+                for (int i = header.readInt(); i > 0; i--) {
+                    customerIds.add(header.readUTF());
+                    header.readUTF();
+                }
+                index(new Block(month, offset, headerLength, payloadLength, frame.getInt(16), firstDay, lastDay),
+                        carIds, customerIds);
+                offset += FRAME_BYTES + headerLength + payloadLength;
+            }
+            // A block torn by a crash is still in the tail file and is written again.
+            if (offset < size) {
+                channel.truncate(offset);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    // ---- reading ----
+
+    /**
+     * Every rent and return of the car, oldest first.
+     */
+    public List<HistoryEvent> carHistory(String carId) throws IOException {
+        String key = FleetStore.idKey(carId);
+        return lookUp(carBlocks, key, event -> FleetStore.idKey(event.getCarId()).equals(key));
+    }
+
+    /**
+     * Every rent and return by the customer, oldest first.
+     */
+    public List<HistoryEvent> customerHistory(String customerId) throws IOException {
+        String key = customerId.toUpperCase(Locale.ROOT);
+        return lookUp(customerBlocks, key, event -> event.getCustomerId().toUpperCase(Locale.ROOT).equals(key));
+    }
+
+    /**
+     * The last rental that had the car on the given day, finished or still running, or null if
+     * the car was in the lot. For a finished rental the return is given, which carries both ends.
+     */
+    public HistoryEvent rentalOn(String carId, LocalDate date) throws IOException {
+        HistoryEvent found = null;
+        HistoryEvent out = null;
+        for (HistoryEvent event : carHistory(carId)) {
+            if (!event.isReturn()) {
+                out = event;
+            } else {
+                out = null;
+                if (!date.isBefore(event.getStartDate()) && date.isBefore(event.getEndDate())) {
+                    found = event;
+                }
+            }
+        }
+        // A car still out was had by its renter on every day since the rental started.
+        return out != null && !date.isBefore(out.getStartDate()) ? out : found;
+    }
+
+    private List<HistoryEvent> lookUp(Map<String, BlockList> index, String key, Predicate<HistoryEvent> match)
+            throws IOException {
+        int[] numbers;
+        List<HistoryEvent> unsealed;
+        synchronized (this) {
+            BlockList list = index.get(key);
+            numbers = list == null ? new int[0] : Arrays.copyOf(list.numbers, list.size);
+            unsealed = new ArrayList<>(pending);
+        }
+        List<HistoryEvent> found = new ArrayList<>();
+        for (int number : numbers) {
+            Block block = blocks.get(number);
+            try (FileChannel channel = FileChannel.open(partitionFile(block.month), StandardOpenOption.READ)) {
+                read(channel, block, event -> {
+                    if (match.test(event)) {
+                        found.add(event);
+                    }
+                });
+            }
+        }
+        for (HistoryEvent event : unsealed) {
+            if (match.test(event)) {
+                found.add(event);
+            }
+        }
+        found.sort(Comparator.comparingLong(HistoryEvent::getTimeMillis));
+        return found;
+    }
+
+    /**
+     * Revenue of the rentals that ended from {@code from} up to, but not including, {@code to},
+     * in the smallest currency unit.
+     */
+    public long revenue(LocalDate from, LocalDate to) throws IOException {
+        return scan(from, to, () -> new long[1], (sum, event) -> {
+            if (endsBetween(event, from, to)) {
+                sum[0] += event.getAmountMinor();
+            }
+        }, (a, b) -> {
+            a[0] += b[0];
+            return a;
+        })[0];
+    }
+
+    /**
+     * Revenue per car ID of the rentals that ended from {@code from} up to, but not including,
+     * {@code to}, in the smallest currency unit.
+     */
+    public Map<String, Long> revenueByCar(LocalDate from, LocalDate to) throws IOException {
+        return scan(from, to, HashMap<String, Long>::new, (sums, event) -> {
+            if (endsBetween(event, from, to)) {
+                sums.merge(event.getCarId(), event.getAmountMinor(), Long::sum);
+            }
+        }, (a, b) -> {
+            b.forEach((carId, sum) -> a.merge(carId, sum, Long::sum));
+            return a;
+        });
+    }
+
+    /**
+     * Car-days spent on finished rentals from {@code from} up to, but not including, {@code to}.
+     * Only the part of each rental inside the range counts.
+     */
+    public long daysRented(LocalDate from, LocalDate to) throws IOException {
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        return scan(from, to, () -> new long[1], (sum, event) -> {
+            if (event.isReturn()) {
+                sum[0] += Math.max(0, Math.min(last, event.getEndDate().toEpochDay())
+                        - Math.max(first, event.getStartDate().toEpochDay()));
+            }
+        }, (a, b) -> {
+            a[0] += b[0];
+            return a;
+        })[0];
+    }
+
+    /**
+     * For each month from {@code from} up to, but not including, {@code to}, the share of a
+     * fleet of {@code fleetSize} cars that finished rentals kept busy.
+     */
+    public SortedMap<YearMonth, Double> utilizationByMonth(LocalDate from, LocalDate to, int fleetSize)
+            throws IOException {
+        YearMonth first = YearMonth.from(from);
+        int months = (int) ChronoUnit.MONTHS.between(first, YearMonth.from(to.minusDays(1))) + 1;
+        // Epoch day each month of the range starts on, clipped to the range, and where the range ends.
+        long[] bounds = new long[months + 1];
+        for (int i = 0; i < months; i++) {
+            bounds[i] = Math.max(from.toEpochDay(), first.plusMonths(i).atDay(1).toEpochDay());
+        }
+        bounds[months] = to.toEpochDay();
+        long[] busy = scan(from, to, () -> new long[months], (days, event) -> {
+            if (!event.isReturn()) {
+                return;
+            }
+            long start = Math.max(bounds[0], event.getStartDate().toEpochDay());
+            long end = Math.min(bounds[months], event.getEndDate().toEpochDay());
+            int month = Arrays.binarySearch(bounds, start);
+            for (month = month < 0 ? -month - 2 : month; start < end; month++) {
+                long stop = Math.min(bounds[month + 1], end);
+                days[month] += stop - start;
+                start = stop;
+            }
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        });
+        SortedMap<YearMonth, Double> utilization = new TreeMap<>();
+        for (int i = 0; i < months; i++) {
+            long capacity = (long) fleetSize * (bounds[i + 1] - bounds[i]);
+            utilization.put(first.plusMonths(i), capacity == 0 ? 0.0 : (double) busy[i] / capacity);
+        }
+        return utilization;
+    }
+
+    private static boolean endsBetween(HistoryEvent event, LocalDate from, LocalDate to) {
+        return event.isReturn() && !event.getEndDate().isBefore(from) && event.getEndDate().isBefore(to);
+    }
+
+    /**
+     * Folds every event of the blocks that may touch the date range into an accumulator per
+     * partition, partitions in parallel, then combines the accumulators.
+     */
+    private <A> A scan(LocalDate from, LocalDate to, Supplier<A> create, BiConsumer<A, HistoryEvent> add,
+            BinaryOperator<A> combine) throws IOException {
+        List<HistoryEvent> unsealed;
+        int sealed;
+        synchronized (this) {
+            unsealed = new ArrayList<>(pending);
+            sealed = blocks.size();
+        }
+        Map<YearMonth, List<Block>> partitions = new TreeMap<>();
+        for (Block block : blocks.subList(0, sealed)) {
+            if (block.overlaps(from, to)) {
+                partitions.computeIfAbsent(block.month, m -> new ArrayList<>()).add(block);
+            }
+        }
+        A total = create.get();
+        for (HistoryEvent event : unsealed) {
+            add.accept(total, event);
+        }
+        try {
+            return partitions.values().parallelStream().map(partition -> {
+                A sum = create.get();
+                try (FileChannel channel = FileChannel.open(partitionFile(partition.get(0).month), StandardOpenOption.READ)) {
+                    for (Block block : partition) {
+                        read(channel, block, event -> add.accept(sum, event));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return sum;
+            }).reduce(combine).map(sum -> combine.apply(total, sum)).orElse(total);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void read(FileChannel channel, Block block, Consumer<HistoryEvent> action) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(block.headerLength + block.payloadLength);
+        readFully(channel, bytes, block.offset + FRAME_BYTES);
+        CRC32 check = new CRC32();
+        check.update(bytes.array(), block.headerLength, block.payloadLength);
+        if ((int) check.getValue() != block.payloadChecksum) {
+            throw new IOException("Corrupt rental history block at " + block.offset + " of " + block.month);
+        }
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes.array(), 0, block.headerLength));
+        int count = header.readInt();
+        long firstDay = header.readLong();
+        header.readLong();
+        String[] carIds = new String[header.readInt()];
+        for (int i = 0; i < carIds.length; i++) {
+            carIds[i] = header.readUTF();
+        }
+        String[] customerIds = new String[header.readInt()];
+        String[] names = new String[customerIds.length];
+        for (int i = 0; i < customerIds.length; i++) {
+            customerIds[i] = header.readUTF();
+            names[i] = header.readUTF();
+        }
+        ByteBuffer in = ByteBuffer.wrap(inflate(bytes.array(), block.headerLength, block.payloadLength));
+        long time = readVarLong(in);
+        RentalEvent.Type[] types = RentalEvent.Type.values();
+        for (int i = 0; i < count; i++) {
+            RentalEvent.Type type = types[in.get()];
+            time += unZigZag(readVarLong(in));
+            String carId = carIds[(int) readVarLong(in)];
+            int customer = (int) readVarLong(in);
+            long start = firstDay + readVarLong(in);
+            int days = (int) readVarLong(in);
+            long end = start + readVarLong(in);
+            long amount = unZigZag(readVarLong(in));
+            action.accept(new HistoryEvent(type, time, carId, customerIds[customer], names[customer],
+                    LocalDate.ofEpochDay(start), days, LocalDate.ofEpochDay(end), amount));
+        }
+    }
+
+    // ---- encoding ----
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes, offset, length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated rental history block");
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt rental history block", e);
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Stops recording, writes pending events as a block and closes the files.
+     */
+    @Override
+    public void close() throws IOException {
+        if (subscription != null) {
+            subscription.close();
+        }
+        flush();
+        synchronized (this) {
+            tail.close();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package carrental;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import javax.management.JMException;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Small HTTP/JSON front end to a {@link CarRentalSystem}, built on the JDK's own HTTP server so
+ * kiosks and partner systems can use the same engine as the GUI. Each request runs on its own
+ * virtual thread where the runtime has them, otherwise on a thread pool.
+ *
+ * <pre>
+ * GET  /cars/available?brand=BMW&amp;maxPrice=3000&amp;limit=20
+ * GET  /quote?carId=ID_001&amp;days=3[&amp;start=2025-07-01]
+ * POST /rentals?carId=ID_001&amp;customerName=Jane+Doe[&amp;contact=jane@example.com]&amp;days=3
+ * POST /returns?carId=ID_001
+ * GET  /metrics
+ * </pre>
+ *
+ * POST parameters may also be sent as a form-encoded body. Errors come back as
+ * {@code {"error": "..."}} with status 400, 404, 405 or 409.
+ */
+class RentalHttpServer implements Closeable {
+    private static final int MAX_LIMIT = 1_000;
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle's algorithm on, each
+        // response then waits for a delayed ACK, about 40 ms.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final CarRentalSystem system;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    RentalHttpServer(CarRentalSystem system, InetSocketAddress address) throws IOException {
+        this.system = system;
+        this.server = HttpServer.create(address, 0);
+        this.executor = RentalService.newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/cars/available", exchange -> handle(exchange, "GET", this::availableCars));
+        server.createContext("/quote", exchange -> handle(exchange, "GET", this::quote));
+        server.createContext("/rentals", exchange -> handle(exchange, "POST", this::rent));
+        server.createContext("/returns", exchange -> handle(exchange, "POST", this::returnCar));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET",
+                params -> new Response(200, system.getMetrics().dump(), "text/plain; version=0.0.4; charset=utf-8")));
+    }
+
+    static RentalHttpServer start(CarRentalSystem system, int port) throws IOException {
+        RentalHttpServer server = new RentalHttpServer(system, new InetSocketAddress(port));
+        server.server.start();
+        return server;
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, String> params);
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+        final String contentType;
+
+        Response(int status, String json) {
+            this(status, json, "application/json; charset=utf-8");
+        }
+
+        Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * Turns into an error response with the given status.
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new HttpError(405, "Use " + method + ".");
+            }
+            response = endpoint.handle(params(exchange));
+        } catch (HttpError e) {
+            response = new Response(e.status, "{\"error\":" + quote(e.getMessage()) + "}");
+        } catch (RuntimeException e) {
+            response = new Response(500, "{\"error\":" + quote(String.valueOf(e)) + "}");
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Response availableCars(Map<String, String> params) {
+        String brand = params.get("brand");
+        double maxPrice = params.containsKey("maxPrice") ? number(params, "maxPrice") : Double.POSITIVE_INFINITY;
+        int limit = params.containsKey("limit") ? (int) Math.min(MAX_LIMIT, positive(params, "limit")) : 100;
+        StringBuilder json = new StringBuilder("[");
+        for (Car car : system.findAvailableCars(brand, maxPrice, limit)) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            appendCar(json, car);
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private Response quote(Map<String, String> params) {
+        Car car = car(params);
+        int days = days(params);
+        LocalDate start;
+        try {
+            start = params.containsKey("start") ? LocalDate.parse(params.get("start")) : system.today();
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new HttpError(400, "start must be a date such as 2025-07-01.");
+        }
+        long total = system.quote(car, start, days);
+        return new Response(200, "{\"carId\":" + quote(car.getCarId()) + ",\"start\":\"" + start
+                + "\",\"days\":" + days + ",\"total\":" + money(total) + "}");
+    }
+
+    private Response rent(Map<String, String> params) {
+        Car car = car(params);
+        String name = params.getOrDefault("customerName", "").trim();
+        if (name.isEmpty() || name.length() > 100) {
+            throw new HttpError(400, "customerName is required and at most 100 characters.");
+        }
+        int days = days(params);
+        String contact = params.getOrDefault("contact", "").trim();
+        RentalService.RentalOffer offer = RentalService.offer(system, car.getCarId(), name, contact, days);
+        if (offer == null || !system.rentCar(offer.getCar(), offer.getCustomer(), days)) {
+            throw new HttpError(409, "Car " + car.getCarId() + " is not available.");
+        }
+        return new Response(201, "{\"carId\":" + quote(car.getCarId()) + ",\"customerId\":"
+                + quote(offer.getCustomer().getCustomerId()) + ",\"days\":" + days + ",\"total\":"
+                + String.format(Locale.ROOT, "%.2f", offer.getTotalPrice()) + "}");
+    }
+
+    private Response returnCar(Map<String, String> params) {
+        Car car = car(params);
+        if (!system.returnCar(car)) {
+            throw new HttpError(409, "Car " + car.getCarId() + " is not rented.");
+        }
+        return new Response(200, "{\"carId\":" + quote(car.getCarId()) + ",\"returned\":true}");
+    }
+
+    private Car car(Map<String, String> params) {
+        String carId = params.get("carId");
+        if (carId == null || carId.isEmpty()) {
+            throw new HttpError(400, "carId is required.");
+        }
+        Car car = system.findCarById(carId);
+        if (car == null) {
+            throw new HttpError(404, "No car with ID " + carId + ".");
+        }
+        return car;
+    }
+
+    private static double number(Map<String, String> params, String name) {
+        try {
+            return Double.parseDouble(params.get(name));
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, name + " must be a number.");
+        }
+    }
+
+    private static long positive(Map<String, String> params, String name) {
+        try {
+            long value = Long.parseLong(params.getOrDefault(name, ""));
+            if (value > 0 && value <= Integer.MAX_VALUE) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new HttpError(400, name + " must be a positive whole number.");
+    }
+
+    private static int days(Map<String, String> params) {
+        long days = positive(params, "days");
+        if (!CarRentalSystem.isValidLength(days)) {
+            throw new HttpError(400, "days must be at most " + CarRentalSystem.MAX_RENTAL_DAYS + ".");
+        }
+        return (int) days;
+    }
+
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseInto(params, exchange.getRequestURI().getRawQuery());
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parseInto(params, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void parseInto(Map<String, String> params, String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            try {
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, "Malformed query string.");
+            }
+        }
+    }
+
+    private static void appendCar(StringBuilder json, Car car) {
+        json.append("{\"carId\":").append(quote(car.getCarId()))
+                .append(",\"brand\":").append(quote(car.getBrand()))
+                .append(",\"model\":").append(quote(car.getModel()))
+                .append(",\"pricePerDay\":").append(money(car.getBasePriceMinor()))
+                .append(",\"available\":").append(car.isAvailable())
+                .append('}');
+    }
+
+    private static String money(long minor) {
+        return String.format(Locale.ROOT, "%d.%02d", minor / 100, Math.abs(minor % 100));
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Serves the rental system saved in a data directory.
+     *
+     * <pre>
+     * java -cp target/classes carrental.RentalHttpServer [--port 8080] [--dataDir rental-data]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        Path dataDir = Paths.get("rental-data");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--dataDir":
+                    dataDir = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal journal = RentalJournal.open(dataDir, system);
+        try {
+            system.getMetrics().install();
+        } catch (JMException e) {
+            System.err.println("Could not register rental metrics with JMX: " + e.getMessage());
+        }
+        RentalHttpServer server = start(system, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            system.getMetrics().close();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Could not close rental journal: " + e.getMessage());
+            }
+        }));
+        System.out.println("Serving " + system.getCarCount() + " cars on port " + server.getPort());
+    }
+}
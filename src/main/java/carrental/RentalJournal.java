@@ -0,0 +1,668 @@
+package carrental;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal and snapshot store for a {@link CarRentalSystem}.
+ *
+ * <p>Every addCar, addCustomer, rent, return, reservation, cancellation, withdrawal and
+ * reinstatement is appended as a checksummed binary record, as is the arrival of a car
+ * withdrawn for a transfer to another branch.
+ * Appends only copy bytes into a buffer; a background thread writes whatever has
+ * accumulated and forces it to disk in one go, so many operations share each fsync
+ * (group commit). Callers then wait for the batch that holds their record. A snapshot of
+ * the whole system is written every {@code snapshotInterval} records, after which older
+ * journal segments are deleted. On startup the latest snapshot is loaded and only the
+ * journal written since is replayed. A record torn by a crash at the end of the last segment
+ * is cut off then, so that the records appended after recovery are not stranded behind it.
+ *
+ * <p>Rentals are recorded with the price they were made for, so changing the pricing rules
+ * does not change what past rentals cost after a restart.
+ *
+ * <p>Snapshots are taken while rentals continue. This is safe because each journal record
+ * fully determines the state of its car or booking, so replaying records that the snapshot
+ * already reflects leaves the same end state.
+ */
+class RentalJournal implements Closeable {
+    private static final byte ADD_CAR = 1;
+    private static final byte ADD_CUSTOMER = 2;
+    private static final byte RENT = 3;
+    private static final byte RETURN = 4;
+    private static final byte RESERVE = 5;
+    private static final byte CANCEL = 6;
+    private static final byte WITHDRAW = 7;
+    private static final byte REINSTATE = 8;
+    private static final byte TRANSFER_ARRIVED = 9;
+
+    private static final int SNAPSHOT_MAGIC = 0x43524E53; // "CRNS"
+    private static final int SNAPSHOT_VERSION = 6;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD = 1 << 20;
+
+    private final Path directory;
+    private final CarRentalSystem system;
+    private final long snapshotInterval;
+    private final Thread flusher;
+    private final ExecutorService snapshotter;
+    // Held while writing to or rotating the current segment, so batches reach disk in order.
+    private final Object io = new Object();
+
+    // Guarded by "this": records appended but not yet handed to the flusher.
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private long nextSequence;
+    private long durableSequence;
+    private long recordsSinceSnapshot;
+    private boolean snapshotRunning;
+    private boolean closed;
+    private IOException failure;
+    private FileChannel segment;
+
+    private RentalJournal(Path directory, CarRentalSystem system, long snapshotInterval) {
+        this.directory = directory;
+        this.system = system;
+        this.snapshotInterval = snapshotInterval;
+        this.flusher = new Thread(this::flushLoop, "rental-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.snapshotter = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "rental-journal-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Restores {@code system} from the snapshot and journal in {@code directory}, then attaches
+     * a journal so that every later change is recorded there. The system must be empty.
+     */
+    public static RentalJournal open(Path directory, CarRentalSystem system, long snapshotInterval)
+            throws IOException {
+        Files.createDirectories(directory);
+        RentalJournal journal = new RentalJournal(directory, system, snapshotInterval);
+        journal.nextSequence = journal.recover() + 1;
+        journal.durableSequence = journal.nextSequence - 1;
+        journal.openSegment(journal.nextSequence);
+        journal.flusher.start();
+        system.attachJournal(journal);
+        return journal;
+    }
+
+    public static RentalJournal open(Path directory, CarRentalSystem system) throws IOException {
+        return open(directory, system, 100_000);
+    }
+
+    long logAddCar(Car car) {
+        return append(ADD_CAR, out -> {
+            out.writeUTF(car.getCarId());
+            out.writeUTF(car.getBrand());
+            out.writeUTF(car.getModel());
+            out.writeDouble(car.getBasePricePerDay());
+        });
+    }
+
+    /**
+     * Appends one add-car record per car in a single critical section; returns the last sequence.
+     */
+    synchronized long logAddCars(List<Car> cars) {
+        long sequence = durableSequence;
+        for (Car car : cars) {
+            sequence = logAddCar(car);
+        }
+        return sequence;
+    }
+
+    long logAddCustomer(Customer customer) {
+        return append(ADD_CUSTOMER, out -> {
+            out.writeUTF(customer.getCustomerId());
+            out.writeUTF(customer.getName());
+            out.writeUTF(customer.getContact());
+        });
+    }
+
+    long logRent(Car car, Customer customer, LocalDate startDate, int days, long priceMinor) {
+        return append(RENT, out -> {
+            out.writeUTF(car.getCarId());
+            out.writeUTF(customer.getCustomerId());
+            out.writeUTF(customer.getName());
+            out.writeInt(days);
+            out.writeLong(startDate.toEpochDay());
+            out.writeLong(priceMinor);
+        });
+    }
+
+    long logReturn(Car car) {
+        return append(RETURN, out -> out.writeUTF(car.getCarId()));
+    }
+
+    /**
+     * Appends one rent record per rental in a single critical section; returns the last sequence.
+     */
+    synchronized long logRents(List<Rental> rentals) {
+        long sequence = durableSequence;
+        for (Rental rental : rentals) {
+            sequence = logRent(rental.getCar(), rental.getCustomer(), rental.getStartDate(), rental.getDays(),
+                    rental.getPriceMinor());
+        }
+        return sequence;
+    }
+
+    synchronized long logReturns(List<Rental> rentals) {
+        long sequence = durableSequence;
+        for (Rental rental : rentals) {
+            sequence = logReturn(rental.getCar());
+        }
+        return sequence;
+    }
+
+    long logReserve(Reservation reservation) {
+        return append(RESERVE, out -> {
+            out.writeUTF(reservation.getCar().getCarId());
+            out.writeUTF(reservation.getCustomer().getCustomerId());
+            out.writeUTF(reservation.getCustomer().getName());
+            out.writeLong(reservation.getStartDate().toEpochDay());
+            out.writeLong(reservation.getEndDate().toEpochDay());
+        });
+    }
+
+    long logCancel(Reservation reservation) {
+        return append(CANCEL, out -> {
+            out.writeUTF(reservation.getCar().getCarId());
+            out.writeLong(reservation.getStartDate().toEpochDay());
+        });
+    }
+
+    long logWithdraw(Car car, String toBranch) {
+        return append(WITHDRAW, out -> {
+            out.writeUTF(car.getCarId());
+            if (toBranch != null) {
+                out.writeUTF(toBranch);
+            }
+        });
+    }
+
+    long logReinstate(Car car) {
+        return append(REINSTATE, out -> out.writeUTF(car.getCarId()));
+    }
+
+    long logTransferArrived(Car car) {
+        return append(TRANSFER_ARRIVED, out -> out.writeUTF(car.getCarId()));
+    }
+
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private synchronized long append(byte type, RecordBody body) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        long sequence = nextSequence++;
+        try {
+            record.reset();
+            recordOut.writeLong(sequence);
+            recordOut.writeByte(type);
+            body.write(recordOut);
+            crc.reset();
+            crc.update(record.toByteArray(), 0, record.size());
+            pendingOut.writeInt(record.size());
+            pendingOut.writeInt((int) crc.getValue());
+            record.writeTo(pendingOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordsSinceSnapshot++;
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is on disk.
+     */
+    public synchronized void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        while (durableSequence < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed", failure);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+            }
+            boolean wantSnapshot;
+            try {
+                synchronized (io) {
+                    writePending();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                wantSnapshot = recordsSinceSnapshot >= snapshotInterval && !snapshotRunning && !closed;
+                if (wantSnapshot) {
+                    snapshotRunning = true;
+                }
+            }
+            if (wantSnapshot) {
+                snapshotter.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException e) {
+                        System.err.println("Rental snapshot failed: " + e.getMessage());
+                    } finally {
+                        synchronized (this) {
+                            snapshotRunning = false;
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    // Called with the io lock held: takes everything appended so far, writes it and forces it to disk.
+    private void writePending() throws IOException {
+        ByteArrayOutputStream batch;
+        long batchEnd;
+        synchronized (this) {
+            batchEnd = nextSequence - 1;
+            batch = takePending();
+        }
+        writeBatch(batch, batchEnd);
+    }
+
+    // Called holding "this": hands over the records appended so far and starts a new buffer.
+    private ByteArrayOutputStream takePending() {
+        ByteArrayOutputStream batch = pending;
+        pending = new ByteArrayOutputStream(Math.max(1 << 16, batch.size()));
+        pendingOut = new DataOutputStream(pending);
+        return batch;
+    }
+
+    // Called with the io lock held: writes records up to batchEnd to the current segment and forces them to disk.
+    private void writeBatch(ByteArrayOutputStream batch, long batchEnd) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+        synchronized (this) {
+            durableSequence = Math.max(durableSequence, batchEnd);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the whole system and deletes the journal segments it replaces.
+     */
+    public void snapshot() throws IOException {
+        long[] from = new long[1];
+        ByteArrayOutputStream[] batch = new ByteArrayOutputStream[1];
+        List<Car> cars;
+        synchronized (io) {
+            // Everything before the rotation point has already been applied to the system. Cars
+            // are journaled and added under the fleet lock, so with it held the cars in the fleet
+            // are exactly those journaled before the rotation point, and every record before it
+            // is in the batch taken here, none after it.
+            int carCount = system.withFleetLocked(() -> {
+                synchronized (this) {
+                    from[0] = nextSequence;
+                    recordsSinceSnapshot = 0;
+                    batch[0] = takePending();
+                }
+            });
+            cars = system.getAllCars().subList(0, carCount);
+            writeBatch(batch[0], from[0] - 1);
+            segment.close();
+            openSegment(from[0]);
+        }
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(from[0]);
+            out.writeInt(cars.size());
+            for (Car car : cars) {
+                out.writeUTF(car.getCarId());
+                out.writeUTF(car.getBrand());
+                out.writeUTF(car.getModel());
+                out.writeDouble(car.getBasePricePerDay());
+            }
+            List<Customer> customers = system.getCustomers();
+            out.writeInt(customers.size());
+            for (Customer customer : customers) {
+                out.writeUTF(customer.getCustomerId());
+                out.writeUTF(customer.getName());
+                out.writeUTF(customer.getContact());
+            }
+            List<Rental> rentals = system.getRentals();
+            out.writeInt(rentals.size());
+            for (Rental rental : rentals) {
+                out.writeUTF(rental.getCar().getCarId());
+                out.writeUTF(rental.getCustomer().getCustomerId());
+                out.writeUTF(rental.getCustomer().getName());
+                out.writeInt(rental.getDays());
+                out.writeLong(rental.getStartDate().toEpochDay());
+                out.writeLong(rental.getPriceMinor());
+            }
+            List<Reservation> reservations = system.getReservations();
+            out.writeInt(reservations.size());
+            for (Reservation reservation : reservations) {
+                out.writeUTF(reservation.getCar().getCarId());
+                out.writeUTF(reservation.getCustomer().getCustomerId());
+                out.writeUTF(reservation.getCustomer().getName());
+                out.writeLong(reservation.getStartDate().toEpochDay());
+                out.writeLong(reservation.getEndDate().toEpochDay());
+            }
+            List<Car> withdrawn = system.getWithdrawnCars();
+            Map<Car, String> transfers = system.getTransfers();
+            out.writeInt(withdrawn.size());
+            for (Car car : withdrawn) {
+                out.writeUTF(car.getCarId());
+                out.writeUTF(transfers.getOrDefault(car, ""));
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path old : segments()) {
+            if (segmentStart(old) < from[0]) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    private void openSegment(long start) throws IOException {
+        segment = FileChannel.open(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                result.add(path);
+            }
+        }
+        result.sort(Comparator.comparingLong(RentalJournal::segmentStart));
+        return result;
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Loads the snapshot and replays the journal tail into the system. Returns the last sequence seen.
+     */
+    private long recover() throws IOException {
+        Map<String, Customer> customers = new HashMap<>();
+        long from = 0;
+        long last = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+                int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+                // Version 5 has no transfers, version 4 no rental prices either, version 3 no
+                // withdrawn cars, and version 2 no customer contacts.
+                if (version < 2 || version > SNAPSHOT_VERSION) {
+                    throw new IOException("Unrecognised snapshot file: " + snapshot);
+                }
+                from = in.readLong();
+                last = from - 1;
+                for (int i = in.readInt(); i > 0; i--) {
+                    system.addCar(new Car(in.readUTF(), in.readUTF(), in.readUTF(), in.readDouble()));
+                }
+                for (int i = in.readInt(); i > 0; i--) {
+                    Customer customer = new Customer(in.readUTF(), in.readUTF(), version == 2 ? "" : in.readUTF());
+                    customers.put(customer.getCustomerId(), customer);
+                    system.addCustomer(customer);
+                }
+                for (int i = in.readInt(); i > 0; i--) {
+                    Car car = system.findCarById(in.readUTF());
+                    Customer customer = customerFor(customers, in.readUTF(), in.readUTF());
+                    int days = in.readInt();
+                    LocalDate start = LocalDate.ofEpochDay(in.readLong());
+                    long price = version < 5 ? -1 : in.readLong();
+                    if (car != null) {
+                        system.restoreRental(car, customer, start, days, price);
+                    }
+                }
+                for (int i = in.readInt(); i > 0; i--) {
+                    Car car = system.findCarById(in.readUTF());
+                    Customer customer = customerFor(customers, in.readUTF(), in.readUTF());
+                    LocalDate start = LocalDate.ofEpochDay(in.readLong());
+                    LocalDate end = LocalDate.ofEpochDay(in.readLong());
+                    if (car != null) {
+                        system.bookReservation(car, customer, start, end);
+                    }
+                }
+                for (int i = version < 4 ? 0 : in.readInt(); i > 0; i--) {
+                    Car car = system.findCarById(in.readUTF());
+                    String toBranch = version < 6 ? "" : in.readUTF();
+                    if (car != null) {
+                        system.withdrawCar(car, toBranch.isEmpty() ? null : toBranch);
+                    }
+                }
+            }
+        }
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            last = Math.max(last, replay(segments.get(i), from, customers, i == segments.size() - 1));
+        }
+        return last;
+    }
+
+    private long replay(Path path, long from, Map<String, Customer> customers, boolean lastSegment)
+            throws IOException {
+        long last = 0;
+        long good = 0;
+        byte[] payload = new byte[256];
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int expected;
+                try {
+                    if (length <= 0 || length > MAX_RECORD) {
+                        break;
+                    }
+                    expected = in.readInt();
+                    if (payload.length < length) {
+                        payload = new byte[length];
+                    }
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break; // torn write at the tail of the last segment
+                }
+                check.reset();
+                check.update(payload, 0, length);
+                if ((int) check.getValue() != expected) {
+                    break;
+                }
+                good += 8 + length;
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+                long sequence = record.readLong();
+                last = sequence;
+                if (sequence < from) {
+                    continue;
+                }
+                apply(record, customers);
+            }
+        }
+        if (lastSegment && good < Files.size(path)) {
+            // New records are appended to this segment, where they would sit behind the torn one
+            // and be lost on the next recovery.
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+                channel.force(true);
+            }
+        }
+        return last;
+    }
+
+    private void apply(DataInputStream record, Map<String, Customer> customers) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case ADD_CAR:
+                system.addCar(new Car(record.readUTF(), record.readUTF(), record.readUTF(), record.readDouble()));
+                break;
+            case ADD_CUSTOMER: {
+                String id = record.readUTF();
+                String name = record.readUTF();
+                // Records written before contacts were kept end after the name.
+                String contact = record.available() > 0 ? record.readUTF() : "";
+                if (!customers.containsKey(id)) {
+                    Customer customer = new Customer(id, name, contact);
+                    customers.put(id, customer);
+                    system.addCustomer(customer);
+                }
+                break;
+            }
+            case RENT: {
+                Car car = system.findCarById(record.readUTF());
+                Customer customer = customerFor(customers, record.readUTF(), record.readUTF());
+                int days = record.readInt();
+                LocalDate start = LocalDate.ofEpochDay(record.readLong());
+                // Records written before prices were kept end after the start date.
+                long price = record.available() > 0 ? record.readLong() : -1;
+                if (car != null) {
+                    system.returnCar(car);
+                    system.restoreRental(car, customer, start, days, price);
+                }
+                break;
+            }
+            case RESERVE: {
+                Car car = system.findCarById(record.readUTF());
+                Customer customer = customerFor(customers, record.readUTF(), record.readUTF());
+                LocalDate start = LocalDate.ofEpochDay(record.readLong());
+                LocalDate end = LocalDate.ofEpochDay(record.readLong());
+                if (car != null) {
+                    system.bookReservation(car, customer, start, end);
+                }
+                break;
+            }
+            case CANCEL: {
+                Car car = system.findCarById(record.readUTF());
+                LocalDate start = LocalDate.ofEpochDay(record.readLong());
+                Reservation reservation = car == null ? null : system.findReservation(car, start);
+                if (reservation != null) {
+                    system.cancelReservation(reservation);
+                }
+                break;
+            }
+            case RETURN: {
+                Car car = system.findCarById(record.readUTF());
+                if (car != null) {
+                    system.returnCar(car);
+                }
+                break;
+            }
+            case WITHDRAW: {
+                Car car = system.findCarById(record.readUTF());
+                String toBranch = record.available() > 0 ? record.readUTF() : null;
+                if (car != null) {
+                    system.withdrawCar(car, toBranch);
+                }
+                break;
+            }
+            case REINSTATE: {
+                Car car = system.findCarById(record.readUTF());
+                if (car != null) {
+                    system.reinstateCar(car);
+                }
+                break;
+            }
+            case TRANSFER_ARRIVED: {
+                Car car = system.findCarById(record.readUTF());
+                if (car != null) {
+                    system.transferArrived(car);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static Customer customerFor(Map<String, Customer> customers, String id, String name) {
+        return customers.computeIfAbsent(id, key -> new Customer(key, name));
+    }
+
+    /**
+     * Flushes outstanding records, writes a final snapshot and stops the background threads.
+     */
+    @Override
+    public void close() throws IOException {
+        system.attachJournal(null);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+            snapshotter.shutdown();
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean healthy;
+        synchronized (this) {
+            healthy = failure == null;
+        }
+        if (healthy) {
+            snapshot();
+        }
+        synchronized (io) {
+            segment.close();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package carrental;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counts, latencies and fleet gauges for one rental system. They can be read as text with
+ * {@link #dump} (in the Prometheus exposition format, also served at {@code GET /metrics}) and
+ * over JMX once {@link #install installed}, until {@link #close closed}.
+ *
+ * <p>Every call is counted with a {@link LongAdder}. Reading the clock costs more than a lookup
+ * does, so only one call in {@value #SAMPLE_EVERY}, picked at random, is timed into the latency
+ * histograms. {@link #setEnabled} turns all of it off.
+ */
+class RentalMetrics implements DynamicMBean, Closeable {
+    static final String OBJECT_NAME = "CarRental:type=RentalMetrics";
+    private static final AtomicInteger SYSTEMS = new AtomicInteger();
+
+    enum Op {
+        RENT, RETURN, BATCH, LOOKUP, SEARCH, QUOTE, ASSIGN;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        String attributePrefix() {
+            return name().charAt(0) + label().substring(1);
+        }
+    }
+
+    static final int SAMPLE_EVERY = 16;
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final CarRentalSystem system;
+    private final LongAdder[] succeeded = new LongAdder[Op.values().length];
+    private final LongAdder[] failed = new LongAdder[Op.values().length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Op.values().length];
+    private volatile boolean enabled = true;
+    private final Map<String, Supplier<Object>> attributes = new LinkedHashMap<>();
+    private final MBeanInfo info;
+    private final ObjectName name;
+    private volatile boolean installed;
+
+    RentalMetrics(CarRentalSystem system) {
+        this.system = system;
+        for (Op op : Op.values()) {
+            succeeded[op.ordinal()] = new LongAdder();
+            failed[op.ordinal()] = new LongAdder();
+            latencies[op.ordinal()] = new LatencyHistogram();
+        }
+        List<MBeanAttributeInfo> described = new ArrayList<>();
+        attribute(described, "Enabled", Boolean.class, "Whether calls are being counted and timed", () -> enabled);
+        attribute(described, "Cars", Integer.class, "Cars in the fleet", system::getCarCount);
+        attribute(described, "AvailableCars", Integer.class, "Cars free to rent", system::getAvailableCarCount);
+        attribute(described, "RentedCars", Integer.class, "Cars out on rent", this::rentedCars);
+        attribute(described, "Utilization", Double.class, "Share of the fleet out on rent", this::utilization);
+        attribute(described, "Customers", Integer.class, "Registered customers", system::getCustomerCount);
+        for (Op op : Op.values()) {
+            String prefix = op.attributePrefix();
+            int index = op.ordinal();
+            attribute(described, prefix + "Count", Long.class, "Successful " + op.label() + " calls",
+                    () -> succeeded[index].sum());
+            attribute(described, prefix + "Failures", Long.class, "Failed " + op.label() + " calls",
+                    () -> failed[index].sum());
+            attribute(described, prefix + "P50Nanos", Long.class, "Median " + op.label() + " latency",
+                    () -> latencies[index].snapshot().percentile(0.5));
+            attribute(described, prefix + "P99Nanos", Long.class, "99th percentile " + op.label() + " latency",
+                    () -> latencies[index].snapshot().percentile(0.99));
+            attribute(described, prefix + "MaxNanos", Long.class, "Slowest " + op.label() + " call",
+                    () -> latencies[index].snapshot().max());
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears all counts and latencies",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        info = new MBeanInfo(RentalMetrics.class.getName(), "Car rental operations and fleet use",
+                described.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {reset}, null);
+        try {
+            name = new ObjectName(OBJECT_NAME + ",system=" + SYSTEMS.incrementAndGet());
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void attribute(List<MBeanAttributeInfo> described, String name, Class<?> type, String description,
+                           Supplier<Object> value) {
+        attributes.put(name, value);
+        described.add(new MBeanAttributeInfo(name, type.getName(), description, true, name.equals("Enabled"), false));
+    }
+
+    /**
+     * Starts counting afresh, so that replaying a journal is not counted, and registers with the
+     * platform MBean server under {@link #getObjectName}. Called once the system is ready to
+     * serve. Quotes are timed by the system's own {@link CarRentalSystem#quote} rather than by
+     * wrapping the pricing engine, which all systems in the process share.
+     */
+    synchronized void install() throws JMException {
+        reset();
+        if (!installed) {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            installed = true;
+        }
+    }
+
+    /**
+     * {@link #OBJECT_NAME} with a {@code system} key numbering the systems in this process, so
+     * that several of them, such as the branches of a {@link BranchNetwork}, can all be installed.
+     */
+    ObjectName getObjectName() {
+        return name;
+    }
+
+    /**
+     * Unregisters from the MBean server, if installed. The counts can still be read with
+     * {@link #dump}.
+     */
+    @Override
+    public synchronized void close() {
+        if (!installed) {
+            return;
+        }
+        installed = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException e) {
+            // Unregistered over JMX already.
+        }
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Start of a call, to be passed to {@link #record}: the time for the calls that are sampled.
+     */
+    long start() {
+        if (!enabled || (ThreadLocalRandom.current().nextInt() & (SAMPLE_EVERY - 1)) != 0) {
+            return NOT_TIMED;
+        }
+        return System.nanoTime();
+    }
+
+    void record(Op op, long started, boolean ok) {
+        if (!enabled) {
+            return;
+        }
+        (ok ? succeeded : failed)[op.ordinal()].increment();
+        if (started != NOT_TIMED) {
+            latencies[op.ordinal()].record(System.nanoTime() - started);
+        }
+    }
+
+    void reset() {
+        for (Op op : Op.values()) {
+            succeeded[op.ordinal()].reset();
+            failed[op.ordinal()].reset();
+            latencies[op.ordinal()].reset();
+        }
+    }
+
+    private int rentedCars() {
+        return system.getCarCount() - system.getAvailableCarCount() - system.getWithdrawnCarCount()
+                - system.getHeldCarCount();
+    }
+
+    private double utilization() {
+        int cars = system.getCarCount();
+        return cars == 0 ? 0.0 : (double) rentedCars() / cars;
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format.
+     */
+    String dump() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP rental_operations_total Rental system calls by operation and outcome.\n");
+        out.append("# TYPE rental_operations_total counter\n");
+        for (Op op : Op.values()) {
+            out.append("rental_operations_total{op=\"").append(op.label()).append("\",outcome=\"ok\"} ")
+                    .append(succeeded[op.ordinal()].sum()).append('\n');
+            out.append("rental_operations_total{op=\"").append(op.label()).append("\",outcome=\"failed\"} ")
+                    .append(failed[op.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP rental_latency_nanoseconds Rental system call latency, from 1 in ")
+                .append(SAMPLE_EVERY).append(" calls.\n");
+        out.append("# TYPE rental_latency_nanoseconds summary\n");
+        for (Op op : Op.values()) {
+            LatencyHistogram.Snapshot snapshot = latencies[op.ordinal()].snapshot();
+            for (double quantile : QUANTILES) {
+                out.append("rental_latency_nanoseconds{op=\"").append(op.label()).append("\",quantile=\"")
+                        .append(quantile).append("\"} ").append(snapshot.percentile(quantile)).append('\n');
+            }
+            out.append("rental_latency_nanoseconds_count{op=\"").append(op.label()).append("\"} ")
+                    .append(snapshot.count()).append('\n');
+        }
+        gauge(out, "rental_fleet_cars", "Cars in the fleet.", system.getCarCount());
+        gauge(out, "rental_fleet_available_cars", "Cars free to rent.", system.getAvailableCarCount());
+        gauge(out, "rental_fleet_utilization", "Share of the fleet out on rent.", utilization());
+        gauge(out, "rental_customers", "Registered customers.", system.getCustomerCount());
+        RollupSnapshot rollups = system.getRollups();
+        gauge(out, "rental_revenue_in_flight", "Quoted price of the rentals now out, in minor units.",
+                rollups.getTotal().getRevenueInFlightMinor());
+        gauge(out, "rental_average_days", "Days booked per rental now out.", rollups.getTotal().getAverageDays());
+        out.append("# HELP rental_brand_rented_cars Cars out on rent, by brand.\n");
+        out.append("# TYPE rental_brand_rented_cars gauge\n");
+        rollups.getByBrand().forEach((brand, totals) -> out.append("rental_brand_rented_cars{brand=\"")
+                .append(brand.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\"} ").append(totals.getRented()).append('\n'));
+        return out.toString();
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, Number value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    @Override
+    public Object getAttribute(String name) throws AttributeNotFoundException {
+        Supplier<Object> value = attributes.get(name);
+        if (value == null) {
+            throw new AttributeNotFoundException(name);
+        }
+        return value.get();
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+        if (!attribute.getName().equals("Enabled")) {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+        if (!(attribute.getValue() instanceof Boolean)) {
+            throw new InvalidAttributeValueException("Enabled takes true or false");
+        }
+        setEnabled((Boolean) attribute.getValue());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Supplier<Object> value = attributes.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value.get()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList list) {
+        AttributeList set = new AttributeList();
+        for (Attribute attribute : list.asList()) {
+            try {
+                setAttribute(attribute);
+                set.add(attribute);
+            } catch (JMException e) {
+                // Left out of the returned list, as the interface asks.
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+        if (!action.equals("reset")) {
+            throw new ReflectionException(new NoSuchMethodException(action));
+        }
+        reset();
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+}
@@ -0,0 +1,178 @@
+package carrental;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the GUI's rental work away from the event dispatch thread. Lookups, customer creation,
+ * pricing and the rental itself can all wait on the journal, so each call is handed to an
+ * executor and returns a future; callers publish the result back to Swing themselves.
+ */
+class RentalService implements Closeable {
+    // How long a car is held for the user while they confirm a rental.
+    static final long HOLD_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private final CarRentalSystem system;
+    private final ExecutorService executor;
+
+    RentalService(CarRentalSystem system) {
+        this(system, newExecutor());
+    }
+
+    RentalService(CarRentalSystem system, ExecutorService executor) {
+        this.system = system;
+        this.executor = executor;
+    }
+
+    /**
+     * One thread per task on runtimes with virtual threads, otherwise a fixed pool of daemon
+     * threads sized for tasks that mostly wait on disk.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), r -> {
+                Thread t = new Thread(r, "rental-service-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Finds the available car, looks up or registers the customer, prices the rental and holds
+     * the car for {@link #HOLD_MILLIS} while the user decides. Completes with null if the car is
+     * unknown, already out or held.
+     */
+    CompletableFuture<RentalOffer> prepareRental(String carId, String customerName, String contact, int days) {
+        return CompletableFuture.supplyAsync(() -> {
+            RentalOffer offer = offer(system, carId, customerName, contact, days);
+            Hold hold = offer == null ? null : system.placeHold(offer.getCar(), offer.getCustomer(), days, HOLD_MILLIS);
+            return hold == null ? null : new RentalOffer(hold, offer.getTotalPrice());
+        }, executor);
+    }
+
+    /**
+     * Does the work of {@link #prepareRental} on the calling thread.
+     */
+    static RentalOffer offer(CarRentalSystem system, String carId, String customerName, String contact, int days) {
+        Car car = system.findAvailableCarById(carId);
+        if (car == null) {
+            return null;
+        }
+        Customer customer = system.registerCustomer(customerName, contact);
+        return new RentalOffer(car, customer, days, system.calculatePrice(car, days));
+    }
+
+    /**
+     * Completes with whether the car, or its hold if the offer has one, was still available and
+     * the car is now rented.
+     */
+    CompletableFuture<Boolean> rent(RentalOffer offer) {
+        return CompletableFuture.supplyAsync(() -> offer.getHold() != null
+                ? system.confirmHold(offer.getHold())
+                : system.rentCar(offer.getCar(), offer.getCustomer(), offer.getDays()), executor);
+    }
+
+    /**
+     * Lets go of the car held for an offer that was turned down.
+     */
+    CompletableFuture<Boolean> decline(RentalOffer offer) {
+        return CompletableFuture.supplyAsync(
+                () -> offer.getHold() != null && system.releaseHold(offer.getHold()), executor);
+    }
+
+    /**
+     * Returns the rented car with the given ID; completes with the car, or null if it was not rented.
+     */
+    CompletableFuture<Car> returnCar(String carId) {
+        return CompletableFuture.supplyAsync(() -> {
+            Car car = system.findRentedCarById(carId);
+            return car != null && system.returnCar(car) ? car : null;
+        }, executor);
+    }
+
+    /**
+     * Bulk-loads cars from a CSV or binary fleet file; see {@link FleetImporter}.
+     */
+    CompletableFuture<FleetImporter.Result> importFleet(Path file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new FleetImporter(system).importFile(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Stops taking work and waits a few seconds for calls already made to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A priced rental waiting for the user to confirm it, with the car held meanwhile if it
+     * came from {@link #prepareRental}.
+     */
+    static final class RentalOffer {
+        private final Car car;
+        private final Customer customer;
+        private final int days;
+        private final double totalPrice;
+        private final Hold hold;
+
+        RentalOffer(Car car, Customer customer, int days, double totalPrice) {
+            this.car = car;
+            this.customer = customer;
+            this.days = days;
+            this.totalPrice = totalPrice;
+            this.hold = null;
+        }
+
+        RentalOffer(Hold hold, double totalPrice) {
+            this.car = hold.getCar();
+            this.customer = hold.getCustomer();
+            this.days = hold.getDays();
+            this.totalPrice = totalPrice;
+            this.hold = hold;
+        }
+
+        /**
+         * The hold on the car, or null if the car is not held.
+         */
+        Hold getHold() {
+            return hold;
+        }
+
+        Car getCar() {
+            return car;
+        }
+
+        Customer getCustomer() {
+            return customer;
+        }
+
+        int getDays() {
+            return days;
+        }
+
+        double getTotalPrice() {
+            return totalPrice;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package carrental;
+
+import java.util.*;
+
+/**
+ * The active rentals of a {@link CarRentalSystem}, one row per car by ordinal, in primitive
+ * columns: the customer's number, the first day as an epoch day, the length and the price.
+ * Renting a car fills its row and returning it clears the row for the next rental, so neither
+ * allocates anything. {@link Rental} objects are only built when someone asks for one.
+ *
+ * <p>Rows come in pages of {@value #PAGE_SIZE}, added by {@link #ensureRow} before a car joins
+ * the fleet. A row is only read and written holding its car's stripe lock.
+ *
+ * <p>The rows rented by each customer are also linked into a list, headed by the customer's
+ * number, through two more columns; see {@link #rowsOf}. The links are guarded by one of a few
+ * customer locks, taken inside the car's stripe lock and never the other way round.
+ */
+final class RentalTable {
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int ROW_MASK = PAGE_SIZE - 1;
+
+    private static final class Page {
+        // Customer number plus one, so that zero means the car is not rented.
+        final int[] customer = new int[PAGE_SIZE];
+        final long[] startDay = new long[PAGE_SIZE];
+        final int[] days = new int[PAGE_SIZE];
+        final long[] priceMinor = new long[PAGE_SIZE];
+        // The customer's next and previous rented rows, plus one, so that zero ends the list.
+        final int[] nextRow = new int[PAGE_SIZE];
+        final int[] previousRow = new int[PAGE_SIZE];
+    }
+
+    private static final int CUSTOMER_LOCKS = 64;
+
+    private volatile Page[] pages = new Page[0];
+    private final Object[] customerLocks = new Object[CUSTOMER_LOCKS];
+    // Each customer's first rented row, plus one, in pages by customer number. Grown under
+    // firstRowLock; a slot is read and written holding its customer's lock.
+    private volatile int[][] firstRow = new int[0][];
+    private final Object firstRowLock = new Object();
+
+    RentalTable() {
+        for (int i = 0; i < customerLocks.length; i++) {
+            customerLocks[i] = new Object();
+        }
+    }
+
+    // Called holding the fleet lock.
+    void ensureRow(int row) {
+        int page = row >>> PAGE_SHIFT;
+        Page[] current = pages;
+        if (page < current.length && current[page] != null) {
+            return;
+        }
+        int length = page < current.length ? current.length : Math.max(page + 1, current.length * 2);
+        Page[] grown = Arrays.copyOf(current, length);
+        for (int i = 0; i <= page; i++) {
+            if (grown[i] == null) {
+                grown[i] = new Page();
+            }
+        }
+        pages = grown;
+    }
+
+    boolean isRented(int row) {
+        return pages[row >>> PAGE_SHIFT].customer[row & ROW_MASK] != 0;
+    }
+
+    int customer(int row) {
+        return pages[row >>> PAGE_SHIFT].customer[row & ROW_MASK] - 1;
+    }
+
+    long startDay(int row) {
+        return pages[row >>> PAGE_SHIFT].startDay[row & ROW_MASK];
+    }
+
+    int days(int row) {
+        return pages[row >>> PAGE_SHIFT].days[row & ROW_MASK];
+    }
+
+    /**
+     * Day after the last day of the rental, as an epoch day.
+     */
+    long endDay(int row) {
+        return startDay(row) + Math.max(1, days(row));
+    }
+
+    long priceMinor(int row) {
+        return pages[row >>> PAGE_SHIFT].priceMinor[row & ROW_MASK];
+    }
+
+    void put(int row, int customer, long startDay, int days, long priceMinor) {
+        Page page = pages[row >>> PAGE_SHIFT];
+        int at = row & ROW_MASK;
+        page.customer[at] = customer + 1;
+        page.startDay[at] = startDay;
+        page.days[at] = days;
+        page.priceMinor[at] = priceMinor;
+        synchronized (customerLocks[customer & (CUSTOMER_LOCKS - 1)]) {
+            int[] heads = firstRowPage(customer);
+            int first = heads[customer & ROW_MASK];
+            page.nextRow[at] = first;
+            page.previousRow[at] = 0;
+            if (first != 0) {
+                pages[(first - 1) >>> PAGE_SHIFT].previousRow[(first - 1) & ROW_MASK] = row + 1;
+            }
+            heads[customer & ROW_MASK] = row + 1;
+        }
+    }
+
+    void clear(int row) {
+        Page page = pages[row >>> PAGE_SHIFT];
+        int at = row & ROW_MASK;
+        int customer = page.customer[at] - 1;
+        if (customer < 0) {
+            return;
+        }
+        page.customer[at] = 0;
+        synchronized (customerLocks[customer & (CUSTOMER_LOCKS - 1)]) {
+            int next = page.nextRow[at];
+            int previous = page.previousRow[at];
+            if (previous == 0) {
+                firstRow[customer >>> PAGE_SHIFT][customer & ROW_MASK] = next;
+            } else {
+                pages[(previous - 1) >>> PAGE_SHIFT].nextRow[(previous - 1) & ROW_MASK] = next;
+            }
+            if (next != 0) {
+                pages[(next - 1) >>> PAGE_SHIFT].previousRow[(next - 1) & ROW_MASK] = previous;
+            }
+        }
+    }
+
+    /**
+     * The rows the customer has rented, most recent first. A row may be returned, or rented by
+     * someone else, as soon as this returns, so check it again under the car's stripe lock.
+     */
+    int[] rowsOf(int customer) {
+        synchronized (customerLocks[customer & (CUSTOMER_LOCKS - 1)]) {
+            int[][] heads = firstRow;
+            if (customer >>> PAGE_SHIFT >= heads.length) {
+                return new int[0];
+            }
+            int first = heads[customer >>> PAGE_SHIFT][customer & ROW_MASK];
+            int count = 0;
+            for (int row = first; row != 0; row = pages[(row - 1) >>> PAGE_SHIFT].nextRow[(row - 1) & ROW_MASK]) {
+                count++;
+            }
+            int[] rows = new int[count];
+            count = 0;
+            for (int row = first; row != 0; row = pages[(row - 1) >>> PAGE_SHIFT].nextRow[(row - 1) & ROW_MASK]) {
+                rows[count++] = row - 1;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Whether the customer has any rented rows.
+     */
+    boolean hasRows(int customer) {
+        synchronized (customerLocks[customer & (CUSTOMER_LOCKS - 1)]) {
+            int[][] heads = firstRow;
+            return customer >>> PAGE_SHIFT < heads.length && heads[customer >>> PAGE_SHIFT][customer & ROW_MASK] != 0;
+        }
+    }
+
+    // Called holding the customer's lock; allocates only when the customer's page is new.
+    private int[] firstRowPage(int customer) {
+        int page = customer >>> PAGE_SHIFT;
+        int[][] current = firstRow;
+        if (page < current.length) {
+            return current[page];
+        }
+        synchronized (firstRowLock) {
+            current = firstRow;
+            if (page >= current.length) {
+                int[][] grown = Arrays.copyOf(current, Math.max(page + 1, current.length * 2));
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new int[PAGE_SIZE];
+                }
+                firstRow = grown;
+                current = grown;
+            }
+            return current[page];
+        }
+    }
+}
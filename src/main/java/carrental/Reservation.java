@@ -0,0 +1,36 @@
+package carrental;
+
+import java.time.LocalDate;
+
+/**
+ * A future booking of a car for a date range. It becomes a {@link Rental} when picked up.
+ */
+class Reservation implements Booking {
+    private final Car car;
+    private final Customer customer;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    public Reservation(Car car, Customer customer, LocalDate startDate, LocalDate endDate) {
+        this.car = car;
+        this.customer = customer;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+}
@@ -0,0 +1,101 @@
+package carrental;
+
+import java.util.*;
+
+/**
+ * Totals of a fleet and its active rentals at one moment, overall and per brand and model.
+ * Brands and models are in alphabetical order and are looked up ignoring case.
+ */
+final class RollupSnapshot {
+    static final class Totals {
+        private final int cars;
+        private final int rented;
+        private final long revenueInFlightMinor;
+        private final long bookedDays;
+
+        Totals(int cars, int rented, long revenueInFlightMinor, long bookedDays) {
+            this.cars = cars;
+            this.rented = rented;
+            this.revenueInFlightMinor = revenueInFlightMinor;
+            this.bookedDays = bookedDays;
+        }
+
+        public int getCars() {
+            return cars;
+        }
+
+        public int getRented() {
+            return rented;
+        }
+
+        /**
+         * Quoted price of the rentals now out, in the smallest currency unit.
+         */
+        public long getRevenueInFlightMinor() {
+            return revenueInFlightMinor;
+        }
+
+        /**
+         * Days booked by the rentals now out, all together.
+         */
+        public long getBookedDays() {
+            return bookedDays;
+        }
+
+        public double getAverageDays() {
+            return rented == 0 ? 0.0 : (double) bookedDays / rented;
+        }
+
+        public double getUtilization() {
+            return cars == 0 ? 0.0 : (double) rented / cars;
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(cars + other.cars, rented + other.rented,
+                    revenueInFlightMinor + other.revenueInFlightMinor, bookedDays + other.bookedDays);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d cars, %d rented, %.2f in flight, %.1f days on average",
+                    cars, rented, revenueInFlightMinor / 100.0, getAverageDays());
+        }
+    }
+
+    private final Totals total;
+    private final Map<String, Totals> byBrand;
+    private final Map<String, Totals> byModel;
+
+    RollupSnapshot(Totals total, Map<String, Totals> byBrand, Map<String, Totals> byModel) {
+        this.total = total;
+        this.byBrand = byBrand;
+        this.byModel = byModel;
+    }
+
+    public Totals getTotal() {
+        return total;
+    }
+
+    public Map<String, Totals> getByBrand() {
+        return byBrand;
+    }
+
+    public Map<String, Totals> getByModel() {
+        return byModel;
+    }
+
+    /**
+     * Adds up snapshots of several rental systems, such as the branches of a {@link BranchNetwork}.
+     */
+    static RollupSnapshot combine(Collection<RollupSnapshot> snapshots) {
+        Totals total = new Totals(0, 0, 0, 0);
+        Map<String, Totals> byBrand = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, Totals> byModel = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (RollupSnapshot snapshot : snapshots) {
+            total = total.plus(snapshot.total);
+            snapshot.byBrand.forEach((brand, totals) -> byBrand.merge(brand, totals, Totals::plus));
+            snapshot.byModel.forEach((model, totals) -> byModel.merge(model, totals, Totals::plus));
+        }
+        return new RollupSnapshot(total, Collections.unmodifiableMap(byBrand), Collections.unmodifiableMap(byModel));
+    }
+}
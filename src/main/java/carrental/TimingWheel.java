@@ -0,0 +1,128 @@
+package carrental;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel: deadlines in ticks, each kept in one slot of one of
+ * {@value #LEVELS} wheels. The lowest wheel has a slot per tick for the next {@value #SLOTS}
+ * ticks, and the slots of each wheel above are {@value #SLOTS} times as wide. An entry goes
+ * into the lowest wheel that reaches its deadline and drops a wheel each time the one below
+ * comes round, so scheduling, cancelling and expiring an entry cost O(1) however many there
+ * are. Entries are linked into their slot directly, so cancelling one needs no search.
+ *
+ * <p>Not thread-safe; callers lock around it.
+ */
+class TimingWheel {
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 5;
+    // Deadlines further out than the top wheel reaches are brought in to its edge.
+    private static final long SPAN = 1L << SLOT_BITS * LEVELS;
+
+    /**
+     * Something with a deadline, linked into at most one slot.
+     */
+    static class Entry {
+        private long deadline;
+        private Entry previous;
+        private Entry next;
+    }
+
+    // Each slot is a circular list headed by a sentinel entry.
+    private final Entry[][] slots = new Entry[LEVELS][SLOTS];
+    private long now;
+    private int size;
+
+    TimingWheel(long startTick) {
+        now = startTick;
+        for (Entry[] wheel : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                Entry head = new Entry();
+                head.previous = head;
+                head.next = head;
+                wheel[i] = head;
+            }
+        }
+    }
+
+    /**
+     * Schedules the entry to expire at the given tick, or at the next tick if that has passed.
+     * An entry already scheduled is moved.
+     */
+    void schedule(Entry entry, long deadline) {
+        cancel(entry);
+        entry.deadline = Math.min(Math.max(deadline, now + 1), now + SPAN - 1);
+        place(entry);
+        size++;
+    }
+
+    /**
+     * Takes the entry off the wheel. Returns false if it was not scheduled.
+     */
+    boolean cancel(Entry entry) {
+        if (entry.previous == null) {
+            return false;
+        }
+        unlink(entry);
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Turns the wheel on to {@code tick}, handing each entry whose deadline is reached to
+     * {@code expired}, earliest first.
+     */
+    void advance(long tick, Consumer<Entry> expired) {
+        if (size == 0) {
+            now = Math.max(now, tick);
+            return;
+        }
+        while (now < tick) {
+            now++;
+            // When a wheel comes round, the next slot of the wheel above is spread over the ones below.
+            for (int level = 1; level < LEVELS && (now & (1L << SLOT_BITS * level) - 1) == 0; level++) {
+                Entry head = slots[level][(int) (now >>> SLOT_BITS * level) & (SLOTS - 1)];
+                while (head.next != head) {
+                    Entry entry = head.next;
+                    unlink(entry);
+                    place(entry);
+                }
+            }
+            Entry head = slots[0][(int) now & (SLOTS - 1)];
+            while (head.next != head) {
+                Entry entry = head.next;
+                unlink(entry);
+                size--;
+                expired.accept(entry);
+            }
+        }
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.deadline - now;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << SLOT_BITS * (level + 1)) {
+            level++;
+        }
+        Entry head = slots[level][(int) (entry.deadline >>> SLOT_BITS * level) & (SLOTS - 1)];
+        entry.previous = head.previous;
+        entry.next = head;
+        head.previous.next = entry;
+        head.previous = entry;
+    }
+
+    private static void unlink(Entry entry) {
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+    }
+}
@@ -0,0 +1,105 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityIndexTest {
+    @TempDir
+    Path directory;
+
+    // A reopened columnar store already holds its cars; the indexes used to start out empty,
+    // and replaying the journal over them failed with an ArrayIndexOutOfBoundsException.
+    @Test
+    void aReopenedColumnarStoreIsIndexedBeforeTheJournalIsReplayed() throws IOException {
+        Path columns = directory.resolve("columns");
+        Path data = directory.resolve("data");
+        ColumnarFleetStore store = ColumnarFleetStore.open(columns);
+        CarRentalSystem system = new CarRentalSystem(store);
+        RentalJournal journal = RentalJournal.open(data, system);
+        for (int i = 0; i < 2_000; i++) {
+            system.addCar(new Car(String.format("ID_%04d", i), i % 2 == 0 ? "BMW" : "Audi", "M" + i % 3, 100 + i % 40 * 10));
+        }
+        Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        for (int i = 0; i < 2_000; i += 3) {
+            assertTrue(system.rentCar(system.findCarById(String.format("ID_%04d", i)), jane, 2));
+        }
+        journal.close();
+        store.close();
+
+        for (int round = 0; round < 2; round++) {
+            store = ColumnarFleetStore.open(columns);
+            CarRentalSystem restored = new CarRentalSystem(store);
+            RentalJournal reopened = RentalJournal.open(data, restored);
+            try {
+                assertEquals(2_000, restored.getCarCount());
+                assertEquals(667, restored.getRentals().size());
+                assertEquals(667, restored.getRentalsForCustomer(restored.findCustomerById(jane.getCustomerId())).size());
+                assertEquals(2_000 - 667, restored.getAvailableCarCount());
+                long cheapBmws = restored.getAvailableCars().stream()
+                        .filter(car -> car.getBrand().equals("BMW") && car.getBasePricePerDay() <= 300)
+                        .count();
+                assertEquals(cheapBmws, restored.countAvailableCars("BMW", 300));
+                assertFalse(restored.searchAvailableCars("ID_000", 5).isEmpty());
+                assertNotNull(restored.assignCar(restored.today(), restored.today().plusDays(1), "audi", 1_000));
+                assertEquals(2_000, restored.getRollups().getTotal().getCars());
+                assertEquals(667, restored.getRollups().getTotal().getRented());
+                assertTrue(restored.returnCar(restored.findCarById("ID_0000")));
+                assertTrue(restored.rentCar(restored.findCarById("ID_0000"), jane, 2));
+            } finally {
+                reopened.close();
+                store.close();
+            }
+        }
+    }
+
+    // A brand's bits only grow as far as its last car, and scans used to read its pages past
+    // that, failing with an ArrayIndexOutOfBoundsException.
+    @Test
+    void aBrandWhoseCarsEndBeforeTheLastPageCanStillBeQueried() {
+        CarRentalSystem system = new CarRentalSystem();
+        system.addCar(new Car("ID_BMW", "BMW", "X3", 100));
+        List<Car> toyotas = new ArrayList<>();
+        for (int i = 0; i < 70_000; i++) {
+            toyotas.add(new Car(String.format("ID_%05d", i), "Toyota", "Corolla", 80 + i % 100));
+        }
+        system.addCars(toyotas);
+
+        assertEquals(1, system.countAvailableCars("bmw", 1_000));
+        assertEquals("ID_BMW", system.findAvailableCars("BMW", 1_000, 10).get(0).getCarId());
+        assertEquals(0, system.countAvailableCars("Audi", 1_000));
+        assertEquals(70_000, system.countAvailableCars("Toyota", Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void filteredCountsMatchAScanOfTheAvailableCars() {
+        CarRentalSystem system = new CarRentalSystem();
+        String[] brands = {"BMW", "Audi", "Suzuki"};
+        for (int i = 0; i < 5_000; i++) {
+            system.addCar(new Car(String.format("ID_%05d", i), brands[i % 3], "M", 50 + (i * 37) % 7_000));
+        }
+        Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        for (int i = 0; i < 5_000; i += 7) {
+            assertTrue(system.rentCar(system.findCarById(String.format("ID_%05d", i)), jane, 2));
+        }
+        for (String brand : new String[] {null, "BMW", "audi"}) {
+            for (double ceiling : new double[] {0, 49, 50, 99.5, 100, 150, 999, 6_399, 6_400, 6_401, 10_000}) {
+                long expected = system.getAvailableCars().stream()
+                        .filter(car -> brand == null || car.getBrand().equalsIgnoreCase(brand))
+                        .filter(car -> car.getBasePricePerDay() <= ceiling)
+                        .count();
+                assertEquals(expected, system.countAvailableCars(brand, ceiling), brand + " up to " + ceiling);
+                List<Car> found = system.findAvailableCars(brand, ceiling, 5);
+                assertEquals(Math.min(5, expected), found.size());
+                for (Car car : found) {
+                    assertTrue(car.isAvailable() && car.getBasePricePerDay() <= ceiling);
+                }
+            }
+        }
+    }
+}
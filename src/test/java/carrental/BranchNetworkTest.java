@@ -0,0 +1,127 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BranchNetworkTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void carsAreRentedReturnedAndTransferredThroughTheDirectory() {
+        BranchNetwork network = new BranchNetwork();
+        network.addBranch("north");
+        network.addBranch("south");
+        assertTrue(network.addCar("north", new Car("ID_001", "BMW", "X3", 100)));
+        assertTrue(network.addCar("south", new Car("ID_002", "Audi", "Q3", 90)));
+        assertFalse(network.addCar("south", new Car("id_001", "BMW", "X3", 100)));
+        assertFalse(network.addCar("east", new Car("ID_003", "BMW", "X3", 100)));
+        assertEquals(2, network.getCarCount());
+
+        assertTrue(network.rentCar("ID_001", "Jane Doe", "jane@example.com", 3));
+        assertFalse(network.transferCar("ID_001", "south"));
+        assertTrue(network.returnCar("ID_001"));
+        assertTrue(network.transferCar("ID_001", "south"));
+        assertFalse(network.transferCar("ID_001", "south"));
+        assertEquals("south", network.branchOf("id_001"));
+        assertTrue(network.getBranch("north").isWithdrawn(network.getBranch("north").findCarById("ID_001")));
+        assertTrue(network.getBranch("north").getTransfers().isEmpty());
+        assertEquals(2, network.getAvailableCarCount());
+
+        // Back to a branch that has held it before.
+        assertTrue(network.transferCar("ID_001", "north"));
+        assertEquals("north", network.branchOf("ID_001"));
+        assertEquals(1, network.getBranch("north").getCarCount());
+        assertTrue(network.rentCar("ID_001", "John Roe", "john@example.com", 2));
+    }
+
+    // The old branch journaled the withdrawal, and the crash came before the new branch took the car.
+    @Test
+    void aTransferCutShortBeforeTheCarArrivedIsFinishedOnReopening() throws IOException {
+        for (boolean southFirst : new boolean[] {false, true}) {
+            Path data = directory.resolve("south-first-" + southFirst);
+            crashMidTransfer(data, false, false);
+            assertArrivedAtSouth(reopen(data, southFirst));
+            // Finished for good, not again on every reopening.
+            assertArrivedAtSouth(reopen(data, !southFirst));
+        }
+    }
+
+    @Test
+    void aTransferCutShortAfterTheCarArrivedIsNotMadeTwice() throws IOException {
+        crashMidTransfer(directory, true, true);
+        assertArrivedAtSouth(reopen(directory, true));
+    }
+
+    // Moves ID_001 from north to south as transferCar does, but stops before the arrival is journaled.
+    private static void crashMidTransfer(Path data, boolean snapshot, boolean arrived) throws IOException {
+        CarRentalSystem north = new CarRentalSystem();
+        RentalJournal northJournal = RentalJournal.open(data.resolve("north"), north);
+        CarRentalSystem south = new CarRentalSystem();
+        RentalJournal southJournal = RentalJournal.open(data.resolve("south"), south);
+        north.addCar(new Car("ID_001", "BMW", "X3", 100));
+        assertTrue(north.withdrawCar(north.findCarById("ID_001"), "south"));
+        if (snapshot) {
+            northJournal.snapshot();
+        }
+        if (arrived) {
+            south.addCar(new Car("ID_001", "BMW", "X3", 100));
+        }
+        northJournal.close();
+        southJournal.close();
+    }
+
+    private static BranchNetwork reopen(Path data, boolean southFirst) throws IOException {
+        BranchNetwork network = new BranchNetwork();
+        for (String name : southFirst ? Arrays.asList("south", "north") : Arrays.asList("north", "south")) {
+            CarRentalSystem system = new CarRentalSystem();
+            RentalJournal.open(data.resolve(name), system).close();
+            network.addBranch(name, system);
+        }
+        return network;
+    }
+
+    private static void assertArrivedAtSouth(BranchNetwork network) throws IOException {
+        assertEquals("south", network.branchOf("ID_001"));
+        assertNotNull(network.findAvailableCarById("ID_001"));
+        assertEquals(1, network.getBranch("south").getCarCount());
+        CarRentalSystem north = network.getBranch("north");
+        assertTrue(north.isWithdrawn(north.findCarById("ID_001")));
+        assertTrue(north.getTransfers().isEmpty());
+    }
+
+    @Test
+    void aCarAddedWhileABranchHoldingItOpensEndsUpAtOneBranch() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 200; round++) {
+                BranchNetwork network = new BranchNetwork();
+                network.addBranch("north");
+                CarRentalSystem south = new CarRentalSystem();
+                south.addCar(new Car("ID_001", "BMW", "X3", 100));
+                Future<Boolean> added = pool.submit(() -> network.addCar("north", new Car("ID_001", "BMW", "X3", 100)));
+                Future<Boolean> opened = pool.submit(() -> {
+                    try {
+                        network.addBranch("south", south);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                });
+                assertTrue(added.get() ^ opened.get(), "round " + round);
+                assertEquals(added.get() ? "north" : "south", network.branchOf("ID_001"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarAssignmentTest {
+    private CarRentalSystem system;
+    private Customer jane;
+    private LocalDate start;
+
+    @BeforeEach
+    void setUp() {
+        system = new CarRentalSystem();
+        system.addCar(new Car("ID_001", "BMW", "X5", 200));
+        system.addCar(new Car("ID_002", "BMW", "X3", 120));
+        system.addCar(new Car("ID_003", "bmw", "X1", 120));
+        system.addCar(new Car("ID_004", "Audi", "Q3", 90));
+        system.addCar(new Car("ID_005", "Audi", "A4", 150));
+        jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        start = system.today().plusDays(5);
+    }
+
+    private Car assign(String brand, double maxPricePerDay) {
+        return system.assignCar(start, start.plusDays(3), brand, maxPricePerDay);
+    }
+
+    @Test
+    void theCheapestFittingCarIsPickedAndTheFirstAddedAmongEqualPrices() {
+        assertEquals("ID_002", assign("BMW", 500).getCarId());
+        assertEquals("ID_002", assign("Bmw", 120).getCarId());
+        assertEquals("ID_004", assign(null, 500).getCarId());
+        assertEquals("ID_004", assign("audi", 500).getCarId());
+        assertNull(assign("Audi", 89));
+        assertNull(assign("Tesla", 500));
+    }
+
+    @Test
+    void carsOutOrBookedForTheDaysAreSkipped() {
+        assertTrue(system.rentCar(system.findCarById("ID_002"), jane, 30));
+        assertNotNull(system.reserveCar(system.findCarById("ID_003"), jane, start.plusDays(1), start.plusDays(2)));
+        assertEquals("ID_001", assign("BMW", 500).getCarId());
+        assertNull(assign("BMW", 150));
+        // Once the booking is over, the cheaper car is free again.
+        assertEquals("ID_003", system.assignCar(start.plusDays(2), start.plusDays(4), "BMW", 500).getCarId());
+        assertTrue(system.withdrawCar(system.findCarById("ID_004")));
+        assertEquals("ID_003", system.assignCar(start.plusDays(2), start.plusDays(4), null, 500).getCarId());
+    }
+
+    @Test
+    void aBatchGivesEachRequestADifferentCarInOrder() {
+        List<AssignmentRequest> requests = Arrays.asList(
+                new AssignmentRequest(start, start.plusDays(3), "BMW", 500),
+                new AssignmentRequest(start, start.plusDays(3), "BMW", 500),
+                new AssignmentRequest(start, start.plusDays(3), "BMW", 150),
+                new AssignmentRequest(start, start.plusDays(3), null, 100),
+                new AssignmentRequest(start, start.plusDays(3), "BMW", 500),
+                new AssignmentRequest(start, start.plusDays(3), "BMW", 500));
+        List<String> ids = new ArrayList<>();
+        for (Car car : system.assignCars(requests)) {
+            ids.add(car == null ? null : car.getCarId());
+        }
+        assertEquals(Arrays.asList("ID_002", "ID_003", null, "ID_004", "ID_001", null), ids);
+        // Nothing was rented or reserved.
+        assertEquals(5, system.getAvailableCarCount());
+    }
+}
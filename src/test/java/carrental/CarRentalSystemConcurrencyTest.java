@@ -0,0 +1,138 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarRentalSystemConcurrencyTest {
+    private static final int CARS = 128;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20_000;
+
+    @Test
+    void countsRollupsAndCustomerRentalsAgreeAfterConcurrentRentsAndReturns() throws Exception {
+        CarRentalSystem system = new CarRentalSystem();
+        for (int i = 0; i < CARS; i++) {
+            system.addCar(new Car(String.format("ID_%03d", i), i % 2 == 0 ? "BMW" : "Audi", "M" + i % 4, 100 + i % 10));
+        }
+        Customer[] customers = new Customer[8];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = system.registerCustomer("Customer " + i, "customer" + i + "@example.com");
+        }
+        List<Car> cars = new ArrayList<>(system.getAllCars());
+
+        // The handler runs on the bus's single subscriber thread, so a plain map is enough.
+        Map<String, RentalEvent.Type> lastEvent = new HashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicLong delivered = new AtomicLong();
+        RentalEventBus.Subscription subscription = system.subscribe("order-check", (event, sequence, endOfBatch) -> {
+            if (lastEvent.put(event.getCar().getCarId(), event.getType()) == event.getType()) {
+                outOfOrder.incrementAndGet();
+            }
+            delivered.incrementAndGet();
+        });
+
+        AtomicLong published = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            workers.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < OPERATIONS; i++) {
+                    Car car = cars.get(random.nextInt(CARS));
+                    Customer customer = customers[random.nextInt(customers.length)];
+                    switch (random.nextInt(5)) {
+                        case 0:
+                        case 1:
+                            if (system.rentCar(car, customer, 1 + random.nextInt(5))) {
+                                published.incrementAndGet();
+                            }
+                            break;
+                        case 2:
+                            if (system.returnCar(car)) {
+                                published.incrementAndGet();
+                            }
+                            break;
+                        case 3:
+                            List<RentRequest> batch = Arrays.asList(
+                                    new RentRequest(cars.get(random.nextInt(CARS)), customer, 2),
+                                    new RentRequest(cars.get(random.nextInt(CARS)), customer, 3));
+                            if (system.rentBatch(batch).get(0).isSuccess()) {
+                                published.addAndGet(batch.size());
+                            }
+                            break;
+                        default:
+                            Hold hold = system.placeHold(car, customer, 2, 60_000);
+                            if (hold != null) {
+                                assertTrue(system.releaseHold(hold));
+                            }
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        List<Rental> rentals = system.getRentals();
+        assertEquals(system.getCarCount(), system.getAvailableCarCount() + system.getHeldCarCount()
+                + system.getWithdrawnCarCount() + rentals.size());
+        assertEquals(0, system.getHeldCarCount());
+
+        RollupSnapshot.Totals total = system.getRollups().getTotal();
+        assertEquals(CARS, total.getCars());
+        assertEquals(rentals.size(), total.getRented());
+        assertEquals(rentals.stream().mapToLong(Rental::getPriceMinor).sum(), total.getRevenueInFlightMinor());
+        assertEquals(rentals.stream().mapToLong(Rental::getDays).sum(), total.getBookedDays());
+
+        int held = 0;
+        for (Customer customer : customers) {
+            for (Rental rental : system.getRentalsForCustomer(customer)) {
+                assertEquals(customer.getCustomerId(), rental.getCustomer().getCustomerId());
+                assertFalse(rental.getCar().isAvailable());
+                held++;
+            }
+        }
+        assertEquals(rentals.size(), held);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (delivered.get() < published.get() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        subscription.close();
+        assertEquals(published.get(), delivered.get());
+        assertEquals(0, outOfOrder.get(), "a car's rent and return events arrived out of order");
+    }
+
+    @Test
+    void onlyOneOfManyThreadsRentsTheSameCar() throws Exception {
+        CarRentalSystem system = new CarRentalSystem();
+        Car car = new Car("ID_001", "BMW", "X3", 100);
+        system.addCar(car);
+        Customer customer = system.registerCustomer("Jane Doe", "jane@example.com");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int round = 0; round < 200; round++) {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                attempts.add(executor.submit(() -> system.rentCar(car, customer, 1)));
+            }
+            int rented = 0;
+            for (Future<Boolean> attempt : attempts) {
+                rented += attempt.get() ? 1 : 0;
+            }
+            assertEquals(1, rented);
+            assertTrue(system.returnCar(car));
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarSearchIndexTest {
+    private CarRentalSystem system;
+
+    @BeforeEach
+    void setUp() {
+        system = new CarRentalSystem();
+        String[][] kinds = {{"Audi", "Q3"}, {"Audi", "A4"}, {"Mahindra", "Thar"}, {"Suzuki", "Brezza"}};
+        // Added in several calls, so the IDs sit in more than one sorted run.
+        for (int chunk = 0; chunk < 5; chunk++) {
+            List<Car> cars = new ArrayList<>();
+            for (int i = chunk; i < 2_000; i += 5) {
+                cars.add(new Car(String.format("ID_%04d", i), kinds[i % 4][0], kinds[i % 4][1], 100));
+            }
+            system.addCars(cars);
+        }
+    }
+
+    private List<String> ids(String query, int limit) {
+        return system.searchAvailableCars(query, limit).stream().map(Car::getCarId).collect(Collectors.toList());
+    }
+
+    @Test
+    void anIdPrefixFindsTheCarsWithThatIdInOrder() {
+        assertEquals(Arrays.asList("ID_0120", "ID_0121", "ID_0122"), ids("id_012", 3));
+        assertEquals(Collections.singletonList("ID_1999"), ids("ID_1999", 5));
+        assertTrue(ids("ID_2", 5).isEmpty());
+    }
+
+    @Test
+    void wordPrefixesMatchBrandAndModel() {
+        List<Car> found = system.searchAvailableCars("aud q", 10);
+        assertEquals(10, found.size());
+        for (Car car : found) {
+            assertEquals("Q3", car.getModel());
+        }
+        assertTrue(system.searchAvailableCars("thar", 50).stream().allMatch(car -> car.getBrand().equals("Mahindra")));
+        assertTrue(system.searchAvailableCars("audi thar", 5).isEmpty());
+    }
+
+    @Test
+    void aMisspeltWordFindsTheCloseSpelling() {
+        List<Car> found = system.searchAvailableCars("mahimdra", 5);
+        assertEquals(5, found.size());
+        assertTrue(found.stream().allMatch(car -> car.getBrand().equals("Mahindra")));
+    }
+
+    @Test
+    void rentedCarsAreLeftOut() {
+        Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        assertTrue(system.rentCar(system.findCarById("ID_0120"), jane, 2));
+        assertEquals(Arrays.asList("ID_0121", "ID_0122"), ids("ID_012", 2));
+        for (Car car : system.searchAvailableCars("brezza", 600)) {
+            assertTrue(system.rentCar(car, jane, 2));
+        }
+        assertTrue(system.searchAvailableCars("brezza", 5).isEmpty());
+        assertTrue(system.returnCar(system.findCarById("ID_0003")));
+        assertEquals(Collections.singletonList("ID_0003"), ids("suzuki brez", 5));
+    }
+}
@@ -0,0 +1,94 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarFleetStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void carsSurviveReopeningAndComeBackAvailable() throws IOException {
+        ColumnarFleetStore store = ColumnarFleetStore.open(directory);
+        for (int i = 0; i < 10_000; i++) {
+            store.add(new Car(String.format("ID_%05d", i), i % 2 == 0 ? "BMW" : "Audi", "M" + i % 3, 100 + i % 50));
+        }
+        store.setAvailable(store.byId("ID_00042"), false);
+        assertEquals(9_999, store.availableCount());
+        store.close();
+
+        store = ColumnarFleetStore.open(directory);
+        try {
+            assertEquals(10_000, store.size());
+            assertEquals(10_000, store.availableCount());
+            Car car = store.byId("id_09999");
+            assertEquals("ID_09999", car.getCarId());
+            assertEquals("Audi", car.getBrand());
+            assertEquals("M0", car.getModel());
+            assertEquals(149, car.getBasePricePerDay());
+            assertEquals(9_999, car.getOrdinal());
+            assertEquals("ID_00042", store.idAt(42));
+            assertNull(store.byId("ID_10000"));
+        } finally {
+            store.close();
+        }
+    }
+
+    // The ID table and its mask were published separately, so a lookup during a rebuild could
+    // pair the old table with the new mask and read past its end, or miss a car.
+    @Test
+    void lookupsWhileTheIdIndexGrowsFindEveryCarAlreadyAdded() throws Exception {
+        ColumnarFleetStore store = ColumnarFleetStore.open(directory);
+        try {
+            int cars = 50_000;
+            AtomicInteger added = new AtomicInteger();
+            AtomicBoolean adding = new AtomicBoolean(true);
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                Thread reader = new Thread(() -> {
+                    Random random = new Random(seed);
+                    try {
+                        while (adding.get()) {
+                            int known = added.get();
+                            if (known == 0) {
+                                continue;
+                            }
+                            String id = String.format("ID_%06d", random.nextInt(known));
+                            Car car = store.byId(id);
+                            if (car == null || !car.getCarId().equals(id)) {
+                                failures.add(new AssertionError("Lost " + id + " with " + known + " cars added"));
+                                return;
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+            for (int i = 0; i < cars; i++) {
+                store.add(new Car(String.format("ID_%06d", i), "BMW", "X3", 100));
+                added.incrementAndGet();
+            }
+            adding.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertEquals(Collections.emptyList(), failures);
+            assertEquals(cars, store.size());
+        } finally {
+            store.close();
+        }
+    }
+}
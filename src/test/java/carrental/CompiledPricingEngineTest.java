@@ -0,0 +1,88 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPricingEngineTest {
+    private static final LocalDate MONDAY = LocalDate.of(2030, 3, 4);
+
+    private final Car audi = new Car("ID_001", "Audi", "Q3", 100);
+    private final Car bmw = new Car("ID_002", "BMW", "X3", 100);
+
+    private static PricingRules rules() {
+        return new PricingRules()
+                .season(MonthDay.of(6, 1), MonthDay.of(8, 31), 2_000)
+                .weekend(1_500)
+                .longRental(7, -1_000)
+                .brand("BMW", 500);
+    }
+
+    private static CompiledPricingEngine compile(PricingRules rules, int fromYear, int untilYear) {
+        return new CompiledPricingEngine(rules, LocalDate.of(fromYear, 1, 1), LocalDate.of(untilYear, 1, 1));
+    }
+
+    @Test
+    void weekdaysOutOfSeasonCostTheBasePrice() {
+        assertEquals(30_000, compile(rules(), 2030, 2031).quote(audi, MONDAY, 3));
+    }
+
+    @Test
+    void weekendAndSeasonAdjustmentsAddUp() {
+        CompiledPricingEngine engine = compile(rules(), 2030, 2031);
+        assertEquals(23_000, engine.quote(audi, MONDAY.plusDays(5), 2));
+        // Friday in season, then a weekend in season.
+        assertEquals(12_000 + 13_500 + 13_500, engine.quote(audi, LocalDate.of(2030, 6, 28), 3));
+    }
+
+    @Test
+    void longRentalAndBrandAdjustmentsApplyToTheWholePrice() {
+        CompiledPricingEngine engine = compile(rules(), 2030, 2031);
+        assertEquals(65_700, engine.quote(audi, MONDAY, 7));
+        assertEquals(68_985, engine.quote(bmw, MONDAY, 7));
+        assertEquals(68_985, engine.quote(new Car("ID_003", "bmw", "X3", 100), MONDAY, 7));
+        assertEquals(0, engine.quote(bmw, MONDAY, 0));
+    }
+
+    @Test
+    void rentalsOutsideTheTablesArePricedDayByDayToTheSameAmount() {
+        CompiledPricingEngine narrow = compile(rules(), 2030, 2031);
+        CompiledPricingEngine wide = compile(rules(), 2028, 2033);
+        for (LocalDate start = LocalDate.of(2029, 12, 1); start.isBefore(LocalDate.of(2031, 2, 1)); start = start.plusDays(3)) {
+            for (int days = 1; days <= 16; days += 5) {
+                assertEquals(wide.quote(bmw, start, days), narrow.quote(bmw, start, days), start + " for " + days + " days");
+            }
+        }
+        // Served from the quote cache the second time.
+        assertEquals(wide.quote(audi, LocalDate.of(2030, 12, 24), 14), narrow.quote(audi, LocalDate.of(2030, 12, 24), 14));
+        assertEquals(wide.quote(audi, LocalDate.of(2030, 12, 24), 14), narrow.quote(audi, LocalDate.of(2030, 12, 24), 14));
+    }
+
+    @Test
+    void rulesFilesReadTheSameRules(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("rules.txt");
+        Files.write(file, Arrays.asList("# summer", "season 06-01 08-31 +20%", "", "weekend +15%", "long 7 -10%",
+                "brand BMW +5%"), StandardCharsets.UTF_8);
+        CompiledPricingEngine loaded = compile(PricingRules.load(file), 2030, 2031);
+        CompiledPricingEngine built = compile(rules(), 2030, 2031);
+        for (int offset = 0; offset < 200; offset += 7) {
+            assertEquals(built.quote(bmw, MONDAY.plusDays(offset), 9), loaded.quote(bmw, MONDAY.plusDays(offset), 9));
+        }
+    }
+
+    @Test
+    void aBadRuleIsReportedWithItsLine(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("rules.txt");
+        Files.write(file, Arrays.asList("weekend +15%", "weekend fifteen"), StandardCharsets.UTF_8);
+        IOException error = assertThrows(IOException.class, () -> PricingRules.load(file));
+        assertTrue(error.getMessage().contains(":2:"), error.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerRegistryTest {
+    @Test
+    void aReturningCustomerTypedDifferentlyIsFound() {
+        CarRentalSystem system = new CarRentalSystem();
+        Customer jose = system.registerCustomer("José  Álvarez", "+1 (555) 010-2030");
+        assertSame(jose, system.registerCustomer("jose alvarez", "+15550102030"));
+        assertSame(jose, system.findCustomerById(jose.getCustomerId().toLowerCase()));
+        Customer ann = system.registerCustomer("Ann Lee", "ANN@example.com");
+        assertSame(ann, system.registerCustomer("ann lee", "ann@example.com "));
+        assertNotSame(jose, system.registerCustomer("José Álvarez", "jose@example.com"));
+        assertEquals(3, system.getCustomerCount());
+    }
+
+    @Test
+    void customersWithoutContactDetailsShareANameOnlyWhileNothingIsRented() {
+        CarRentalSystem system = new CarRentalSystem();
+        Car first = new Car("ID_001", "BMW", "X3", 100);
+        Car second = new Car("ID_002", "BMW", "X3", 100);
+        system.addCar(first);
+        system.addCar(second);
+
+        Customer walkIn = system.registerCustomer("Walk In", "");
+        assertSame(walkIn, system.registerCustomer("walk in", " "));
+        assertTrue(system.rentCar(first, walkIn, 2));
+        Customer other = system.registerCustomer("Walk In", "");
+        assertNotSame(walkIn, other);
+        assertTrue(system.rentCar(second, other, 2));
+        assertEquals(1, system.getRentalsForCustomer(walkIn).size());
+        assertEquals(1, system.getRentalsForCustomer(other).size());
+
+        assertTrue(system.returnCar(first));
+        assertTrue(system.returnCar(second));
+        for (int i = 0; i < 1_000; i++) {
+            Customer customer = system.registerCustomer("Walk In", "");
+            assertTrue(system.rentCar(first, customer, 1));
+            assertTrue(system.returnCar(first));
+        }
+        assertEquals(2, system.getCustomerCount());
+    }
+
+    @Test
+    void aCustomerOfOneSystemCanRentFromAnother() {
+        CarRentalSystem home = new CarRentalSystem();
+        CarRentalSystem away = new CarRentalSystem();
+        Car car = new Car("ID_001", "BMW", "X3", 100);
+        away.addCar(car);
+        Customer jane = home.registerCustomer("Jane Doe", "jane@example.com");
+        Car homeCar = new Car("ID_H01", "BMW", "X3", 100);
+        home.addCar(homeCar);
+        assertTrue(home.rentCar(homeCar, jane, 1));
+
+        assertTrue(away.rentCar(car, jane, 2));
+        assertEquals("ID_001", away.getRentalsForCustomer(jane).iterator().next().getCar().getCarId());
+        Customer sameId = new Customer(jane.getCustomerId().toLowerCase(), "Jane Doe");
+        assertEquals(1, away.getRentalsForCustomer(sameId).size());
+        assertEquals(1, home.getRentalsForCustomer(jane).size());
+    }
+}
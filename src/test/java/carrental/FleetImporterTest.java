@@ -0,0 +1,76 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvLinesAreAddedSkippedAsDuplicatesOrReportedAsMalformed() throws IOException {
+        Path file = directory.resolve("cars.csv");
+        Files.write(file, Arrays.asList(
+                "carId,brand,model,pricePerDay",
+                "ID_001,BMW,X3,120",
+                "ID_002,\"Mercedes, Benz\",C-Class,150.5",
+                "ID_001,BMW,X3,120",
+                "ID_003,Audi,Q3,cheap",
+                "ID_004,\"Audi,Q3,100",
+                "ID_005,Audi,Q3,100"), StandardCharsets.UTF_8);
+        CarRentalSystem system = new CarRentalSystem();
+        FleetImporter.Result result = new FleetImporter(system).importFile(file);
+
+        assertEquals(6, result.getRead());
+        assertEquals(3, result.getAdded());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(2, result.getMalformed());
+        assertTrue(result.getErrors().get(0).startsWith("line 5: "), result.getErrors().toString());
+        assertEquals(3, system.getCarCount());
+        assertEquals("Mercedes, Benz", system.findCarById("ID_002").getBrand());
+    }
+
+    @Test
+    void binaryFilesRoundTrip() throws IOException {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            cars.add(new Car(String.format("ID_%05d", i), "BMW", "X" + i % 7, 100 + i % 50));
+        }
+        Path file = directory.resolve("cars.fleet");
+        FleetImporter.writeBinary(file, cars);
+        CarRentalSystem system = new CarRentalSystem();
+        FleetImporter.Result result = new FleetImporter(system).importFile(file);
+
+        assertEquals(10_000, result.getAdded());
+        assertEquals(0, result.getMalformed());
+        assertEquals("X2", system.findCarById("ID_09998").getModel());
+        assertEquals(148, system.findCarById("ID_09998").getBasePricePerDay());
+    }
+
+    // A .fleet file cut off inside its last record used to read past the end of the chunk.
+    @Test
+    void aCutShortBinaryRecordIsCountedAsMalformed() throws IOException {
+        Path file = directory.resolve("cars.fleet");
+        FleetImporter.writeBinary(file, Arrays.asList(
+                new Car("ID_001", "BMW", "X3", 120),
+                new Car("ID_002", "Audi", "Q3", 100),
+                new Car("ID_003", "Audi", "A4", 110)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        CarRentalSystem system = new CarRentalSystem();
+        FleetImporter.Result result = new FleetImporter(system).importFile(file);
+
+        assertEquals(2, result.getAdded());
+        assertEquals(1, result.getMalformed());
+        assertNull(system.findCarById("ID_003"));
+    }
+}
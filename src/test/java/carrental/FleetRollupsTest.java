@@ -0,0 +1,74 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetRollupsTest {
+    private CarRentalSystem system;
+    private Customer jane;
+
+    @BeforeEach
+    void setUp() {
+        system = new CarRentalSystem();
+        system.addCar(new Car("ID_001", "BMW", "X3", 100));
+        system.addCar(new Car("ID_002", "bmw", "x3", 120));
+        system.addCar(new Car("ID_003", "Audi", "Q3", 90));
+        system.addCar(new Car("ID_004", "Audi", "A4", 110));
+        jane = system.registerCustomer("Jane Doe", "jane@example.com");
+    }
+
+    @Test
+    void brandsAndModelsAreTotalledIgnoringCaseUnderTheirFirstSpelling() {
+        RollupSnapshot rollups = system.getRollups();
+        assertEquals(4, rollups.getTotal().getCars());
+        assertEquals(Arrays.asList("Audi", "BMW"), Arrays.asList(rollups.getByBrand().keySet().toArray()));
+        assertEquals(2, rollups.getByBrand().get("bmw").getCars());
+        assertEquals(2, rollups.getByModel().get("X3").getCars());
+        assertEquals(1, rollups.getByModel().get("Q3").getCars());
+    }
+
+    @Test
+    void rentalsAreCountedWhileOutAndTakenOffWhenReturned() {
+        long first = system.quote(system.findCarById("ID_002"), system.today(), 3);
+        long second = system.quote(system.findCarById("ID_003"), system.today(), 5);
+        assertTrue(system.rentCar(system.findCarById("ID_002"), jane, 3));
+        assertTrue(system.rentCar(system.findCarById("ID_003"), jane, 5));
+
+        RollupSnapshot rollups = system.getRollups();
+        assertEquals(2, rollups.getTotal().getRented());
+        assertEquals(first + second, rollups.getTotal().getRevenueInFlightMinor());
+        assertEquals(8, rollups.getTotal().getBookedDays());
+        assertEquals(4.0, rollups.getTotal().getAverageDays());
+        assertEquals(0.5, rollups.getTotal().getUtilization());
+        assertEquals(1, rollups.getByBrand().get("BMW").getRented());
+        assertEquals(first, rollups.getByModel().get("X3").getRevenueInFlightMinor());
+
+        assertTrue(system.returnCar(system.findCarById("ID_002")));
+        rollups = system.getRollups();
+        assertEquals(1, rollups.getTotal().getRented());
+        assertEquals(second, rollups.getTotal().getRevenueInFlightMinor());
+        assertEquals(0, rollups.getByBrand().get("BMW").getRented());
+        assertEquals(0, rollups.getByBrand().get("BMW").getRevenueInFlightMinor());
+    }
+
+    @Test
+    void branchRollupsAddUp() {
+        BranchNetwork network = new BranchNetwork();
+        network.addBranch("north", system);
+        network.addBranch("south");
+        assertTrue(network.addCar("south", new Car("ID_005", "BMW", "X5", 200)));
+        assertTrue(network.rentCar("ID_005", "Jane Doe", "jane@example.com", 2));
+
+        RollupSnapshot rollups = network.getRollups();
+        assertEquals(5, rollups.getTotal().getCars());
+        assertEquals(1, rollups.getTotal().getRented());
+        assertEquals(3, rollups.getByBrand().get("BMW").getCars());
+        assertEquals(1, rollups.getByBrand().get("BMW").getRented());
+        assertEquals(Arrays.asList("north", "south"), Arrays.asList(network.getRollupsByBranch().keySet().toArray()));
+        assertEquals(1, network.getRollupsByBranch().get("south").getTotal().getRented());
+    }
+}
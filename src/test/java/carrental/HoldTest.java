@@ -0,0 +1,97 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldTest {
+    private static final long MINUTE = 60_000;
+
+    private CarRentalSystem system;
+    private Car car;
+    private Customer jane;
+    private Customer john;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        system = new CarRentalSystem();
+        car = new Car("ID_001", "BMW", "X3", 100);
+        system.addCar(car);
+        jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        john = system.registerCustomer("John Roe", "john@example.com");
+        today = system.today();
+    }
+
+    @Test
+    void aHeldCarCannotBeRentedHeldOrReservedByAnyoneElse() {
+        Hold hold = system.placeHold(car, jane, 3, MINUTE);
+        assertNotNull(hold);
+        assertEquals(1, system.getHeldCarCount());
+        assertEquals(0, system.getAvailableCarCount());
+        assertNull(system.findAvailableCarById("ID_001"));
+        assertFalse(system.rentCar(car, john, 2));
+        assertNull(system.placeHold(car, john, 1, MINUTE));
+        assertNull(system.reserveCar(car, john, today.plusDays(2), today.plusDays(4)));
+        // After the days the hold covers the car can still be booked.
+        assertNotNull(system.reserveCar(car, john, today.plusDays(3), today.plusDays(5)));
+        assertFalse(hold.isExpired());
+    }
+
+    @Test
+    void aCarBookedForTheComingDaysCannotBeHeld() {
+        assertNotNull(system.reserveCar(car, john, today.plusDays(1), today.plusDays(2)));
+        assertNull(system.placeHold(car, jane, 3, MINUTE));
+        assertNotNull(system.placeHold(car, jane, 1, MINUTE));
+    }
+
+    @Test
+    void confirmingRentsTheCarOnTheHoldsTermsOnce() {
+        Hold hold = system.placeHold(car, jane, 3, MINUTE);
+        assertTrue(system.confirmHold(hold));
+        Rental rental = system.getRentalForCar(car);
+        assertEquals(jane, rental.getCustomer());
+        assertEquals(3, rental.getDays());
+        assertEquals(today, rental.getStartDate());
+        assertEquals(0, system.getHeldCarCount());
+        assertFalse(system.confirmHold(hold));
+        assertFalse(system.releaseHold(hold));
+        assertTrue(system.returnCar(car));
+    }
+
+    @Test
+    void releasingFreesTheCar() {
+        Hold hold = system.placeHold(car, jane, 3, MINUTE);
+        assertTrue(system.releaseHold(hold));
+        assertFalse(system.releaseHold(hold));
+        assertFalse(system.confirmHold(hold));
+        assertEquals(0, system.getHeldCarCount());
+        assertEquals(1, system.getAvailableCarCount());
+        assertTrue(system.rentCar(car, john, 2));
+    }
+
+    @Test
+    void anUnconfirmedHoldRunsOut() throws InterruptedException {
+        Hold hold = system.placeHold(car, jane, 3, 100);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (system.getHeldCarCount() > 0) {
+            assertTrue(System.nanoTime() < deadline, "the hold did not run out");
+            Thread.sleep(10);
+        }
+        assertTrue(hold.isExpired());
+        assertFalse(system.confirmHold(hold));
+        assertNotNull(system.findAvailableCarById("ID_001"));
+        assertTrue(system.rentCar(car, john, 2));
+    }
+
+    @Test
+    void holdsOfNoDaysOrTooManyAreRefused() {
+        assertNull(system.placeHold(car, jane, 0, MINUTE));
+        assertNull(system.placeHold(car, jane, CarRentalSystem.MAX_RENTAL_DAYS + 1, MINUTE));
+        assertEquals(0, system.getHeldCarCount());
+    }
+}
@@ -0,0 +1,110 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RentBatchTest {
+    private CarRentalSystem system;
+    private Customer jane;
+    private List<Car> cars;
+
+    @BeforeEach
+    void setUp() {
+        system = new CarRentalSystem();
+        for (int i = 0; i < 5; i++) {
+            system.addCar(new Car("ID_00" + i, "BMW", "X3", 100));
+        }
+        jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        cars = system.getAllCars();
+    }
+
+    private List<RentRequest> requests(int days, Car... batch) {
+        List<RentRequest> requests = new ArrayList<>();
+        for (Car car : batch) {
+            requests.add(new RentRequest(car, jane, days));
+        }
+        return requests;
+    }
+
+    @Test
+    void aBatchOfFreeCarsIsRentedTogether() {
+        List<BatchResult> results = system.rentBatch(requests(3, cars.get(0), cars.get(1), cars.get(2)));
+        assertTrue(results.stream().allMatch(BatchResult::isSuccess));
+        assertEquals(3, system.getRentals().size());
+        assertEquals(3, system.getRollups().getTotal().getRented());
+    }
+
+    @Test
+    void oneUnavailableCarRollsBackTheWholeBatch() {
+        assertTrue(system.rentCar(cars.get(2), jane, 1));
+        List<BatchResult> results = system.rentBatch(requests(3, cars.get(0), cars.get(1), cars.get(2)));
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Car is not available.", results.get(2).getMessage());
+        assertTrue(cars.get(0).isAvailable());
+        assertTrue(cars.get(1).isAvailable());
+        assertEquals(1, system.getRentals().size());
+        assertEquals(1, system.getRollups().getTotal().getRented());
+    }
+
+    @Test
+    void aCarTwiceInOneBatchRollsItBack() {
+        List<BatchResult> results = system.rentBatch(requests(3, cars.get(0), cars.get(1), cars.get(0)));
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(0, system.getRentals().size());
+    }
+
+    @Test
+    void aReservedCarOrAnOverlongRentalRollsBackTheBatch() {
+        LocalDate today = system.today();
+        assertNotNull(system.reserveCar(cars.get(1), jane, today.plusDays(1), today.plusDays(2)));
+        assertFalse(system.rentBatch(requests(3, cars.get(0), cars.get(1))).get(0).isSuccess());
+        assertFalse(system.rentBatch(requests(CarRentalSystem.MAX_RENTAL_DAYS + 1, cars.get(0))).get(0).isSuccess());
+        assertEquals(0, system.getRentals().size());
+    }
+
+    @Test
+    void returnBatchReturnsAllOrNothing() {
+        assertTrue(system.rentBatch(requests(2, cars.get(0), cars.get(1))).get(0).isSuccess());
+        List<BatchResult> refused = system.returnBatch(Arrays.asList(cars.get(0), cars.get(1), cars.get(2)));
+        assertEquals("Car is not rented.", refused.get(2).getMessage());
+        assertEquals(2, system.getRentals().size());
+
+        List<BatchResult> returned = system.returnBatch(Arrays.asList(cars.get(0), cars.get(1)));
+        assertTrue(returned.stream().allMatch(BatchResult::isSuccess));
+        assertEquals(0, system.getRentals().size());
+        assertEquals(5, system.getAvailableCarCount());
+    }
+
+    @Test
+    void onlyCommittedBatchesAreJournaled(@TempDir Path directory) throws Exception {
+        system = new CarRentalSystem();
+        RentalJournal journal = RentalJournal.open(directory, system);
+        for (int i = 0; i < 5; i++) {
+            system.addCar(new Car("ID_00" + i, "BMW", "X3", 100));
+        }
+        jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        cars = system.getAllCars();
+        assertTrue(system.rentBatch(requests(2, cars.get(0), cars.get(3))).get(0).isSuccess());
+        assertFalse(system.rentBatch(requests(2, cars.get(1), cars.get(3))).get(0).isSuccess());
+        journal.close();
+
+        CarRentalSystem restored = new CarRentalSystem();
+        RentalJournal reopened = RentalJournal.open(directory, restored);
+        try {
+            assertEquals(2, restored.getRentals().size());
+            assertNotNull(restored.getRentalForCar(restored.findCarById("ID_000")));
+            assertNull(restored.getRentalForCar(restored.findCarById("ID_001")));
+        } finally {
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RentalEventBusTest {
+    private static final Customer JANE = new Customer("CUS-1", "Jane Doe");
+
+    private static void awaitCount(AtomicLong count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    // Checks what one subscriber sees; runs on that subscriber's thread only.
+    private static final class OrderCheck implements RentalEventHandler {
+        final AtomicLong received = new AtomicLong();
+        final Map<String, Integer> lastDays = new HashMap<>();
+        long lastSequence = -1;
+        volatile String problem;
+
+        @Override
+        public void onEvent(RentalEvent event, long sequence, boolean endOfBatch) {
+            if (sequence != lastSequence + 1) {
+                problem = "sequence " + sequence + " after " + lastSequence;
+            }
+            lastSequence = sequence;
+            Integer last = lastDays.put(event.getCar().getCarId(), event.getDays());
+            if (last != null && last >= event.getDays()) {
+                problem = event.getCar().getCarId() + " day " + event.getDays() + " after " + last;
+            }
+            received.incrementAndGet();
+        }
+    }
+
+    @Test
+    void everySubscriberGetsEveryEventInOrder() throws Exception {
+        RentalEventBus bus = new RentalEventBus(1_024, RentalEventBus.BackPressure.BLOCK);
+        OrderCheck first = new OrderCheck();
+        OrderCheck second = new OrderCheck();
+        bus.subscribe("first", first);
+        bus.subscribe("second", second);
+        int threads = 4;
+        int events = 50_000;
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Car car = new Car("ID_00" + t, "BMW", "X3", 100);
+            Thread publisher = new Thread(() -> {
+                for (int i = 1; i <= events; i++) {
+                    bus.publish(RentalEvent.Type.RENTED, car, JANE, 0, i, 100);
+                }
+            });
+            publisher.start();
+            publishers.add(publisher);
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        awaitCount(first.received, threads * events);
+        awaitCount(second.received, threads * events);
+        bus.close();
+
+        for (OrderCheck check : Arrays.asList(first, second)) {
+            assertNull(check.problem);
+            assertEquals(threads * events, check.received.get());
+        }
+        assertEquals(0, bus.getDropped());
+    }
+
+    @Test
+    void droppedEventsAreCountedAndReported() throws Exception {
+        RentalEventBus bus = new RentalEventBus(16, RentalEventBus.BackPressure.DROP);
+        CountDownLatch stalled = new CountDownLatch(1);
+        AtomicLong received = new AtomicLong();
+        AtomicLong reported = new AtomicLong();
+        bus.subscribe("slow", new RentalEventHandler() {
+            @Override
+            public void onEvent(RentalEvent event, long sequence, boolean endOfBatch) {
+                try {
+                    stalled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void onDropped(long count) {
+                reported.addAndGet(count);
+            }
+        });
+        Car car = new Car("ID_001", "BMW", "X3", 100);
+        for (int i = 1; i <= 1_000; i++) {
+            bus.publish(RentalEvent.Type.RENTED, car, JANE, 0, i, 100);
+        }
+        stalled.countDown();
+        long dropped = bus.getDropped();
+        assertTrue(dropped > 0);
+        awaitCount(received, 1_000 - dropped);
+        // The loss is reported once the subscriber has caught up.
+        awaitCount(reported, dropped);
+        bus.close();
+
+        assertEquals(1_000 - dropped, received.get());
+        assertEquals(dropped, reported.get());
+    }
+
+    @Test
+    void aClosedSubscriptionGetsNothingMore() throws Exception {
+        RentalEventBus bus = new RentalEventBus(64, RentalEventBus.BackPressure.BLOCK);
+        Car car = new Car("ID_001", "BMW", "X3", 100);
+        // With no one listening, publishing does nothing.
+        bus.publish(RentalEvent.Type.RENTED, car, JANE, 0, 1, 100);
+
+        AtomicLong received = new AtomicLong();
+        RentalEventBus.Subscription subscription = bus.subscribe("once",
+                (event, sequence, endOfBatch) -> received.incrementAndGet());
+        bus.publish(RentalEvent.Type.RENTED, car, JANE, 0, 2, 100);
+        awaitCount(received, 1);
+        subscription.close();
+        for (int i = 0; i < 1_000; i++) {
+            bus.publish(RentalEvent.Type.RETURNED, car, JANE, 0, 3, 100);
+        }
+        Thread.sleep(50);
+        assertEquals(1, received.get());
+    }
+}
@@ -0,0 +1,159 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RentalHistoryTest {
+    private static final int CARS = 1_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final int DAYS = 90;
+
+    @TempDir
+    Path directory;
+
+    // Every car is rented every fourth day for one to three days, so a month fills several blocks.
+    private final List<HistoryEvent> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ZoneId zone = ZoneId.systemDefault();
+        for (int car = 0; car < CARS; car++) {
+            for (int day = car % 4; day + 3 < DAYS; day += 4) {
+                int days = 1 + (car + day) % 3;
+                LocalDate start = FIRST_DAY.plusDays(day);
+                LocalDate end = start.plusDays(days);
+                String carId = String.format("ID_%04d", car);
+                String customerId = "C" + car % 7;
+                long amount = 10_000L * days + car % 5;
+                long rented = start.atStartOfDay(zone).plusHours(9).toInstant().toEpochMilli() + car;
+                long returned = end.atStartOfDay(zone).plusHours(8).toInstant().toEpochMilli() + car;
+                events.add(new HistoryEvent(RentalEvent.Type.RENTED, rented, carId, customerId, "Customer " + car % 7,
+                        start, days, end, amount));
+                events.add(new HistoryEvent(RentalEvent.Type.RETURNED, returned, carId, customerId, "Customer " + car % 7,
+                        start, days, end, amount));
+            }
+        }
+        events.sort(Comparator.comparingLong(HistoryEvent::getTimeMillis));
+    }
+
+    private List<String> expected(Predicate<HistoryEvent> match) {
+        return events.stream().filter(match).map(HistoryEvent::toString).collect(Collectors.toList());
+    }
+
+    private static List<String> strings(List<HistoryEvent> found) {
+        return found.stream().map(HistoryEvent::toString).collect(Collectors.toList());
+    }
+
+    private long expectedRevenue(LocalDate from, LocalDate to) {
+        return events.stream()
+                .filter(event -> event.isReturn() && !event.getEndDate().isBefore(from) && event.getEndDate().isBefore(to))
+                .mapToLong(HistoryEvent::getAmountMinor)
+                .sum();
+    }
+
+    @Test
+    void eventsSurviveReopeningIncludingThoseNotYetInABlock() throws IOException {
+        assertTrue(events.size() > 4 * RentalHistory.BLOCK_EVENTS);
+        RentalHistory history = RentalHistory.open(directory);
+        for (HistoryEvent event : events) {
+            history.append(event);
+        }
+        history.close();
+
+        RentalHistory reopened = RentalHistory.open(directory);
+        try {
+            assertEquals(expected(event -> event.getCarId().equals("ID_0007")), strings(reopened.carHistory("ID_0007")));
+            assertEquals(expected(event -> event.getCarId().equals("ID_0999")), strings(reopened.carHistory("id_0999")));
+            assertEquals(expected(event -> event.getCustomerId().equals("C3")), strings(reopened.customerHistory("C3")));
+            assertTrue(reopened.carHistory("ID_5000").isEmpty());
+
+            LocalDate february = LocalDate.of(2030, 2, 1);
+            LocalDate march = LocalDate.of(2030, 3, 1);
+            assertEquals(expectedRevenue(FIRST_DAY, february), reopened.revenue(FIRST_DAY, february));
+            assertEquals(expectedRevenue(february, march), reopened.revenue(february, march));
+            assertEquals(expectedRevenue(FIRST_DAY, FIRST_DAY.plusDays(DAYS)), reopened.revenue(FIRST_DAY, FIRST_DAY.plusDays(DAYS)));
+            assertEquals(expectedRevenue(FIRST_DAY, february),
+                    reopened.revenueByCar(FIRST_DAY, february).values().stream().mapToLong(Long::longValue).sum());
+
+            long expectedDays = events.stream()
+                    .filter(HistoryEvent::isReturn)
+                    .mapToLong(event -> Math.max(0, Math.min(march.toEpochDay(), event.getEndDate().toEpochDay())
+                            - Math.max(february.toEpochDay(), event.getStartDate().toEpochDay())))
+                    .sum();
+            assertEquals(expectedDays, reopened.daysRented(february, march));
+
+            // ID_0000 is out from day 0 for one day, day 4 for two, day 8 for three, and so on.
+            HistoryEvent rental = reopened.rentalOn("ID_0000", FIRST_DAY.plusDays(9));
+            assertEquals(FIRST_DAY.plusDays(8), rental.getStartDate());
+            assertTrue(rental.isReturn());
+            assertNull(reopened.rentalOn("ID_0000", FIRST_DAY.plusDays(1)));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void flushedBlocksAndLaterEventsAreBothFound() throws IOException {
+        RentalHistory history = RentalHistory.open(directory);
+        try {
+            List<HistoryEvent> car = events.stream()
+                    .filter(event -> event.getCarId().equals("ID_0001"))
+                    .collect(Collectors.toList());
+            int half = car.size() / 2;
+            for (HistoryEvent event : car.subList(0, half)) {
+                history.append(event);
+            }
+            history.flush();
+            for (HistoryEvent event : car.subList(half, car.size() - 1)) {
+                history.append(event);
+            }
+            assertEquals(strings(car.subList(0, car.size() - 1)), strings(history.carHistory("ID_0001")));
+            // The last rental is still running.
+            HistoryEvent running = car.get(car.size() - 2);
+            assertFalse(running.isReturn());
+            assertEquals(running.toString(), history.rentalOn("ID_0001", running.getStartDate().plusDays(30)).toString());
+        } finally {
+            history.close();
+        }
+    }
+
+    @Test
+    void eventsTheBusDropsAreCounted() throws Exception {
+        CarRentalSystem system = new CarRentalSystem(new HeapFleetStore(),
+                new RentalEventBus(16, RentalEventBus.BackPressure.DROP));
+        Car car = new Car("ID_0001", "BMW", "X3", 100);
+        system.addCar(car);
+        Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        RentalHistory history = RentalHistory.open(directory, system);
+        try {
+            // The history writes each event holding its own lock, so holding it here stalls the subscriber.
+            synchronized (history) {
+                for (int i = 0; i < 500; i++) {
+                    assertTrue(system.rentCar(car, jane, 1));
+                    assertTrue(system.returnCar(car));
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (history.carHistory("ID_0001").size() + history.getDropped() < 1_000) {
+                assertTrue(System.nanoTime() < deadline, "dropped events were not reported");
+                Thread.sleep(10);
+            }
+            assertTrue(history.getDropped() > 0);
+            assertEquals(1_000, history.carHistory("ID_0001").size() + history.getDropped());
+        } finally {
+            history.close();
+        }
+    }
+}
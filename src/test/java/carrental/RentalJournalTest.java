@@ -0,0 +1,184 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RentalJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopeningRestoresCarsCustomersRentalsAndBookings() throws IOException {
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal journal = RentalJournal.open(directory, system);
+        for (int i = 0; i < 10; i++) {
+            system.addCar(new Car("ID_00" + i, "BMW", "X3", 100 + i));
+        }
+        Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        assertTrue(system.rentCar(system.findCarById("ID_001"), jane, 3));
+        assertTrue(system.rentCar(system.findCarById("ID_002"), jane, 4));
+        assertTrue(system.returnCar(system.findCarById("ID_002")));
+        LocalDate start = system.today().plusDays(10);
+        assertNotNull(system.reserveCar(system.findCarById("ID_003"), jane, start, start.plusDays(2)));
+        assertTrue(system.withdrawCar(system.findCarById("ID_004")));
+        journal.close();
+
+        CarRentalSystem restored = new CarRentalSystem();
+        RentalJournal reopened = RentalJournal.open(directory, restored);
+        try {
+            assertEquals(10, restored.getCarCount());
+            assertEquals(jane.getName(), restored.findCustomerById(jane.getCustomerId()).getName());
+            Rental rental = restored.getRentalForCar(restored.findCarById("ID_001"));
+            assertEquals(jane.getCustomerId(), rental.getCustomer().getCustomerId());
+            assertEquals(3, rental.getDays());
+            assertNull(restored.getRentalForCar(restored.findCarById("ID_002")));
+            assertFalse(restored.isCarFreeBetween(restored.findCarById("ID_003"), start, start.plusDays(1)));
+            assertTrue(restored.isWithdrawn(restored.findCarById("ID_004")));
+            assertEquals(8, restored.getAvailableCarCount());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void aTornRecordAtTheEndOfTheJournalIsIgnored() throws IOException {
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal.open(directory, system, Long.MAX_VALUE);
+        system.addCar(new Car("ID_001", "BMW", "X3", 100));
+        system.addCar(new Car("ID_002", "BMW", "X3", 100));
+        assertTrue(system.rentCar(system.findCarById("ID_001"), system.registerCustomer("Jane Doe", ""), 2));
+        // The process dies halfway through writing the next record.
+        Path segment;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "journal-*.log")) {
+            segment = segments.iterator().next();
+        }
+        Files.write(segment, new byte[] {0, 0, 0, 40, 3, 1, 2}, StandardOpenOption.APPEND);
+
+        CarRentalSystem restored = new CarRentalSystem();
+        RentalJournal reopened = RentalJournal.open(directory, restored);
+        try {
+            assertEquals(2, restored.getCarCount());
+            assertNotNull(restored.getRentalForCar(restored.findCarById("ID_001")));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    // Snapshots used to walk the live fleet after writing its size, while cars added meanwhile
+    // were journaled into the segment the snapshot then deleted: recovery failed or lost cars.
+    @Test
+    void snapshotsTakenWhileCarsAreAddedLoseNoCars() throws Exception {
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal journal = RentalJournal.open(directory, system, Long.MAX_VALUE);
+        AtomicBoolean adding = new AtomicBoolean(true);
+        Thread snapshots = new Thread(() -> {
+            while (adding.get()) {
+                try {
+                    journal.snapshot();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        snapshots.start();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> adders = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            adders.add(executor.submit(() -> {
+                for (int chunk = 0; chunk < 20; chunk++) {
+                    List<Car> cars = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        cars.add(new Car(String.format("T%d_%02d_%02d", thread, chunk, i), "BMW", "X3", 100));
+                    }
+                    system.addCars(cars);
+                    system.addCar(new Car(String.format("S%d_%02d", thread, chunk), "Audi", "Q3", 120));
+                }
+            }));
+        }
+        for (Future<?> adder : adders) {
+            adder.get();
+        }
+        executor.shutdown();
+        adding.set(false);
+        snapshots.join();
+
+        // Reopened without closing, as after a crash.
+        CarRentalSystem restored = new CarRentalSystem();
+        RentalJournal reopened = RentalJournal.open(directory, restored);
+        try {
+            assertEquals(system.getCarCount(), restored.getCarCount());
+            for (Car car : system.getAllCars()) {
+                assertNotNull(restored.findCarById(car.getCarId()), car.getCarId());
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    // Recovery used to leave a torn record in place and append after it, so the next recovery
+    // stopped at the torn record and lost everything written since.
+    @Test
+    void recordsAppendedAfterATornRecordSurviveTheNextRecovery() throws IOException {
+        RentalJournal.open(directory, new CarRentalSystem()).close();
+        Path segment;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "journal-*.log")) {
+            segment = segments.iterator().next();
+        }
+        Files.write(segment, new byte[] {0, 0, 0, 40, 3, 1, 2}, StandardOpenOption.APPEND);
+
+        CarRentalSystem system = new CarRentalSystem();
+        RentalJournal.open(directory, system, Long.MAX_VALUE);
+        system.addCar(new Car("ID_001", "BMW", "X3", 100));
+
+        // Reopened without closing, as after a crash.
+        CarRentalSystem restored = new CarRentalSystem();
+        RentalJournal reopened = RentalJournal.open(directory, restored);
+        try {
+            assertEquals(1, restored.getCarCount());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void rentalsKeepThePriceTheyWereMadeForWhenThePricingRulesChange() throws IOException {
+        PricingEngine pricing = Car.getPricingEngine();
+        Car.setPricingEngine(PricingEngine.FLAT);
+        try {
+            CarRentalSystem system = new CarRentalSystem();
+            RentalJournal journal = RentalJournal.open(directory, system, Long.MAX_VALUE);
+            system.addCar(new Car("ID_001", "BMW", "X3", 100));
+            system.addCar(new Car("ID_002", "BMW", "X3", 100));
+            Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+            assertTrue(system.rentCar(system.findCarById("ID_001"), jane, 3));
+            journal.snapshot();
+            assertTrue(system.rentCar(system.findCarById("ID_002"), jane, 3));
+
+            // One rental is restored from the snapshot, the other from the journal.
+            Car.setPricingEngine((car, startDate, days) -> 1);
+            CarRentalSystem restored = new CarRentalSystem();
+            RentalJournal reopened = RentalJournal.open(directory, restored);
+            try {
+                assertEquals(30_000, restored.getRentalForCar(restored.findCarById("ID_001")).getPriceMinor());
+                assertEquals(30_000, restored.getRentalForCar(restored.findCarById("ID_002")).getPriceMinor());
+                assertEquals(60_000, restored.getRollups().getTotal().getRevenueInFlightMinor());
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            Car.setPricingEngine(pricing);
+        }
+    }
+}
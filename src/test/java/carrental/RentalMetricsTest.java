@@ -0,0 +1,77 @@
+package carrental;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RentalMetricsTest {
+    private static CarRentalSystem system(String carId) {
+        CarRentalSystem system = new CarRentalSystem();
+        system.addCar(new Car(carId, "BMW", "X3", 100));
+        return system;
+    }
+
+    @Test
+    void severalSystemsInOneProcessCanAllBeInstalled() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CarRentalSystem first = system("ID_001");
+        CarRentalSystem second = system("ID_002");
+        first.getMetrics().install();
+        try {
+            second.getMetrics().install();
+            try {
+                assertNotEquals(first.getMetrics().getObjectName(), second.getMetrics().getObjectName());
+                Customer jane = second.registerCustomer("Jane Doe", "jane@example.com");
+                assertTrue(second.rentCar(second.findCarById("ID_002"), jane, 3));
+                assertEquals(1L, server.getAttribute(second.getMetrics().getObjectName(), "RentCount"));
+                assertEquals(0L, server.getAttribute(first.getMetrics().getObjectName(), "RentCount"));
+                assertEquals(1, server.getAttribute(second.getMetrics().getObjectName(), "RentedCars"));
+            } finally {
+                second.getMetrics().close();
+            }
+            assertFalse(server.isRegistered(second.getMetrics().getObjectName()));
+            assertTrue(server.isRegistered(first.getMetrics().getObjectName()));
+        } finally {
+            first.getMetrics().close();
+        }
+        assertFalse(server.isRegistered(first.getMetrics().getObjectName()));
+    }
+
+    @Test
+    void closedMetricsCanBeInstalledAgain() throws JMException {
+        RentalMetrics metrics = system("ID_001").getMetrics();
+        metrics.install();
+        metrics.close();
+        metrics.close();
+        metrics.install();
+        try {
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics.getObjectName()));
+        } finally {
+            metrics.close();
+        }
+    }
+
+    @Test
+    void callsAreCountedInTheDump() {
+        CarRentalSystem system = system("ID_001");
+        Customer jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        Car car = system.findCarById("ID_001");
+        assertTrue(system.rentCar(car, jane, 3));
+        assertFalse(system.rentCar(car, jane, 3));
+        assertTrue(system.returnCar(car));
+
+        String dump = system.getMetrics().dump();
+        assertTrue(dump.contains("rental_operations_total{op=\"rent\",outcome=\"ok\"} 1\n"), dump);
+        assertTrue(dump.contains("rental_operations_total{op=\"rent\",outcome=\"failed\"} 1\n"), dump);
+        assertTrue(dump.contains("rental_operations_total{op=\"return\",outcome=\"ok\"} 1\n"), dump);
+        assertTrue(dump.contains("rental_fleet_cars 1\n"), dump);
+
+        system.getMetrics().setEnabled(false);
+        assertTrue(system.rentCar(car, jane, 3));
+        assertTrue(system.getMetrics().dump().contains("rental_operations_total{op=\"rent\",outcome=\"ok\"} 1\n"));
+    }
+}
@@ -0,0 +1,98 @@
+package carrental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationTest {
+    private CarRentalSystem system;
+    private Car car;
+    private Customer jane;
+    private Customer john;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        system = new CarRentalSystem();
+        car = new Car("ID_001", "BMW", "X3", 100);
+        system.addCar(car);
+        jane = system.registerCustomer("Jane Doe", "jane@example.com");
+        john = system.registerCustomer("John Roe", "john@example.com");
+        today = system.today();
+    }
+
+    @Test
+    void overlappingReservationsAreRefused() {
+        LocalDate start = today.plusDays(10);
+        assertNotNull(system.reserveCar(car, jane, start, start.plusDays(5)));
+        assertNull(system.reserveCar(car, john, start, start.plusDays(5)));
+        assertNull(system.reserveCar(car, john, start.minusDays(2), start.plusDays(1)));
+        assertNull(system.reserveCar(car, john, start.plusDays(4), start.plusDays(8)));
+        assertNull(system.reserveCar(car, john, start.plusDays(1), start.plusDays(2)));
+        assertNull(system.reserveCar(car, john, start.minusDays(1), start.plusDays(6)));
+    }
+
+    @Test
+    void reservationsMayMeetEndToEnd() {
+        LocalDate start = today.plusDays(10);
+        assertNotNull(system.reserveCar(car, jane, start, start.plusDays(5)));
+        assertNotNull(system.reserveCar(car, john, start.plusDays(5), start.plusDays(7)));
+        assertNotNull(system.reserveCar(car, john, start.minusDays(3), start));
+        assertEquals(3, system.getBookingsForCar(car).size());
+    }
+
+    @Test
+    void emptyAndOverlongRangesAreRefused() {
+        LocalDate start = today.plusDays(10);
+        assertNull(system.reserveCar(car, jane, start, start));
+        assertNull(system.reserveCar(car, jane, start, start.minusDays(1)));
+        assertNull(system.reserveCar(car, jane, start, start.plusDays(CarRentalSystem.MAX_RENTAL_DAYS + 1)));
+        assertNotNull(system.reserveCar(car, jane, start, start.plusDays(CarRentalSystem.MAX_RENTAL_DAYS)));
+    }
+
+    @Test
+    void aRentalAndAReservationOfTheSameDaysExcludeEachOther() {
+        assertTrue(system.rentCar(car, jane, 5));
+        assertNull(system.reserveCar(car, john, today.plusDays(4), today.plusDays(6)));
+        assertNotNull(system.reserveCar(car, john, today.plusDays(5), today.plusDays(6)));
+        assertTrue(system.returnCar(car));
+
+        // Now reserved from day 5, so a rental reaching into it is refused and a shorter one is not.
+        assertFalse(system.rentCar(car, jane, 6));
+        assertTrue(system.rentCar(car, jane, 5));
+    }
+
+    @Test
+    void aHoldBlocksReservationsOfItsDays() {
+        Hold hold = system.placeHold(car, jane, 3, 60_000);
+        assertNotNull(hold);
+        assertNull(system.reserveCar(car, john, today.plusDays(1), today.plusDays(2)));
+        assertNotNull(system.reserveCar(car, john, today.plusDays(3), today.plusDays(4)));
+        assertTrue(system.releaseHold(hold));
+        assertNotNull(system.reserveCar(car, john, today.plusDays(1), today.plusDays(2)));
+    }
+
+    @Test
+    void cancellingFreesTheDays() {
+        LocalDate start = today.plusDays(10);
+        Reservation reservation = system.reserveCar(car, jane, start, start.plusDays(5));
+        assertTrue(system.cancelReservation(reservation));
+        assertFalse(system.cancelReservation(reservation));
+        assertTrue(system.isCarFreeBetween(car, start, start.plusDays(5)));
+        assertNotNull(system.reserveCar(car, john, start, start.plusDays(5)));
+    }
+
+    @Test
+    void pickingUpAReservationRentsTheCarUntilItEnds() {
+        Reservation reservation = system.reserveCar(car, jane, today, today.plusDays(4));
+        assertTrue(system.pickUpReservation(reservation));
+        Rental rental = system.getRentalForCar(car);
+        assertEquals(jane.getCustomerId(), rental.getCustomer().getCustomerId());
+        assertEquals(today.plusDays(4), rental.getEndDate());
+        assertFalse(system.pickUpReservation(reservation));
+        assertTrue(system.getBookingsForCar(car).stream().noneMatch(booking -> booking instanceof Reservation));
+    }
+}